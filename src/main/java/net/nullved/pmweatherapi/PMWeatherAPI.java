@@ -21,12 +21,14 @@ import net.nullved.pmweatherapi.client.radar.WSRClientStorage;
 import net.nullved.pmweatherapi.client.render.IDOverlay;
 import net.nullved.pmweatherapi.client.render.radar.RadarOverlays;
 import net.nullved.pmweatherapi.config.PMWClientConfig;
+import net.nullved.pmweatherapi.config.PMWServerConfig;
 import net.nullved.pmweatherapi.data.PMWStorages;
 import net.nullved.pmweatherapi.metar.MetarServerStorage;
 import net.nullved.pmweatherapi.metar.MetarStorage;
 import net.nullved.pmweatherapi.metar.MetarStorageData;
 import net.nullved.pmweatherapi.network.PMWNetworking;
 import net.nullved.pmweatherapi.radar.storage.*;
+import net.nullved.pmweatherapi.storage.StorageOptions;
 import net.nullved.pmweatherapi.storage.data.BlockPosData;
 import net.nullved.pmweatherapi.storage.data.StorageDataManager;
 import org.slf4j.Logger;
@@ -50,6 +52,7 @@ public class PMWeatherAPI {
         LOGGER.info("Initialized PMWAPI");
 
         LOGGER.info("Registering PMWAPI Config");
+        modContainer.registerConfig(ModConfig.Type.SERVER, PMWServerConfig.SPEC);
         if (FMLEnvironment.dist.isClient()) {
             modContainer.registerConfig(ModConfig.Type.CLIENT, PMWClientConfig.SPEC);
             modContainer.registerExtensionPoint(IConfigScreenFactory.class, ConfigurationScreen::new);
@@ -58,15 +61,15 @@ public class PMWeatherAPI {
 
     private void commonSetup(FMLCommonSetupEvent event) {
         LOGGER.info("Registering PMWAPI Storage Data...");
-        StorageDataManager.register(BlockPosData.ID, BlockPosData::deserializeFromNBT);
-        StorageDataManager.register(RadarStorageData.ID, RadarStorageData::deserializeFromNBT);
-        StorageDataManager.register(MetarStorageData.ID, MetarStorageData::deserializeFromNBT);
-        StorageDataManager.register(WSRStorageData.ID, WSRStorageData::deserializeFromNBT);
+        StorageDataManager.register(BlockPosData.ID, BlockPosData::deserializeFromNBT, BlockPosData.CODEC);
+        StorageDataManager.register(RadarStorageData.ID, RadarStorageData::deserializeFromNBT, RadarStorageData.CODEC);
+        StorageDataManager.register(MetarStorageData.ID, MetarStorageData::deserializeFromNBT, MetarStorageData.CODEC);
+        StorageDataManager.register(WSRStorageData.ID, WSRStorageData::deserializeFromNBT, WSRStorageData.CODEC);
 
         LOGGER.info("Registering PMWAPI Storages [Common]...");
-        PMWStorages.registerStorage(RadarStorage.ID, RadarServerStorage.class, RadarServerStorage::new);
-        PMWStorages.registerStorage(MetarStorage.ID, MetarServerStorage.class, MetarServerStorage::new);
-        PMWStorages.registerStorage(WSRStorage.ID, WSRServerStorage.class, WSRServerStorage::new);
+        PMWStorages.registerStorage(RadarStorage.ID, RadarServerStorage.class, RadarServerStorage::new, StorageOptions.defaults().concurrent().tracking(RadarServerStorage.TRACKER).interestManaged());
+        PMWStorages.registerStorage(MetarStorage.ID, MetarServerStorage.class, MetarServerStorage::new, StorageOptions.defaults().concurrent().tracking(MetarServerStorage.TRACKER).interestManaged());
+        PMWStorages.registerStorage(WSRStorage.ID, WSRServerStorage.class, WSRServerStorage::new, StorageOptions.defaults().tracking(WSRServerStorage.TRACKER).interestManaged());
     }
 
     private void registerPayloads(RegisterPayloadHandlersEvent event) {
@@ -77,8 +80,8 @@ public class PMWeatherAPI {
 
     private void clientSetup(FMLClientSetupEvent event) {
         LOGGER.info("Registering PMWAPI Storages [Client]...");
-        PMWClientStorages.registerStorage(RadarStorage.ID, RadarClientStorage.class, RadarClientStorage::new);
-        PMWClientStorages.registerStorage(MetarStorage.ID, MetarClientStorage.class, MetarClientStorage::new);
+        PMWClientStorages.registerStorage(RadarStorage.ID, RadarClientStorage.class, RadarClientStorage::new, StorageOptions.defaults().concurrent());
+        PMWClientStorages.registerStorage(MetarStorage.ID, MetarClientStorage.class, MetarClientStorage::new, StorageOptions.defaults().concurrent());
         PMWClientStorages.registerStorage(WSRStorage.ID, WSRClientStorage.class, WSRClientStorage::new);
 
         LOGGER.info("Registering PMWAPI Radar Overlays...");
@@ -0,0 +1,144 @@
+package net.nullved.pmweatherapi.client.data;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.minecraft.client.multiplayer.ServerData;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.neoforged.fml.loading.FMLPaths;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.storage.ClientStorageInstance;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+import net.nullved.pmweatherapi.data.AsyncStorageWriter;
+import net.nullved.pmweatherapi.network.C2SStorageResumePacket;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.storage.data.BinaryStorageFormat;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Keeps a copy of each client storage on disk between sessions, so rejoining a server only downloads what changed.
+ * <br><br>
+ * When the client leaves a dimension or the server, every storage that received its whole full sync is written to
+ * {@code pmweatherapi/cache/<server>/<dimension>/<storage>.dat} along with the epoch and sequence number it is in sync with
+ * (see {@link StorageSyncJournal}) and the area it covers. When a dimension loads, the cached copy is shown right away and a
+ * {@link C2SStorageResumePacket} asks the server to bring it up to date, or to replace it if it is too old.
+ * <br><br>
+ * Nothing is cached in singleplayer, or if {@link PMWClientConfig#cacheStorages} is disabled
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class ClientStorageCache {
+    private static String server = null;
+
+    /**
+     * Writes every client storage to the cache
+     * @since 0.16.4.0
+     */
+    public static void saveAll() {
+        for (ClientStorageInstance<?, ?> instance : PMWClientStorages.getAll()) {
+            if (instance.get() != null) save(instance.get());
+        }
+    }
+
+    /**
+     * Writes a client storage to the cache, if it holds a complete copy of the server's storage
+     * @param storage The {@link IClientStorage} to write
+     * @since 0.16.4.0
+     */
+    public static void save(IClientStorage<?> storage) {
+        if (!PMWClientConfig.cacheStorages || storage.getLevel() == null) return;
+
+        Path file = file(storage.getId(), storage.getLevel().dimension().location());
+        long epoch = ClientSyncSequences.epoch(storage.getId());
+        long seq = ClientSyncSequences.seq(storage.getId());
+        // Copies that are still syncing, or that missed a delta, do not match any sequence number
+        if (file == null || epoch == 0 || seq < 0 || !storage.isComplete()) return;
+
+        CompoundTag tag = new CompoundTag();
+        tag.putLong("epoch", epoch);
+        tag.putLong("seq", seq);
+        tag.putInt("version", storage.version());
+        ChunkArea coverage = ClientSyncSequences.coverage(storage.getId());
+        if (coverage != null) tag.putIntArray("coverage", coverage.toArray());
+        BinaryStorageFormat.writeList(tag, storage.view());
+
+        AsyncStorageWriter.write(file, tag);
+    }
+
+    /**
+     * Fills the new client storages of a dimension from the cache and asks the server to resume each of them.
+     * Storages without a cached copy ask for a full sync right away instead of letting the server wait for an answer
+     * @param level The {@link ClientLevel} that was loaded
+     * @since 0.16.4.0
+     */
+    public static void loadAll(ClientLevel level) {
+        Minecraft minecraft = Minecraft.getInstance();
+        ServerData serverData = minecraft.getCurrentServer();
+        server = minecraft.isLocalServer() || serverData == null ? null : sanitize(serverData.ip);
+
+        for (ClientStorageInstance<?, ?> instance : PMWClientStorages.getAll()) {
+            ClientSyncSequences.forget(instance.id());
+            if (instance.get() != null) load(instance.get(), level);
+        }
+    }
+
+    /**
+     * Forgets the server the cache is written for, called after leaving a server
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        server = null;
+    }
+
+    private static <D extends IStorageData> void load(IClientStorage<D> storage, ClientLevel level) {
+        ResourceLocation dimension = level.dimension().location();
+        long epoch = 0, seq = 0;
+        ChunkArea coverage = null;
+
+        Path file = file(storage.getId(), dimension);
+        if (PMWClientConfig.cacheStorages && file != null) {
+            // The copy written when leaving the previous dimension may still be waiting to be written
+            AsyncStorageWriter.await(file);
+            if (Files.exists(file)) {
+                try {
+                    CompoundTag tag = NbtIo.readCompressed(file, NbtAccounter.unlimitedHeap());
+                    List<D> datum = BinaryStorageFormat.readList(tag, tag.getInt("version"));
+
+                    storage.add(datum);
+                    epoch = tag.getLong("epoch");
+                    seq = tag.getLong("seq");
+                    coverage = tag.contains("coverage") ? ChunkArea.fromArray(tag.getIntArray("coverage")) : null;
+                } catch (IOException | RuntimeException e) {
+                    PMWeatherAPI.LOGGER.warn("Could not read cached storage {}: {}", file, e.getMessage());
+                    storage.clean();
+                }
+            }
+        }
+
+        PMWNetworking.clientSendResume(storage.getId(), dimension, epoch, seq, coverage);
+    }
+
+    private static Path file(ResourceLocation id, ResourceLocation dimension) {
+        if (server == null) return null;
+
+        return FMLPaths.GAMEDIR.get().resolve("pmweatherapi").resolve("cache").resolve(server)
+            .resolve(sanitize(dimension.getNamespace() + "_" + dimension.getPath()))
+            .resolve(sanitize(id.getNamespace() + "_" + id.getPath()) + ".dat");
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,132 @@
+package net.nullved.pmweatherapi.client.data;
+
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Applies received {@link StoragePayload}s to the client storages on the main thread, within a time budget per frame.
+ * <br><br>
+ * {@link S2CStoragePacket}s are decoded into {@link IStorageData} on the network thread and queued here in the order they arrived.
+ * At the start of each frame, queued payloads are applied until {@link PMWClientConfig#syncApplyMicrosPerFrame} is used up.
+ * Payloads with many entries are added in slices, so a large sync is spread over several frames instead of causing a hitch.
+ * At least one slice is applied every frame, so the queue always drains
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class ClientSyncQueue {
+    private static final int SLICE_ENTRIES = 64;
+    private static final Deque<Task<?>> QUEUE = new ArrayDeque<>();
+
+    /**
+     * Queues a {@link StoragePayload} to be applied to a client storage
+     * @param storage The {@link IClientStorage} to apply it to
+     * @param payload The decoded {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static void enqueue(IClientStorage<?> storage, StoragePayload payload) {
+        QUEUE.addLast(new Task<>(storage, payload));
+    }
+
+    /**
+     * Applies queued payloads until the time budget of this frame is used up. Called at the start of each frame
+     * @since 0.16.4.0
+     */
+    public static void tick() {
+        if (QUEUE.isEmpty()) return;
+
+        long deadline = System.nanoTime() + PMWClientConfig.syncApplyMicrosPerFrame * 1000L;
+        do {
+            step();
+        } while (!QUEUE.isEmpty() && System.nanoTime() < deadline);
+    }
+
+    /**
+     * Applies every queued payload right away.
+     * Called before the client storages are cached or replaced, so they hold everything the server sent
+     * @since 0.16.4.0
+     */
+    public static void flush() {
+        while (!QUEUE.isEmpty()) {
+            step();
+        }
+    }
+
+    /**
+     * Applies the next slice of the first queued payload.
+     * A payload that fails to apply is dropped, and a resync of its storage is requested since the storage may now be missing data
+     */
+    private static void step() {
+        Task<?> task = QUEUE.peekFirst();
+        boolean finished;
+        try {
+            finished = task.step();
+        } catch (RuntimeException e) {
+            ResourceLocation id = task.storage.getId();
+            PMWeatherAPI.LOGGER.error("Failed to apply {} payload to storage {}, requesting a resync", task.payload.operation(), id, e);
+            ClientSyncSequences.requestResync(id);
+            finished = true;
+        }
+
+        if (finished) QUEUE.pollFirst();
+    }
+
+    /**
+     * Drops every queued payload, called when leaving a server
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        QUEUE.clear();
+    }
+
+    /**
+     * @return The amount of payloads waiting to be applied
+     * @since 0.16.4.0
+     */
+    public static int size() {
+        return QUEUE.size();
+    }
+
+    private static class Task<D extends IStorageData> {
+        private final IClientStorage<D> storage;
+        private final StoragePayload payload;
+        private List<D> added;
+        private int next = -1;
+
+        private Task(IClientStorage<D> storage, StoragePayload payload) {
+            this.storage = storage;
+            this.payload = payload;
+        }
+
+        /**
+         * Applies the next slice of the payload
+         * @return {@code true} if the payload is fully applied
+         */
+        @SuppressWarnings("unchecked")
+        private boolean step() {
+            if (next < 0) {
+                storage.beginSync(payload);
+                added = (List<D>) (List<?>) payload.added();
+                next = 0;
+            }
+
+            int end = Math.min(next + SLICE_ENTRIES, added.size());
+            if (end > next) storage.add(added.subList(next, end));
+            next = end;
+
+            if (next < added.size()) return false;
+            storage.endSync(payload);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package net.nullved.pmweatherapi.client.data;
+
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.resources.ResourceLocation;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.PagedSync;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the last delta sequence number received for each client storage, see {@link StorageSyncJournal}.
+ * When a gap is detected, a single resync is requested until the next full sync arrives.
+ * <br><br>
+ * Also tracks which storages have received every page of their last full sync, see {@link PagedSync},
+ * and the epoch and area each storage is in sync with, which are saved with the {@link ClientStorageCache}
+ *
+ * @since 0.16.4.0
+ */
+public class ClientSyncSequences {
+    private static final Object2LongOpenHashMap<ResourceLocation> SEQUENCES = new Object2LongOpenHashMap<>();
+    private static final Set<ResourceLocation> AWAITING_RESYNC = new HashSet<>();
+    private static final Set<ResourceLocation> COMPLETE = new HashSet<>();
+    private static final Object2LongOpenHashMap<ResourceLocation> EPOCHS = new Object2LongOpenHashMap<>();
+    private static final Map<ResourceLocation, ChunkArea> COVERAGES = new HashMap<>();
+
+    static {
+        SEQUENCES.defaultReturnValue(-1L);
+    }
+
+    /**
+     * Records the sequence number of a full sync
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param seq The sequence number the full sync was stamped with
+     * @since 0.16.4.0
+     */
+    public static void reset(ResourceLocation id, long seq) {
+        SEQUENCES.put(id, seq);
+        AWAITING_RESYNC.remove(id);
+    }
+
+    /**
+     * Records the sequence number of a delta, requesting a resync if any delta was missed
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param seq The sequence number of the delta
+     * @return {@code true} if the delta directly follows the last received one
+     * @since 0.16.4.0
+     */
+    public static boolean accept(ResourceLocation id, long seq) {
+        long last = SEQUENCES.put(id, seq);
+        if (last != -1L && seq == last + 1) return true;
+
+        if (!AWAITING_RESYNC.contains(id)) {
+            PMWeatherAPI.LOGGER.warn("Storage {} missed deltas (expected {}, got {}), requesting a resync", id, last + 1, seq);
+            requestResync(id);
+        }
+
+        return false;
+    }
+
+    /**
+     * Requests a full sync of a storage, unless one was already requested and has not arrived yet
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @since 0.16.4.0
+     */
+    public static void requestResync(ResourceLocation id) {
+        if (AWAITING_RESYNC.add(id)) PMWNetworking.clientRequestResync(id);
+    }
+
+    /**
+     * Gets the sequence number a storage is in sync with
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @return The sequence number, or {@code -1} if unknown or a delta was missed
+     * @since 0.16.4.0
+     */
+    public static long seq(ResourceLocation id) {
+        return AWAITING_RESYNC.contains(id) ? -1L : SEQUENCES.getLong(id);
+    }
+
+    /**
+     * Records the epoch of the sequence numbers of a storage, sent with its full sync
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param epoch The epoch, or {@code 0} if unknown
+     * @since 0.16.4.0
+     */
+    public static void setEpoch(ResourceLocation id, long epoch) {
+        EPOCHS.put(id, epoch);
+    }
+
+    /**
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @return The epoch of the sequence numbers of a storage, or {@code 0} if unknown
+     * @since 0.16.4.0
+     */
+    public static long epoch(ResourceLocation id) {
+        return EPOCHS.getLong(id);
+    }
+
+    /**
+     * Records the area of the world a storage holds data for
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param coverage The {@link ChunkArea}, or {@code null} for the whole dimension
+     * @since 0.16.4.0
+     */
+    public static void setCoverage(ResourceLocation id, ChunkArea coverage) {
+        if (coverage == null) COVERAGES.remove(id);
+        else COVERAGES.put(id, coverage);
+    }
+
+    /**
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @return The area of the world a storage holds data for, or {@code null} for the whole dimension
+     * @since 0.16.4.0
+     */
+    public static ChunkArea coverage(ResourceLocation id) {
+        return COVERAGES.get(id);
+    }
+
+    /**
+     * Forgets everything about a storage, called when the client storage is replaced by the storage of a new dimension
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @since 0.16.4.0
+     */
+    public static void forget(ResourceLocation id) {
+        SEQUENCES.removeLong(id);
+        AWAITING_RESYNC.remove(id);
+        COMPLETE.remove(id);
+        EPOCHS.removeLong(id);
+        COVERAGES.remove(id);
+    }
+
+    /**
+     * Records whether a storage has received the last page of its full sync
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param complete {@code true} if every page was received
+     * @since 0.16.4.0
+     */
+    public static void setComplete(ResourceLocation id, boolean complete) {
+        if (complete) COMPLETE.add(id);
+        else COMPLETE.remove(id);
+    }
+
+    /**
+     * Checks if a storage has received every page of its last full sync
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @return {@code true} if the full sync is complete
+     * @since 0.16.4.0
+     */
+    public static boolean isComplete(ResourceLocation id) {
+        return COMPLETE.contains(id);
+    }
+
+    /**
+     * Forgets every sequence number, called when leaving a server
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        SEQUENCES.clear();
+        AWAITING_RESYNC.clear();
+        COMPLETE.clear();
+        EPOCHS.clear();
+        COVERAGES.clear();
+    }
+}
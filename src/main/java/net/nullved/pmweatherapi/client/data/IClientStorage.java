@@ -2,21 +2,31 @@ package net.nullved.pmweatherapi.client.data;
 
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.BlockPos;
-import net.minecraft.nbt.*;
-import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.ChunkPos;
 import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
 import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
 import net.nullved.pmweatherapi.storage.IStorage;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
-import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.PagedSync;
+import net.nullved.pmweatherapi.storage.sync.PlayerInterest;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
 
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * The interface defining the client-side implementation of a Storage such as {@link RadarClientStorage}
  * <br><br>
  * Every time the client changes dimension, a new {@link IClientStorage} is created for each storage.
+ * <br><br>
+ * Packets are decoded into a {@link StoragePayload} on the network thread and applied on the main thread by the {@link ClientSyncQueue},
+ * which splits large payloads over several frames: {@link #beginSync(StoragePayload)}, then {@link #add(Collection)} for each slice
+ * of the added data, then {@link #endSync(StoragePayload)}
  * @since 0.15.3.3
  */
 public interface IClientStorage<D extends IStorageData> extends IStorage<D> {
@@ -28,80 +38,159 @@ public interface IClientStorage<D extends IStorageData> extends IStorage<D> {
      * @since 0.15.3.3
      */
     default void syncAll(CompoundTag tag) {
-        clean();
-        syncAdd(tag);
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.OVERWRITE));
     }
 
     /**
-     * Syncs data from a {@link S2CStoragePacket} with operation {@code add} into this storage's memory
+     * Syncs the next page of a full sync from a {@link S2CStoragePacket} with operation {@code page} into this storage's memory
      * @param tag The {@link CompoundTag} of the data
-     * @since 0.15.3.3
+     * @see PagedSync
+     * @since 0.16.4.0
      */
-    default void syncAdd(CompoundTag tag) {
-        int version = tag.getInt("version");
-        if (tag.contains("list") && tag.getBoolean("list")) {
-            // list format
-            ListTag list = tag.getList("data", ListTag.TAG_COMPOUND);
-            add(list.stream().map((t -> {
-                try {
-                    return (D) StorageData.deserializeFromNBT((CompoundTag) t, version);
-                } catch (ClassCastException e) {
-                    PMWeatherAPI.LOGGER.info("Invalid data entry in NBT: {}", e.getMessage());
-                    return null;
+    default void syncPage(CompoundTag tag) {
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.PAGE));
+    }
+
+    /**
+     * Brings this storage's cached data up to date from a {@link S2CStoragePacket} with operation {@code resume}
+     * @param tag The {@link CompoundTag} of the data
+     * @see ClientStorageCache
+     * @since 0.16.4.0
+     */
+    default void syncResume(CompoundTag tag) {
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.RESUME));
+    }
+
+    /**
+     * Moves the area this storage holds data for from a {@link S2CStoragePacket} with operation {@code area}
+     * @param tag The {@link CompoundTag} of the data
+     * @see PlayerInterest
+     * @since 0.16.4.0
+     */
+    default void syncArea(CompoundTag tag) {
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.AREA));
+    }
+
+    /**
+     * Checks if this storage has received every page of its last full sync.
+     * Until then, it only holds the data nearest to the player
+     * @return {@code true} if the full sync is complete
+     * @see PagedSync
+     * @since 0.16.4.0
+     */
+    default boolean isComplete() {
+        return ClientSyncSequences.isComplete(getId());
+    }
+
+    /**
+     * Syncs a {@link StoragePayload} into this storage's memory in one step.
+     * Deltas are applied even if an earlier one was missed, and a resync is requested in that case
+     * @param payload The {@link StoragePayload} of the packet
+     * @see ClientSyncQueue
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    default void sync(StoragePayload payload) {
+        beginSync(payload);
+        Collection<D> added = (Collection<D>) (Collection<?>) payload.added();
+        if (!added.isEmpty()) add(added);
+        endSync(payload);
+    }
+
+    /**
+     * Applies everything of a {@link StoragePayload} that has to happen before its added data is added, such as clearing or removing data
+     * @param payload The {@link StoragePayload} being applied
+     * @since 0.16.4.0
+     */
+    default void beginSync(StoragePayload payload) {
+        switch (payload.operation()) {
+            case OVERWRITE -> clean();
+            case PAGE -> clearChunks(payload.replacedChunks());
+            case RESUME -> {
+                // Data outside the new area is no longer kept in sync by the server
+                ChunkArea coverage = payload.coverage();
+                if (coverage != null) {
+                    List<BlockPos> outside = new ArrayList<>();
+                    forAll(data -> {
+                        if (!coverage.contains(IStorageBackend.chunkKey(data.getPos().asLong()))) outside.add(data.getPos());
+                    });
+                    if (!outside.isEmpty()) removeByPos(outside);
                 }
-            })).filter(Objects::nonNull).collect(Collectors.toSet()));
-        } else {
-            try {
-                add((D) StorageData.deserializeFromNBT(tag.getCompound("data"), version));
-            } catch (ClassCastException e) {
-                PMWeatherAPI.LOGGER.info("Invalid data entry in NBT: {}", e.getMessage());
+
+                clearChunks(payload.replacedChunks());
+            }
+            case REMOVE, AREA -> {
+                if (payload.removed().length > 0) removeByPos(positions(payload.removed()));
+            }
+            case DELTA -> {
+                ClientSyncSequences.accept(getId(), payload.seq());
+                if (payload.removed().length > 0) removeByPos(positions(payload.removed()));
             }
+            case ADD -> {}
         }
     }
 
+    /**
+     * Applies everything of a {@link StoragePayload} that has to happen after its added data was added,
+     * such as recording its sequence number. See {@link StorageSyncJournal}
+     * @param payload The {@link StoragePayload} being applied
+     * @since 0.16.4.0
+     */
+    default void endSync(StoragePayload payload) {
+        switch (payload.operation()) {
+            case OVERWRITE, RESUME -> {
+                if (payload.seq() >= 0) ClientSyncSequences.reset(getId(), payload.seq());
+                ClientSyncSequences.setEpoch(getId(), payload.epoch());
+                ClientSyncSequences.setCoverage(getId(), payload.coverage());
+                ClientSyncSequences.setComplete(getId(), payload.complete());
+            }
+            case PAGE -> ClientSyncSequences.setComplete(getId(), payload.complete());
+            case AREA -> ClientSyncSequences.setCoverage(getId(), payload.coverage());
+            case ADD, REMOVE, DELTA -> {}
+        }
+    }
+
+    private void clearChunks(long[] chunks) {
+        List<BlockPos> posList = new ArrayList<>();
+        for (long chunk : chunks) {
+            for (D data : viewInChunk(new ChunkPos(chunk))) posList.add(data.getPos());
+        }
+
+        if (!posList.isEmpty()) removeByPos(posList);
+    }
+
+    private static List<BlockPos> positions(long[] packed) {
+        List<BlockPos> posList = new ArrayList<>(packed.length);
+        for (long pos : packed) posList.add(BlockPos.of(pos));
+        return posList;
+    }
+
+    /**
+     * Syncs the coalesced changes of a tick from a {@link S2CStoragePacket} with operation {@code delta} into this storage's memory.
+     * The delta is applied even if an earlier one was missed, and a resync is requested in that case
+     * @param tag The {@link CompoundTag} of the data
+     * @see StorageSyncJournal
+     * @since 0.16.4.0
+     */
+    default void syncDelta(CompoundTag tag) {
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.DELTA));
+    }
+
+    /**
+     * Syncs data from a {@link S2CStoragePacket} with operation {@code add} into this storage's memory
+     * @param tag The {@link CompoundTag} of the data
+     * @since 0.15.3.3
+     */
+    default void syncAdd(CompoundTag tag) {
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.ADD));
+    }
+
     /**
      * Syncs data from a {@link S2CStoragePacket} with operation {@code remove} into this storage's memory
      * @param tag The {@link CompoundTag} of the data
      * @since 0.15.3.3
      */
     default void syncRemove(CompoundTag tag) {
-        int version = tag.getInt("version");
-        if (!tag.contains("format")) {
-            // data
-            if (tag.contains("list") && tag.getBoolean("list")) {
-                // list format
-                ListTag list = tag.getList("data", ListTag.TAG_COMPOUND);
-                removeByData(list.stream().map((t -> {
-                    try {
-                        return (D) StorageData.deserializeFromNBT((CompoundTag) t, version);
-                    } catch (ClassCastException e) {
-                        PMWeatherAPI.LOGGER.info("Invalid data entry in NBT: {}", e.getMessage());
-                        return null;
-                    }
-                })).filter(Objects::nonNull).collect(Collectors.toSet()));
-            } else {
-                // not list format
-                try {
-                    remove((D) StorageData.deserializeFromNBT(tag.getCompound("data"), version));
-                } catch (ClassCastException e) {
-                    PMWeatherAPI.LOGGER.info("Invalid data entry in NBT: {}", e.getMessage());
-                }
-            }
-        } else if (tag.getString("format").equals("blockpos")) {
-            if (tag.contains("list") && tag.getBoolean("list")) {
-                // list format
-                ListTag list = tag.getList("data", ListTag.TAG_INT_ARRAY);
-                removeByPos(list.stream().map(t -> {
-                    if (t instanceof IntArrayTag iat) {
-                        return new BlockPos(iat.get(0).getAsInt(), iat.get(1).getAsInt(), iat.get(2).getAsInt());
-                    } else return null;
-                }).collect(Collectors.toSet()));
-            } else {
-                // not list format
-                remove(NbtUtils.readBlockPos(tag, "data").orElseThrow());
-            }
-        } else {
-            PMWeatherAPI.LOGGER.info("Invalid data format for packet: '{}'!", tag.getString("format"));
-        }
+        sync(StoragePayload.fromTag(tag, StoragePayload.Operation.REMOVE));
     }
 }
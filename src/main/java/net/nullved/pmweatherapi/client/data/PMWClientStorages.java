@@ -11,6 +11,7 @@ import net.nullved.pmweatherapi.PMWeatherAPI;
 import net.nullved.pmweatherapi.client.metar.MetarClientStorage;
 import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
 import net.nullved.pmweatherapi.client.radar.WSRClientStorage;
+import net.nullved.pmweatherapi.client.render.radar.RadarFrameBuffer;
 import net.nullved.pmweatherapi.client.storage.ClientStorageInstance;
 import net.nullved.pmweatherapi.metar.MetarStorage;
 import net.nullved.pmweatherapi.metar.MetarStorageData;
@@ -18,6 +19,7 @@ import net.nullved.pmweatherapi.radar.RadarMode;
 import net.nullved.pmweatherapi.radar.storage.RadarStorage;
 import net.nullved.pmweatherapi.radar.storage.WSRStorage;
 import net.nullved.pmweatherapi.radar.storage.WSRStorageData;
+import net.nullved.pmweatherapi.storage.StorageOptions;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 import net.nullved.pmweatherapi.radar.storage.RadarStorageData;
@@ -38,7 +40,9 @@ public class PMWClientStorages {
     /**
      * A {@link Map} of {@link RadarMode}s to {@link Map}s of pixel ids and their {@link Color}
      * @since 0.14.15.6
+     * @deprecated Since 0.16.4.0 | No longer filled by the radar renderer, use {@link RadarFrameBuffer#colors(RadarMode)} instead
      */
+    @Deprecated(since = "0.16.4.0")
     public static Map<RadarBlockEntity, Map<RadarMode, Map<Long, Integer>>> RADAR_MODE_COLORS = new HashMap<>();
 
     public static final Map<ResourceLocation, ClientStorageInstance<?, ?>> STORAGE_INSTANCES = new HashMap<>();
@@ -156,7 +160,22 @@ public class PMWClientStorages {
      * @since 0.15.3.3
      */
     public static <D extends IStorageData, C extends IClientStorage<D>> void registerStorage(ResourceLocation id, Class<C> clazz, Function<ClientLevel, C> creator) {
-        ClientStorageInstance<D, C> instance = new ClientStorageInstance<>(id, clazz, creator);
+        registerStorage(id, clazz, creator, StorageOptions.defaults());
+    }
+
+    /**
+     * Register a new {@link IClientStorage} with the given {@link StorageOptions}.
+     * For example, use {@link StorageOptions#concurrent()} if the storage will be read from other threads
+     * @param id The {@link ResourceLocation} to save this {@link IClientStorage} as
+     * @param clazz The {@link Class} of the {@link IClientStorage}
+     * @param creator A function creating another {@link IClientStorage} for the given {@link ClientLevel}
+     * @param options The {@link StorageOptions} to apply to each created {@link IClientStorage}
+     * @param <D> The {@link IStorageData} of the {@link IClientStorage}
+     * @param <C> The {@link IClientStorage}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData, C extends IClientStorage<D>> void registerStorage(ResourceLocation id, Class<C> clazz, Function<ClientLevel, C> creator, StorageOptions options) {
+        ClientStorageInstance<D, C> instance = new ClientStorageInstance<>(id, clazz, creator, options);
         STORAGE_INSTANCES.put(id, instance);
     }
 }
@@ -1,13 +1,22 @@
 package net.nullved.pmweatherapi.client.event;
 
+import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.world.level.LevelAccessor;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.ClientTickEvent;
+import net.neoforged.neoforge.client.event.RenderFrameEvent;
 import net.neoforged.neoforge.event.level.LevelEvent;
 import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.data.ClientStorageCache;
+import net.nullved.pmweatherapi.client.data.ClientSyncQueue;
+import net.nullved.pmweatherapi.client.data.ClientSyncSequences;
 import net.nullved.pmweatherapi.client.data.PMWClientStorages;
+import net.nullved.pmweatherapi.client.render.radar.RadarMesh;
+import net.nullved.pmweatherapi.client.render.radar.RadarTexture;
 
 @EventBusSubscriber(modid = PMWeatherAPI.MODID, value = Dist.CLIENT)
 public class PMWClientEvents {
@@ -16,15 +25,45 @@ public class PMWClientEvents {
         LevelAccessor level = event.getLevel();
         if (level.isClientSide() && level instanceof ClientLevel clevel) {
             PMWeatherAPI.LOGGER.info("Loaded client storages for dimension {}", clevel.dimension().location());
+            // The storages of the previous dimension receive everything sent to them and are cached before being replaced
+            ClientSyncQueue.flush();
+            ClientStorageCache.saveAll();
             PMWClientStorages.loadDimension(clevel);
+            ClientStorageCache.loadAll(clevel);
         }
     }
 
+    @SubscribeEvent
+    public static void onRenderFrame(RenderFrameEvent.Pre event) {
+        ClientSyncQueue.tick();
+    }
+
+    @SubscribeEvent
+    public static void onClientTick(ClientTickEvent.Post event) {
+        Minecraft minecraft = Minecraft.getInstance();
+        if (minecraft.level != null && minecraft.player != null) {
+            // Radars stop rendering 20 blocks away, keep their textures and meshes a bit further so walking back and forth does not recreate them
+            RadarTexture.evict(minecraft.level, minecraft.player.position(), 32.0D);
+            RadarMesh.evict(minecraft.level, minecraft.player.position(), 32.0D);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event) {
+        ClientSyncQueue.flush();
+        ClientStorageCache.saveAll();
+        ClientStorageCache.clear();
+        ClientSyncQueue.clear();
+        ClientSyncSequences.clear();
+    }
+
     @SubscribeEvent
     public static void onLevelUnloadEvent(LevelEvent.Unload event) {
         LevelAccessor level =  event.getLevel();
         if (level.isClientSide() && level instanceof ClientLevel clevel) {
             PMWeatherAPI.LOGGER.info("Unloaded client storages for dimension {}", clevel.dimension().location());
+            RadarTexture.clear();
+            RadarMesh.clear();
         }
     }
 }
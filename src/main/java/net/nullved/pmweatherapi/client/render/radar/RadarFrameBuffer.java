@@ -0,0 +1,253 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.radar.RadarMode;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The per-pixel data of a radar, kept in flat arrays indexed by pixel index instead of boxed maps.
+ * <br><br>
+ * A radar of resolution {@code r} has {@code (2r + 1)²} pixels. The pixel at {@code (x, z)}, both from {@code -r} to {@code r},
+ * has the index {@code (x + r) * (2r + 1) + (z + r)}, see {@link #index(int, int, int)}.
+ * Values are written on update frames and read on every frame, so frames between updates allocate nothing.
+ * <br><br>
+ * The sampled weather is written into the {@link Samples} by a {@link RadarSampler}, all at once on update frames,
+ * or by a {@link RadarSweep}, a slice of pixels per frame.
+ * <br><br>
+ * A new buffer is created when the resolution of the radar changes
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class RadarFrameBuffer {
+    private static final Map<RadarBlockEntity, RadarFrameBuffer> BUFFERS = new WeakHashMap<>();
+
+    /**
+     * The color of a pixel whose {@link RadarMode} has not computed a color yet
+     * @since 0.16.4.0
+     */
+    public static final int MISSING_COLOR = 0xFFFF00FF;
+
+    private final int resolution;
+    private final int size;
+    private final Samples samples;
+    private RadarSweep sweep = null;
+    private final int[] terrain;
+    private final int[] debug;
+    private final Reference2ObjectOpenHashMap<RadarMode, int[]> modeColors = new Reference2ObjectOpenHashMap<>();
+
+    private RadarFrameBuffer(int resolution) {
+        this.resolution = resolution;
+        this.size = (2 * resolution + 1) * (2 * resolution + 1);
+        this.samples = new Samples(size);
+        this.terrain = new int[size];
+        this.debug = new int[size];
+
+        Arrays.fill(terrain, 0xFF000000);
+        Arrays.fill(debug, 0xFF000000);
+    }
+
+    /**
+     * Gets the buffer of a radar, creating it if needed or if the resolution changed
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @param resolution The current resolution of the radar
+     * @return The {@link RadarFrameBuffer} of the radar
+     * @since 0.16.4.0
+     */
+    public static RadarFrameBuffer of(RadarBlockEntity blockEntity, int resolution) {
+        RadarFrameBuffer buffer = BUFFERS.get(blockEntity);
+        if (buffer == null || buffer.resolution != resolution) {
+            buffer = new RadarFrameBuffer(resolution);
+            BUFFERS.put(blockEntity, buffer);
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Gets the buffer of a radar without creating it
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @return The {@link RadarFrameBuffer} of the radar, or {@code null} if it has not rendered yet
+     * @since 0.16.4.0
+     */
+    public static RadarFrameBuffer get(RadarBlockEntity blockEntity) {
+        return BUFFERS.get(blockEntity);
+    }
+
+    /**
+     * Drops the buffer of a radar
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @since 0.16.4.0
+     */
+    public static void remove(RadarBlockEntity blockEntity) {
+        BUFFERS.remove(blockEntity);
+    }
+
+    /**
+     * Gets the index of a pixel
+     * @param x The x-position of the pixel, from {@code -resolution} to {@code resolution}
+     * @param z The z-position of the pixel, from {@code -resolution} to {@code resolution}
+     * @param resolution The resolution of the radar
+     * @return The index of the pixel
+     * @since 0.16.4.0
+     */
+    public static int index(int x, int z, int resolution) {
+        return (x + resolution) * (2 * resolution + 1) + (z + resolution);
+    }
+
+    /**
+     * @return The resolution this buffer was created for
+     * @since 0.16.4.0
+     */
+    public int resolution() {
+        return resolution;
+    }
+
+    /**
+     * @return The amount of pixels in this buffer
+     * @since 0.16.4.0
+     */
+    public int size() {
+        return size;
+    }
+
+    public float reflectivity(int pidx) {
+        return samples.reflectivity[pidx];
+    }
+
+    public float temperature(int pidx) {
+        return samples.temperature[pidx];
+    }
+
+    public float velocity(int pidx) {
+        return samples.velocity[pidx];
+    }
+
+    /**
+     * @return {@code false} if the samples were taken without a complete WSR-88D nearby, and only hold noise
+     * @since 0.16.4.0
+     */
+    public boolean canRender() {
+        return samples.canRender;
+    }
+
+    /**
+     * Gets the samples that are drawn. Only the render thread, or workers it waits for, may write to them
+     * @return The {@link Samples}
+     * @since 0.16.4.0
+     */
+    public Samples samples() {
+        return samples;
+    }
+
+    /**
+     * Gets the progressive sweep of the radar, creating it if needed
+     * @return The {@link RadarSweep} of the radar
+     * @since 0.16.4.0
+     */
+    public RadarSweep sweep() {
+        if (sweep == null) sweep = new RadarSweep(this);
+        return sweep;
+    }
+
+    /**
+     * @param pidx The index of the pixel
+     * @return The ARGB color of the terrain under the pixel
+     * @since 0.16.4.0
+     */
+    public int terrain(int pidx) {
+        return terrain[pidx];
+    }
+
+    public void setTerrain(int pidx, int color) {
+        terrain[pidx] = color;
+    }
+
+    /**
+     * @param pidx The index of the pixel
+     * @return The ARGB color of the pixel in the current debug mode
+     * @since 0.16.4.0
+     */
+    public int debug(int pidx) {
+        return debug[pidx];
+    }
+
+    public void setDebug(int pidx, int color) {
+        debug[pidx] = color;
+    }
+
+    /**
+     * Checks if a {@link RadarMode} has colors in this buffer. Modes without colors force an update frame
+     * @param mode The {@link RadarMode}
+     * @return {@code true} if the mode has colors
+     * @since 0.16.4.0
+     */
+    public boolean hasColors(RadarMode mode) {
+        return modeColors.containsKey(mode);
+    }
+
+    /**
+     * Gets the ARGB colors a {@link RadarMode} computed for each pixel, creating them if needed.
+     * Pixels that were not computed yet are {@link #MISSING_COLOR}
+     * @param mode The {@link RadarMode}
+     * @return The colors, indexed by pixel index
+     * @since 0.16.4.0
+     */
+    public int[] colors(RadarMode mode) {
+        int[] colors = modeColors.get(mode);
+        if (colors == null) {
+            colors = new int[size];
+            Arrays.fill(colors, MISSING_COLOR);
+            modeColors.put(mode, colors);
+        }
+
+        return colors;
+    }
+
+    /**
+     * The weather sampled for each pixel of a radar, indexed by pixel index
+     * @since 0.16.4.0
+     */
+    public static class Samples {
+        private final float[] reflectivity;
+        private final float[] temperature;
+        private final float[] velocity;
+        private boolean canRender = true;
+
+        private Samples(int size) {
+            this.reflectivity = new float[size];
+            this.temperature = new float[size];
+            this.velocity = new float[size];
+
+            Arrays.fill(temperature, 15.0F);
+        }
+
+        /**
+         * Sets the sampled weather of a pixel
+         * @param pidx The index of the pixel
+         * @param reflectivity The reflectivity, from {@code 0} upwards
+         * @param temperature The temperature
+         * @param velocity The radial velocity
+         * @since 0.16.4.0
+         */
+        public void set(int pidx, float reflectivity, float temperature, float velocity) {
+            this.reflectivity[pidx] = reflectivity;
+            this.temperature[pidx] = temperature;
+            this.velocity[pidx] = velocity;
+        }
+
+        /**
+         * @param canRender {@code false} if there was no complete WSR-88D nearby when sampling
+         * @since 0.16.4.0
+         */
+        public void setCanRender(boolean canRender) {
+            this.canRender = canRender;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import com.mojang.blaze3d.vertex.VertexFormat;
+import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
+import dev.protomanly.pmweather.config.ClientConfig;
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+import net.nullved.pmweatherapi.radar.RadarMode;
+import org.joml.Matrix4f;
+
+/**
+ * The per-pixel quads of a radar baked into a {@link VertexBuffer}, used if {@link PMWClientConfig#radarRenderMode} is
+ * {@link PMWClientConfig.RadarRenderMode#BAKED}.
+ * <br><br>
+ * The quads are built relative to the radar, on update frames or when what the radar shows changes, and uploaded once.
+ * Other frames draw the buffer with the current pose, without building any vertices.
+ * While a {@link RadarSweep} recolors a few pixels per frame, the mesh is only baked again once every {@link #REBAKES_PER_SWEEP}th of the radar changed,
+ * see {@link #markStale(int, boolean)}.
+ * <br><br>
+ * Buffers hold GPU memory, so they are released when their radar is removed, leaves render range or its level unloads,
+ * see {@link #evict(Level, Vec3, double)}
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class RadarMesh extends RadarResource {
+    private static final Cache<RadarMesh> MESHES = new Cache<>(RadarMesh::new);
+    private static final Matrix4f MODEL_VIEW = new Matrix4f();
+    /**
+     * How many times a mesh is baked again during a full {@link RadarSweep}
+     * @since 0.16.4.0
+     */
+    public static final int REBAKES_PER_SWEEP = 8;
+
+    private final VertexBuffer buffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+    private final ByteBufferBuilder bytes;
+    private BufferBuilder builder = null;
+    private boolean empty = true;
+    private int stale = 0;
+
+    private RadarMesh(int resolution) {
+        super(resolution);
+        int width = 2 * resolution + 1;
+        this.bytes = new ByteBufferBuilder(width * width * 4 * DefaultVertexFormat.POSITION_COLOR.getVertexSize());
+    }
+
+    /**
+     * Gets the mesh of a radar, creating it if needed or if the resolution changed
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @param resolution The current resolution of the radar
+     * @return The {@link RadarMesh} of the radar
+     * @since 0.16.4.0
+     */
+    public static RadarMesh of(RadarBlockEntity blockEntity, int resolution) {
+        return MESHES.get(blockEntity, resolution);
+    }
+
+    /**
+     * Releases the meshes of radars that were removed, are in another level, or are further than the given distance
+     * @param level The current {@link Level}
+     * @param camera The position the distance is measured from
+     * @param range The distance beyond which meshes are released
+     * @since 0.16.4.0
+     */
+    public static void evict(Level level, Vec3 camera, double range) {
+        MESHES.evict(level, camera, range);
+    }
+
+    /**
+     * Releases every mesh, called when the level unloads
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        MESHES.clear();
+    }
+
+    /**
+     * Records pixels that were recolored since the mesh was last baked, without baking it again
+     * @param pixels The amount of recolored pixels
+     * @param force {@code true} to bake again as soon as any pixel changed, such as when a sweep ends
+     * @return {@code true} if enough pixels changed that the mesh should be baked again
+     * @since 0.16.4.0
+     */
+    public boolean markStale(int pixels, boolean force) {
+        stale += pixels;
+        int width = 2 * resolution + 1;
+        return stale > 0 && (force || stale >= width * width / REBAKES_PER_SWEEP);
+    }
+
+    /**
+     * Starts baking the mesh. Quads must be added relative to the radar, with an identity pose
+     * @return The {@link VertexConsumer} to add the quads to
+     * @since 0.16.4.0
+     */
+    public VertexConsumer begin() {
+        builder = new BufferBuilder(bytes, VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_COLOR);
+        return builder;
+    }
+
+    /**
+     * Uploads the baked quads and marks the mesh as showing the given radar mode and settings
+     * @param mode The {@link RadarMode} of the radar
+     * @param originalColors {@code true} if PMWeather's color tables are used
+     * @param debugMode PMWeather's client radar debugging mode, or {@code null} if debugging is off
+     * @since 0.16.4.0
+     */
+    public void end(RadarMode mode, boolean originalColors, ClientConfig.RadarMode debugMode) {
+        MeshData meshData = builder.build();
+        builder = null;
+
+        empty = meshData == null;
+        if (!empty) {
+            buffer.bind();
+            buffer.upload(meshData);
+            VertexBuffer.unbind();
+        }
+
+        this.stale = 0;
+        markShown(mode, originalColors, debugMode);
+    }
+
+    /**
+     * Draws the mesh right away with the current pose
+     * @param poseStack The {@link PoseStack} of the radar
+     * @since 0.16.4.0
+     */
+    public void render(PoseStack poseStack) {
+        if (empty) return;
+
+        MODEL_VIEW.set(RenderSystem.getModelViewMatrix()).mul(poseStack.last().pose());
+        RadarRenderTypes.RADAR.setupRenderState();
+        buffer.bind();
+        buffer.drawWithShader(MODEL_VIEW, RenderSystem.getProjectionMatrix(), GameRenderer.getPositionColorShader());
+        VertexBuffer.unbind();
+        RadarRenderTypes.RADAR.clearRenderState();
+    }
+
+    @Override
+    protected void release() {
+        buffer.close();
+        bytes.close();
+    }
+}
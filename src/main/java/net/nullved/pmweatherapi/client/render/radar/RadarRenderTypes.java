@@ -30,6 +30,33 @@ public class RadarRenderTypes {
                     .createCompositeState(false)
     );
 
+    /**
+     * Creates the {@link RenderType} of a radar drawn as one texture, see {@link RadarTexture}.
+     * The {@link RenderType} is not cached, so it should be created once per texture
+     * @param texture The {@link ResourceLocation} of the texture
+     * @return A new {@link RenderType}
+     * @since 0.16.4.0
+     */
+    public static RenderType radarTexture(ResourceLocation texture) {
+        return RenderType.create(
+            "radar_texture",
+            DefaultVertexFormat.POSITION_COLOR_TEX_LIGHTMAP,
+            VertexFormat.Mode.QUADS,
+            256,
+            false,
+            false,
+            RenderType.CompositeState.builder()
+                .setShaderState(RenderStateShard.POSITION_COLOR_TEX_LIGHTMAP_SHADER)
+                .setTextureState(new RenderStateShard.TextureStateShard(texture, false, false))
+                .setTransparencyState(NO_TRANSPARENCY)
+                .setDepthTestState(RenderStateShard.LEQUAL_DEPTH_TEST)
+                .setWriteMaskState(COLOR_DEPTH_WRITE)
+                .setCullState(RenderStateShard.NO_CULL)
+                .setLightmapState(LIGHTMAP)
+                .createCompositeState(false)
+        );
+    }
+
     public static RenderType createForTexture(ResourceLocation resourceLocation) {
         return OVERLAY_CACHE.computeIfAbsent(resourceLocation, r-> RenderType.create(
                 "radar_overlay_texture",
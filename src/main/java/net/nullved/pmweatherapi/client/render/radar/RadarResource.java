@@ -0,0 +1,133 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
+import dev.protomanly.pmweather.config.ClientConfig;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.radar.RadarMode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A GPU resource holding the drawn pixels of one radar, such as a {@link RadarTexture} or a {@link RadarMesh}.
+ * <br><br>
+ * Remembers which radar mode and settings its pixels were drawn with, so they are only drawn again when those change,
+ * see {@link #shows(RadarMode, boolean, ClientConfig.RadarMode)}.
+ * Resources are kept per radar in a {@link Cache}, which releases them when their radar is removed, leaves render range or its level unloads
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public abstract class RadarResource {
+    protected final int resolution;
+
+    private boolean shown = false;
+    private RadarMode shownMode;
+    private boolean shownOriginalColors;
+    private ClientConfig.RadarMode shownDebugMode;
+
+    protected RadarResource(int resolution) {
+        this.resolution = resolution;
+    }
+
+    /**
+     * Checks if the pixels were drawn with the given radar mode and settings, so they do not have to be drawn again
+     * @param mode The {@link RadarMode} of the radar
+     * @param originalColors {@code true} if PMWeather's color tables are used
+     * @param debugMode PMWeather's client radar debugging mode, or {@code null} if debugging is off
+     * @return {@code true} if the resource is up to date
+     * @since 0.16.4.0
+     */
+    public boolean shows(RadarMode mode, boolean originalColors, ClientConfig.RadarMode debugMode) {
+        return shown && shownMode == mode && shownOriginalColors == originalColors && shownDebugMode == debugMode;
+    }
+
+    /**
+     * Marks the resource as showing the given radar mode and settings, after every pixel was drawn
+     * @param mode The {@link RadarMode} of the radar
+     * @param originalColors {@code true} if PMWeather's color tables are used
+     * @param debugMode PMWeather's client radar debugging mode, or {@code null} if debugging is off
+     * @since 0.16.4.0
+     */
+    public void markShown(RadarMode mode, boolean originalColors, ClientConfig.RadarMode debugMode) {
+        this.shown = true;
+        this.shownMode = mode;
+        this.shownOriginalColors = originalColors;
+        this.shownDebugMode = debugMode;
+    }
+
+    /**
+     * Frees the GPU memory of the resource, called once it is no longer used
+     * @since 0.16.4.0
+     */
+    protected abstract void release();
+
+    /**
+     * The {@link RadarResource}s of every rendered radar, created on demand and released when no longer needed
+     * @param <R> The type of resource
+     * @since 0.16.4.0
+     */
+    public static class Cache<R extends RadarResource> {
+        private final Map<RadarBlockEntity, R> resources = new HashMap<>();
+        private final IntFunction<R> factory;
+
+        /**
+         * @param factory Creates a resource for the given resolution
+         * @since 0.16.4.0
+         */
+        public Cache(IntFunction<R> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * Gets the resource of a radar, creating it if needed or if the resolution changed
+         * @param blockEntity The {@link RadarBlockEntity}
+         * @param resolution The current resolution of the radar
+         * @return The resource of the radar
+         * @since 0.16.4.0
+         */
+        public R get(RadarBlockEntity blockEntity, int resolution) {
+            R resource = resources.get(blockEntity);
+            if (resource == null || resource.resolution != resolution) {
+                if (resource != null) resource.release();
+                resource = factory.apply(resolution);
+                resources.put(blockEntity, resource);
+            }
+
+            return resource;
+        }
+
+        /**
+         * Releases the resources of radars that were removed, are in another level, or are further than the given distance
+         * @param level The current {@link Level}
+         * @param camera The position the distance is measured from
+         * @param range The distance beyond which resources are released
+         * @since 0.16.4.0
+         */
+        public void evict(Level level, Vec3 camera, double range) {
+            Iterator<Map.Entry<RadarBlockEntity, R>> iterator = resources.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<RadarBlockEntity, R> entry = iterator.next();
+                RadarBlockEntity blockEntity = entry.getKey();
+                if (blockEntity.isRemoved() || blockEntity.getLevel() != level || camera.distanceTo(blockEntity.getBlockPos().getCenter()) > range) {
+                    entry.getValue().release();
+                    iterator.remove();
+                }
+            }
+        }
+
+        /**
+         * Releases every resource, called when the level unloads
+         * @since 0.16.4.0
+         */
+        public void clear() {
+            resources.values().forEach(RadarResource::release);
+            resources.clear();
+        }
+    }
+}
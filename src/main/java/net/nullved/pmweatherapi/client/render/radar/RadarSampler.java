@@ -0,0 +1,210 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
+import dev.protomanly.pmweather.event.GameBusClientEvents;
+import dev.protomanly.pmweather.weather.Clouds;
+import dev.protomanly.pmweather.weather.Storm;
+import dev.protomanly.pmweather.weather.ThermodynamicEngine;
+import dev.protomanly.pmweather.weather.WindEngine;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec2;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+import org.joml.Vector2f;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples the weather of each pixel of a radar: clouds, wind, storm reflectivity and temperature.
+ * <br><br>
+ * If {@link PMWClientConfig#radarSampling} is {@link PMWClientConfig.RadarSampling#PARALLEL}, which is experimental and off by default,
+ * update frames no longer sample every pixel on the render thread alone.
+ * Instead, {@link #sampleParallel(RadarFrameBuffer, Context)} splits the pixel indices across a dedicated {@link ForkJoinPool} and waits for them.
+ * The samples are not double buffered: the update frame still stalls for as long as the parallel sample takes, only shorter than on one thread.
+ * <br><br>
+ * Sampling reads live PMWeather state: the storms, {@link GameBusClientEvents#weatherHandler} and the client level, through {@link WindEngine},
+ * {@link ThermodynamicEngine} and {@link Clouds}. PMWeather offers no way to copy that state, and all of it is only changed on the client thread,
+ * which also renders. So the render thread blocks until every worker is done, and the workers never read while the client thread changes anything.
+ * That does not make the workers safe from each other: whether these PMWeather code paths are read-only, without lazily filled caches or shared
+ * scratch state, is unknown, and corrupting such state would not throw. This is why {@link PMWClientConfig.RadarSampling#RENDER_THREAD} is the default.
+ * See {@link RadarSweep} for spreading the work across frames instead.
+ * <br><br>
+ * Only the sampling runs on worker threads. Colors, biomes and {@link net.nullved.pmweatherapi.radar.RadarMode}s are still computed on the render thread.
+ * If sampling throws on a worker thread, the frame is sampled again on the render thread, and radars keep sampling there until the game restarts
+ * <br><br>
+ * With {@link PMWClientConfig.RadarSampling#SWEEP}, pixels are instead sampled a few at a time on the render thread, see {@link RadarSweep}
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class RadarSampler {
+    private static final int SPLIT_PIXELS = 512;
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("PMWeatherAPI Radar Sampler " + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }, null, false);
+    private static volatile boolean failed = false;
+
+    /**
+     * Everything needed to sample a radar, captured on the render thread
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @param storms A copy of the storms of the radar
+     * @param resolution The resolution of the radar
+     * @param simSize The size in blocks the radar covers
+     * @param canRender {@code false} if there is no complete WSR-88D nearby and only noise is shown
+     * @since 0.16.4.0
+     */
+    public record Context(RadarBlockEntity blockEntity, List<Storm> storms, int resolution, float simSize, boolean canRender) {}
+
+    /**
+     * Gets how radars are sampled
+     * @return {@link PMWClientConfig#radarSampling}, or {@link PMWClientConfig.RadarSampling#RENDER_THREAD} instead of
+     * {@link PMWClientConfig.RadarSampling#PARALLEL} if sampling on worker threads failed
+     * @since 0.16.4.0
+     */
+    public static PMWClientConfig.RadarSampling mode() {
+        PMWClientConfig.RadarSampling mode = PMWClientConfig.radarSampling;
+        return mode == PMWClientConfig.RadarSampling.PARALLEL && failed ? PMWClientConfig.RadarSampling.RENDER_THREAD : mode;
+    }
+
+    /**
+     * Samples every pixel of a radar on the current thread, into its samples
+     * @param frame The {@link RadarFrameBuffer} of the radar
+     * @param context The {@link Context} to sample with
+     * @since 0.16.4.0
+     */
+    public static void sample(RadarFrameBuffer frame, Context context) {
+        RadarFrameBuffer.Samples samples = frame.samples();
+        samples.setCanRender(context.canRender());
+        for (int pidx = 0; pidx < frame.size(); pidx++) sample(context, samples, pidx);
+    }
+
+    /**
+     * Samples every pixel of a radar on worker threads, into its samples, and waits until they are done.
+     * Must be called on the render thread, so nothing the workers read changes while they sample
+     * @param frame The {@link RadarFrameBuffer} of the radar
+     * @param context The {@link Context} to sample with
+     * @since 0.16.4.0
+     */
+    public static void sampleParallel(RadarFrameBuffer frame, Context context) {
+        RadarFrameBuffer.Samples samples = frame.samples();
+        samples.setCanRender(context.canRender());
+
+        try {
+            POOL.invoke(new SampleTask(context, samples, 0, frame.size()));
+        } catch (Throwable t) {
+            failed = true;
+            PMWeatherAPI.LOGGER.warn("Radar sampling failed on a worker thread, sampling on the render thread from now on", t);
+            sample(frame, context);
+        }
+    }
+
+    /**
+     * Samples one pixel of a radar on the current thread
+     * @param context The {@link Context} to sample with
+     * @param samples The {@link RadarFrameBuffer.Samples} to write into
+     * @param pidx The index of the pixel
+     * @since 0.16.4.0
+     */
+    public static void sample(Context context, RadarFrameBuffer.Samples samples, int pidx) {
+        sampleRange(context, samples, pidx, pidx + 1);
+    }
+
+    private static void sampleRange(Context context, RadarFrameBuffer.Samples samples, int from, int to) {
+        RadarBlockEntity blockEntity = context.blockEntity();
+        Level level = blockEntity.getLevel();
+        int resolution = context.resolution();
+        float invResolution = 1.0F / resolution;
+        double centerX = blockEntity.getBlockPos().getX() + 0.5D;
+        double centerZ = blockEntity.getBlockPos().getZ() + 0.5D;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        for (int pidx = from; pidx < to; pidx++) {
+            int x = pidx / (2 * resolution + 1) - resolution;
+            int z = pidx % (2 * resolution + 1) - resolution;
+            double wx = (float) (x * invResolution * context.simSize() + centerX);
+            double wz = (float) (z * invResolution * context.simSize() + centerZ);
+            Vec3 worldpos = new Vec3(wx, 0, wz);
+
+            float clouds = Clouds.getCloudDensity(GameBusClientEvents.weatherHandler, new Vector2f((float) wx, (float) wz), 0.0F);
+
+            float dbz = 0.0F;
+            float temp;
+            Vec2 f = (new Vec2((float) x, (float) z)).normalized();
+            Vec3 wind = WindEngine.getWind(new Vec3(wx, level.getMaxBuildHeight() + 1, wz), level, false, false, false);
+            Vec2 w = new Vec2((float) wind.x, (float) wind.z);
+            float vel = f.dot(w);
+
+            for (Storm storm : context.storms()) {
+                dbz = getDBZForStorm(blockEntity, storm, worldpos, dbz);
+            }
+
+            float v = Math.max(clouds - 0.15F, 0.0F) * 4.0F;
+            if (v > 0.3F) {
+                float dif = (v - 0.4F) / 1.5F;
+                v -= dif;
+            }
+
+            dbz = Math.max(dbz, v);
+            dbz += (random.nextFloat() - 0.5F) * 5.0F / 60.0F;
+            vel += (random.nextFloat() - 0.5F) * 3.0F;
+            if (dbz > 1.0F) {
+                dbz = (dbz - 1.0F) / 3.0F + 1.0F;
+            }
+
+            if (!context.canRender()) {
+                dbz = random.nextFloat() * 1.2F;
+                vel = (random.nextFloat() - 0.5F) * 300.0F;
+                temp = 15.0F;
+            } else {
+                temp = ThermodynamicEngine.samplePoint(GameBusClientEvents.weatherHandler, worldpos, level, blockEntity, 0).temperature();
+            }
+
+            samples.set(pidx, dbz, temp, vel);
+        }
+    }
+
+    private static float getDBZForStorm(RadarBlockEntity radarBlockEntity, Storm storm, Vec3 worldpos, float dbz) {
+        if (!storm.visualOnly && storm.hasRadarRepresentation()) {
+            double renderRange = storm.getRadarRenderRange();
+            double dist = storm.position.multiply(1.0F, 0.0F, 1.0F).distanceTo(worldpos);
+
+            if (dist < renderRange) return Math.max(dbz, storm.getRadarReflectivityReturn(radarBlockEntity, worldpos));
+        }
+
+        return dbz;
+    }
+
+    private static class SampleTask extends RecursiveAction {
+        private final Context context;
+        private final RadarFrameBuffer.Samples samples;
+        private final int from, to;
+
+        private SampleTask(Context context, RadarFrameBuffer.Samples samples, int from, int to) {
+            this.context = context;
+            this.samples = samples;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_PIXELS) {
+                sampleRange(context, samples, from, to);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new SampleTask(context, samples, from, mid), new SampleTask(context, samples, mid, to));
+        }
+    }
+}
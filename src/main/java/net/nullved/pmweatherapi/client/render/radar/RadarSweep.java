@@ -0,0 +1,170 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.util.Mth;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+
+/**
+ * Samples a radar progressively, a slice of pixels per frame, used if {@link PMWClientConfig#radarSampling} is
+ * {@link PMWClientConfig.RadarSampling#SWEEP}.
+ * <br><br>
+ * Pixels are sampled in the order of their angle around the radar, clockwise from north, like the beam of a real WSR-88D.
+ * Each frame, {@link #step(float, int)} samples the pixels the beam passed since the last frame, so a full scan takes the
+ * {@link #WINDOW_TICKS} ticks between two updates, but never spends more than the given time budget.
+ * A sweep that fell behind is not finished at once when the next one starts: the beam carries on from where it stopped with the newer data,
+ * so frame times stay flat and the beam only turns slower.
+ * <br><br>
+ * Samples are written straight into the {@link RadarFrameBuffer.Samples}, and only the pixels sampled on a frame have to be recolored,
+ * see {@link #sweptCount()} and {@link #isSwept(int)}
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class RadarSweep {
+    private static final Int2ObjectOpenHashMap<int[]> ORDERS = new Int2ObjectOpenHashMap<>();
+    private static final int CHECK_PIXELS = 16;
+
+    /**
+     * The amount of ticks between two radar updates, and so the duration of a full sweep
+     * @since 0.16.4.0
+     */
+    public static final int WINDOW_TICKS = 60;
+
+    private final RadarFrameBuffer frame;
+    private final int[] order;
+    private final int[] stamps;
+    private int stamp = 0;
+
+    private RadarSampler.Context context = null;
+    private float startTick;
+    private int cursor = 0;
+    private int done = 0;
+    private int sliceStart = 0;
+    private int sliceLength = 0;
+
+    RadarSweep(RadarFrameBuffer frame) {
+        this.frame = frame;
+        this.order = order(frame.resolution());
+        this.stamps = new int[frame.size()];
+    }
+
+    /**
+     * Gets the pixel indices of a radar sorted by angle, clockwise from north, and by distance from the radar
+     * @param resolution The resolution of the radar
+     * @return The sorted pixel indices, shared by every radar of that resolution
+     * @since 0.16.4.0
+     */
+    public static int[] order(int resolution) {
+        return ORDERS.computeIfAbsent(resolution, r -> {
+            int width = 2 * r + 1;
+            int size = width * width;
+            float[] angles = new float[size];
+            int[] distances = new int[size];
+            int[] order = new int[size];
+
+            for (int pidx = 0; pidx < size; pidx++) {
+                int x = pidx / width - r;
+                int z = pidx % width - r;
+                float angle = (float) Math.atan2(x, -z);
+                angles[pidx] = angle < 0.0F ? angle + (float) (2.0D * Math.PI) : angle;
+                distances[pidx] = x * x + z * z;
+                order[pidx] = pidx;
+            }
+
+            IntArrays.quickSort(order, (a, b) -> {
+                int cmp = Float.compare(angles[a], angles[b]);
+                return cmp != 0 ? cmp : Integer.compare(distances[a], distances[b]);
+            });
+
+            return order;
+        });
+    }
+
+    /**
+     * Starts a new sweep from where the beam is. Pixels the previous sweep did not reach yet are sampled by this one, with the newer data
+     * @param context The {@link RadarSampler.Context} to sample with
+     * @param tick The current tick of the radar, with partial ticks
+     * @since 0.16.4.0
+     */
+    public void start(RadarSampler.Context context, float tick) {
+        this.context = context;
+        this.startTick = tick;
+        this.done = 0;
+        frame.samples().setCanRender(context.canRender());
+    }
+
+    /**
+     * Samples the pixels the sweep passed since the last frame, until the time budget is spent. Called once per frame
+     * @param tick The current tick of the radar, with partial ticks
+     * @param budgetMicros The time in microseconds this frame may spend sampling
+     * @return {@code true} if any pixel was sampled, and the pixels for which {@link #isSwept(int)} is {@code true} have to be recolored
+     * @since 0.16.4.0
+     */
+    public boolean step(float tick, int budgetMicros) {
+        stamp++;
+        sliceStart = cursor;
+        sliceLength = 0;
+        if (context == null) return false;
+
+        float progress = Mth.clamp((tick - startTick) / WINDOW_TICKS, 0.0F, 1.0F);
+        int target = (int) Math.ceil(order.length * progress);
+        long deadline = System.nanoTime() + budgetMicros * 1000L;
+
+        RadarFrameBuffer.Samples samples = frame.samples();
+        while (done < target) {
+            int end = Math.min(target, done + CHECK_PIXELS);
+            for (; done < end; done++) {
+                int pidx = order[cursor];
+                RadarSampler.sample(context, samples, pidx);
+                stamps[pidx] = stamp;
+                cursor = cursor + 1 == order.length ? 0 : cursor + 1;
+                sliceLength++;
+            }
+
+            if (System.nanoTime() > deadline) break;
+        }
+
+        if (done >= order.length) context = null;
+        return sliceLength > 0;
+    }
+
+    /**
+     * @return The amount of pixels sampled on this frame
+     * @since 0.16.4.0
+     */
+    public int sweptCount() {
+        return sliceLength;
+    }
+
+    /**
+     * Gets a pixel sampled on this frame
+     * @param i The index of the pixel among the pixels sampled on this frame, from {@code 0} to {@link #sweptCount()}
+     * @return The index of the pixel in the radar
+     * @since 0.16.4.0
+     */
+    public int swept(int i) {
+        int index = sliceStart + i;
+        return order[index >= order.length ? index - order.length : index];
+    }
+
+    /**
+     * Checks if a pixel was sampled on this frame
+     * @param pidx The index of the pixel
+     * @return {@code true} if the pixel has to be recolored
+     * @since 0.16.4.0
+     */
+    public boolean isSwept(int pidx) {
+        return stamps[pidx] == stamp;
+    }
+
+    /**
+     * @return {@code true} if the sweep has not reached every pixel yet
+     * @since 0.16.4.0
+     */
+    public boolean isSweeping() {
+        return context != null;
+    }
+}
@@ -0,0 +1,131 @@
+package net.nullved.pmweatherapi.client.render.radar;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.LightTexture;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.FastColor;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.api.distmarker.Dist;
+import net.neoforged.api.distmarker.OnlyIn;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.config.PMWClientConfig;
+
+/**
+ * A radar drawn as one textured quad instead of one quad per pixel, used if {@link PMWClientConfig#radarRenderMode} is
+ * {@link PMWClientConfig.RadarRenderMode#TEXTURE}.
+ * <br><br>
+ * Each pixel of the radar is one texel of a {@link DynamicTexture}. Pixel colors are only computed, and the texture only uploaded,
+ * on update frames or when what the radar shows changes. Other frames draw four vertices, whatever the resolution.
+ * <br><br>
+ * Textures hold GPU memory, so they are released when their radar is removed, leaves render range or its level unloads,
+ * see {@link #evict(Level, Vec3, double)}
+ *
+ * @since 0.16.4.0
+ */
+@OnlyIn(Dist.CLIENT)
+public class RadarTexture extends RadarResource {
+    private static final Cache<RadarTexture> TEXTURES = new Cache<>(RadarTexture::new);
+    private static int nextId = 0;
+
+    private final int width;
+    private final DynamicTexture texture;
+    private final ResourceLocation location;
+    private final RenderType renderType;
+    private boolean dirty = false;
+
+    private RadarTexture(int resolution) {
+        super(resolution);
+        this.width = 2 * resolution + 1;
+        this.texture = new DynamicTexture(width, width, false);
+        this.location = PMWeatherAPI.rl("radar/" + nextId++);
+        this.renderType = RadarRenderTypes.radarTexture(location);
+
+        Minecraft.getInstance().getTextureManager().register(location, texture);
+    }
+
+    /**
+     * Gets the texture of a radar, creating it if needed or if the resolution changed
+     * @param blockEntity The {@link RadarBlockEntity}
+     * @param resolution The current resolution of the radar
+     * @return The {@link RadarTexture} of the radar
+     * @since 0.16.4.0
+     */
+    public static RadarTexture of(RadarBlockEntity blockEntity, int resolution) {
+        return TEXTURES.get(blockEntity, resolution);
+    }
+
+    /**
+     * Releases the textures of radars that were removed, are in another level, or are further than the given distance
+     * @param level The current {@link Level}
+     * @param camera The position the distance is measured from
+     * @param range The distance beyond which textures are released
+     * @since 0.16.4.0
+     */
+    public static void evict(Level level, Vec3 camera, double range) {
+        TEXTURES.evict(level, camera, range);
+    }
+
+    /**
+     * Releases every texture, called when the level unloads
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        TEXTURES.clear();
+    }
+
+    /**
+     * Sets the color of a pixel. The texture is uploaded the next time it is drawn
+     * @param pidx The index of the pixel, see {@link RadarFrameBuffer#index(int, int, int)}
+     * @param color The ARGB color. The radar is drawn opaque, so the alpha is ignored
+     * @since 0.16.4.0
+     */
+    public void set(int pidx, int color) {
+        int abgr = FastColor.ABGR32.fromArgb32(0xFF000000 | color);
+        NativeImage pixels = texture.getPixels();
+        if (pixels.getPixelRGBA(pidx / width, pidx % width) != abgr) {
+            pixels.setPixelRGBA(pidx / width, pidx % width, abgr);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Draws the texture as one quad centered on the current pose, uploading it first if any pixel changed
+     * @param poseStack The {@link PoseStack} to draw with
+     * @param multiBufferSource The {@link MultiBufferSource}
+     * @param halfSize Half the width of the quad, in blocks
+     * @since 0.16.4.0
+     */
+    public void render(PoseStack poseStack, MultiBufferSource multiBufferSource, float halfSize) {
+        if (dirty) {
+            texture.upload();
+            dirty = false;
+        }
+
+        PoseStack.Pose pose = poseStack.last();
+        VertexConsumer vc = multiBufferSource.getBuffer(renderType);
+        vertex(vc, pose, -halfSize, -halfSize, 0.0F, 0.0F);
+        vertex(vc, pose, -halfSize, halfSize, 0.0F, 1.0F);
+        vertex(vc, pose, halfSize, halfSize, 1.0F, 1.0F);
+        vertex(vc, pose, halfSize, -halfSize, 1.0F, 0.0F);
+    }
+
+    private static void vertex(VertexConsumer vc, PoseStack.Pose pose, float x, float z, float u, float v) {
+        vc.addVertex(pose.pose(), x, 0.0F, z)
+            .setColor(0xFFFFFFFF)
+            .setUv(u, v)
+            .setLight(LightTexture.FULL_BRIGHT);
+    }
+
+    @Override
+    protected void release() {
+        Minecraft.getInstance().getTextureManager().release(location);
+    }
+}
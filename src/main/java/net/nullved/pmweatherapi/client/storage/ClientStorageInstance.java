@@ -6,6 +6,7 @@ import net.nullved.pmweatherapi.PMWeatherAPI;
 import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.client.data.PMWClientStorages;
 import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.StorageOptions;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 
@@ -26,18 +27,28 @@ public class ClientStorageInstance<D extends IStorageData, C extends IClientStor
     private final ResourceLocation id;
     private final Class<C> clazz;
     private final Function<ClientLevel, C> creator;
+    private final StorageOptions options;
     private C storage;
 
     public ClientStorageInstance(ResourceLocation id, Class<C> clazz, Function<ClientLevel, C> creator) {
+        this(id, clazz, creator, StorageOptions.defaults());
+    }
+
+    public ClientStorageInstance(ResourceLocation id, Class<C> clazz, Function<ClientLevel, C> creator, StorageOptions options) {
         this.id = id;
         this.clazz = clazz;
         this.creator = creator;
+        this.options = options;
     }
 
     public ResourceLocation id() {
         return id;
     }
 
+    public StorageOptions options() {
+        return options;
+    }
+
     public C get() {
         return storage;
     }
@@ -49,7 +60,7 @@ public class ClientStorageInstance<D extends IStorageData, C extends IClientStor
     public <F extends IStorageData, O extends IClientStorage<F>> Optional<ClientStorageInstance<F, O>> cast(Class<O> oclazz) {
         if (oclazz.isAssignableFrom(clazz)) {
             @SuppressWarnings("unchecked")
-            ClientStorageInstance<F, O> casted = new ClientStorageInstance<>(id(), oclazz, cl -> (O) creator.apply(cl));
+            ClientStorageInstance<F, O> casted = new ClientStorageInstance<>(id(), oclazz, cl -> (O) creator.apply(cl), options);
 
             try {
                 casted.set((O) storage);
@@ -62,7 +73,9 @@ public class ClientStorageInstance<D extends IStorageData, C extends IClientStor
     }
 
     public void load(ClientLevel level) {
-        storage = creator.apply(level);
+        C created = creator.apply(level);
+        created.configure(options);
+        storage = created;
     }
 
     public void clear() {
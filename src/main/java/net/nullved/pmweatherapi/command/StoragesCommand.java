@@ -20,15 +20,24 @@ import net.nullved.pmweatherapi.storage.IServerStorage;
 import net.nullved.pmweatherapi.storage.IStorage;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncStats;
 import net.nullved.pmweatherapi.util.PMWUtils;
 
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.BiFunction;
 
 public class StoragesCommand {
     public static void register(CommandDispatcher<CommandSourceStack> dispatcher) {
         dispatcher.register(
             Commands.literal("storages")
+                .then(Commands.literal("stats")
+                    .requires(src -> src.hasPermission(2))
+                    .then(Commands.literal("reset")
+                        .executes(StoragesCommand::statsReset))
+                    .executes(StoragesCommand::stats))
                 .then(Commands.argument("storage", ResourceLocationArgument.id())
                     .suggests((ctx, builder) -> {
                         PMWStorages.getAll().forEach(si -> builder.suggest(si.id().toString()));
@@ -53,6 +62,43 @@ public class StoragesCommand {
         );
     }
 
+    private static int stats(CommandContext<CommandSourceStack> ctx) {
+        StorageSyncStats.Counter total = StorageSyncStats.total();
+        StringBuilder sb = new StringBuilder("Storage syncs (rates over the last ").append(StorageSyncStats.WINDOW_SECONDS).append("s)\nTotal: ").append(describe(total));
+
+        sb.append("\nBy storage:");
+        for (Map.Entry<StorageSyncStats.Key, StorageSyncStats.Counter> entry : StorageSyncStats.byStorage()) {
+            StorageSyncStats.Key key = entry.getKey();
+            sb.append("\n  ").append(key.storage()).append(" ").append(key.dimension() == null ? "*" : key.dimension()).append(" ").append(key.operation())
+                .append(": ").append(describe(entry.getValue()));
+        }
+
+        sb.append("\nBy player:");
+        for (Map.Entry<UUID, StorageSyncStats.Counter> entry : StorageSyncStats.byPlayer()) {
+            sb.append("\n  ").append(StorageSyncStats.playerName(entry.getKey())).append(": ").append(describe(entry.getValue()));
+        }
+
+        ctx.getSource().sendSystemMessage(Component.literal(sb.toString()).withColor(ChatFormatting.GOLD.getColor()));
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static int statsReset(CommandContext<CommandSourceStack> ctx) {
+        StorageSyncStats.reset();
+        ctx.getSource().sendSystemMessage(Component.literal("Reset storage sync stats").withColor(ChatFormatting.GOLD.getColor()));
+        return Command.SINGLE_SUCCESS;
+    }
+
+    private static String describe(StorageSyncStats.Counter counter) {
+        return String.format(Locale.ROOT, "%d packets, %d entries, %s (%.1f packets/s, %.1f entries/s, %s/s)",
+            counter.packets(), counter.entries(), bytes(counter.bytes()), counter.packetsPerSecond(), counter.entriesPerSecond(), bytes(counter.bytesPerSecond()));
+    }
+
+    private static String bytes(double bytes) {
+        if (bytes >= 1024 * 1024) return String.format(Locale.ROOT, "%.2f MiB", bytes / (1024 * 1024));
+        if (bytes >= 1024) return String.format(Locale.ROOT, "%.2f KiB", bytes / 1024);
+        return String.format(Locale.ROOT, "%.0f B", bytes);
+    }
+
     private static <D extends IStorageData> int clientAll(CommandContext<CommandSourceStack> ctx) {
         BiFunction<IStorage<D>, Player, Set<D>> func;
         try {
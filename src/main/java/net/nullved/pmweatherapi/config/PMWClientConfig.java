@@ -31,6 +31,16 @@ public class PMWClientConfig {
     public static boolean showRadarModeId;
     private static final ModConfigSpec.EnumValue<RadarModeIDSide> RADAR_MODE_ID_SIDE;
     public static RadarModeIDSide radarModeIDSide;
+    private static final ModConfigSpec.EnumValue<RadarRenderMode> RADAR_RENDER_MODE;
+    public static RadarRenderMode radarRenderMode;
+    private static final ModConfigSpec.EnumValue<RadarSampling> RADAR_SAMPLING;
+    public static RadarSampling radarSampling;
+    private static final ModConfigSpec.IntValue RADAR_SWEEP_MICROS_PER_FRAME;
+    public static int radarSweepMicrosPerFrame;
+    private static final ModConfigSpec.BooleanValue CACHE_STORAGES;
+    public static boolean cacheStorages;
+    private static final ModConfigSpec.IntValue SYNC_APPLY_MICROS_PER_FRAME;
+    public static int syncApplyMicrosPerFrame;
     private static final ModConfigSpec.BooleanValue DEBUG;
     public static boolean debug;
     public static final ModConfigSpec SPEC;
@@ -47,6 +57,11 @@ public class PMWClientConfig {
             disableOverlaysWhenDebugging = DISABLE_OVERLAYS_WHEN_DEBUGGING.getAsBoolean();
             showRadarModeId = SHOW_RADAR_MODE_ID.getAsBoolean();
             radarModeIDSide = RADAR_MODE_ID_SIDE.get();
+            radarRenderMode = RADAR_RENDER_MODE.get();
+            radarSampling = RADAR_SAMPLING.get();
+            radarSweepMicrosPerFrame = RADAR_SWEEP_MICROS_PER_FRAME.getAsInt();
+            cacheStorages = CACHE_STORAGES.getAsBoolean();
+            syncApplyMicrosPerFrame = SYNC_APPLY_MICROS_PER_FRAME.getAsInt();
             debug = DEBUG.getAsBoolean();
         }
 
@@ -67,10 +82,27 @@ public class PMWClientConfig {
         DISABLE_OVERLAYS_WHEN_DEBUGGING = BUILDER.comment("Disables all overlays when client radar debugging is on").define("disable_overlays_when_debugging", true);
         SHOW_RADAR_MODE_ID = BUILDER.comment("Shows the radar mode ID").define("show_radar_mode_id", false);
         RADAR_MODE_ID_SIDE = BUILDER.comment("The side to render the radar mode ID on").defineEnum("radar_mode_id_side", RadarModeIDSide.NORTH);
+        RADAR_RENDER_MODE = BUILDER.comment("How radar pixels are drawn. QUADS draws one quad per pixel every frame, BAKED draws the same quads from a GPU buffer that is only rebuilt when the radar updates, TEXTURE draws one texture that is only updated when the radar updates").defineEnum("radar_render_mode", RadarRenderMode.QUADS);
+        RADAR_SAMPLING = BUILDER.comment("How the weather shown on radars is sampled every 60 ticks. RENDER_THREAD samples every pixel at once on the render thread. PARALLEL is experimental: it samples on worker threads, but update frames still stall until they finish, and PMWeather is not known to be safe to read from several threads at once. SWEEP samples a few pixels each frame in a sweep around the radar").defineEnum("radar_sampling", RadarSampling.RENDER_THREAD);
+        RADAR_SWEEP_MICROS_PER_FRAME = BUILDER.comment("The time in microseconds each frame may spend sampling radar pixels when radar_sampling is SWEEP. Sweeps that fall behind carry on into the next one").defineInRange("radar_sweep_micros_per_frame", 1000, 50, 100000);
+        CACHE_STORAGES = BUILDER.comment("Keeps a copy of each server's storages on disk, so rejoining only downloads what changed").define("cache_storages", true);
+        SYNC_APPLY_MICROS_PER_FRAME = BUILDER.comment("The time in microseconds each frame may spend applying received storage data. Larger syncs are spread over several frames").defineInRange("sync_apply_micros_per_frame", 2000, 100, 100000);
         DEBUG = BUILDER.comment("Used for debugging").define("debug", false);
         SPEC = BUILDER.build();
     }
 
+    public enum RadarRenderMode {
+        QUADS,
+        BAKED,
+        TEXTURE
+    }
+
+    public enum RadarSampling {
+        RENDER_THREAD,
+        PARALLEL,
+        SWEEP
+    }
+
     public enum RadarModeIDSide {
         NORTH(0, -1, -1),
         EAST(90, 2, -1),
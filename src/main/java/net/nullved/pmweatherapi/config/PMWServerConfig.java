@@ -0,0 +1,48 @@
+package net.nullved.pmweatherapi.config;
+
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.fml.event.config.ModConfigEvent;
+import net.neoforged.neoforge.common.ModConfigSpec;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+
+@EventBusSubscriber(modid = PMWeatherAPI.MODID, bus = EventBusSubscriber.Bus.MOD)
+public class PMWServerConfig {
+    private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
+
+    // STORAGE RECONCILIATION OPTIONS
+    private static final ModConfigSpec.BooleanValue RECONCILE_STORAGES;
+    public static boolean reconcileStorages = true;
+    private static final ModConfigSpec.IntValue RECONCILE_INTERVAL_SECONDS;
+    public static int reconcileIntervalSeconds = 30;
+    private static final ModConfigSpec.IntValue RECONCILE_BUDGET_MICROS;
+    public static int reconcileBudgetMicros = 500;
+
+    // STORAGE SYNC OPTIONS
+    private static final ModConfigSpec.IntValue SYNC_MARGIN_CHUNKS;
+    public static int syncMarginChunks = 128;
+    private static final ModConfigSpec.IntValue SYNC_BYTES_PER_TICK;
+    public static int syncBytesPerTick = 65536;
+    public static final ModConfigSpec SPEC;
+
+    @SubscribeEvent
+    private static void onLoad(ModConfigEvent event) {
+        if (event.getConfig().getSpec() == SPEC && !(event instanceof ModConfigEvent.Unloading)) {
+            PMWeatherAPI.LOGGER.info("Loading Server PMWeatherAPI Configs");
+            reconcileStorages = RECONCILE_STORAGES.getAsBoolean();
+            reconcileIntervalSeconds = RECONCILE_INTERVAL_SECONDS.getAsInt();
+            reconcileBudgetMicros = RECONCILE_BUDGET_MICROS.getAsInt();
+            syncMarginChunks = SYNC_MARGIN_CHUNKS.getAsInt();
+            syncBytesPerTick = SYNC_BYTES_PER_TICK.getAsInt();
+        }
+    }
+
+    static {
+        RECONCILE_STORAGES = BUILDER.comment("Re-scans the block entities of chunks sent to players, fixing storages that missed blocks changed without a block update").define("reconcile_storages", true);
+        RECONCILE_INTERVAL_SECONDS = BUILDER.comment("The minimum time in seconds before the same chunk is re-scanned").defineInRange("reconcile_interval_seconds", 30, 1, 3600);
+        RECONCILE_BUDGET_MICROS = BUILDER.comment("The time in microseconds re-scanning chunks may take each tick. At least one chunk is scanned per tick while any are queued").defineInRange("reconcile_budget_micros", 500, 0, 50000);
+        SYNC_MARGIN_CHUNKS = BUILDER.comment("How many chunks past the chunks a player tracks radars, metars and WSRs are synced to them. The default covers the 2048 block radar range, use 512 for radars with the range upgrade").defineInRange("sync_margin_chunks", 128, 0, 1024);
+        SYNC_BYTES_PER_TICK = BUILDER.comment("How many bytes of full storage syncs are sent to each player per tick when they join or change dimension. At least one page is sent per tick").defineInRange("sync_bytes_per_tick", 65536, 1024, 16777216);
+        SPEC = BUILDER.build();
+    }
+}
@@ -0,0 +1,146 @@
+package net.nullved.pmweatherapi.data;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.storage.IStorage;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link IStorage} saves to disk on a background thread.
+ * <br><br>
+ * The server thread only builds the {@link CompoundTag} snapshot, which must not be modified afterward.
+ * Encoding, compressing and writing happen on a single background thread.
+ * Each file is written to a temporary file first and then moved into place, so a crash never leaves a half-written file.
+ * <br><br>
+ * Writes of the same file never run at the same time. If a file is saved again before its previous write has started,
+ * the queued write is replaced with the newer snapshot. If it is saved while being written, the newer snapshot is written right after.
+ * The queue is bounded, so a slow disk makes the server thread write the file itself instead of queueing snapshots without limit.
+ *
+ * @since 0.16.4.0
+ */
+public class AsyncStorageWriter {
+    private static final int QUEUE_SIZE = 8;
+    private static final Map<Path, FileWrites> PENDING = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+        Thread thread = new Thread(runnable, "PMWeatherAPI Storage Writer");
+        thread.setDaemon(true);
+        return thread;
+    }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * Queues a {@link CompoundTag} to be written to a file
+     * @param file The {@link Path} to write to
+     * @param tag The {@link CompoundTag} to write, or {@code null} to delete the file.
+     *            It must not be modified after being queued
+     * @since 0.16.4.0
+     */
+    public static void write(Path file, CompoundTag tag) {
+        FileWrites writes;
+        synchronized (PENDING) {
+            writes = PENDING.computeIfAbsent(file, FileWrites::new);
+            writes.next = tag;
+            writes.hasNext = true;
+
+            // A write of this file is already queued or running, and will pick up the new snapshot
+            if (writes.scheduled) return;
+            writes.scheduled = true;
+        }
+
+        // Outside the lock, as a full queue runs the write on this thread
+        EXECUTOR.execute(writes);
+    }
+
+    /**
+     * Waits until the queued writes of a file, if any, have finished
+     * @param file The {@link Path} of the file
+     * @since 0.16.4.0
+     */
+    public static void await(Path file) {
+        FileWrites writes = PENDING.get(file);
+        if (writes != null) writes.done.join();
+    }
+
+    /**
+     * Waits until every queued write has finished.
+     * Called when a dimension unloads and when the server stops
+     * @since 0.16.4.0
+     */
+    public static void flush() {
+        CompletableFuture.allOf(PENDING.values().stream().map(writes -> writes.done).toArray(CompletableFuture[]::new)).join();
+    }
+
+    private static void writeAtomically(Path file, CompoundTag tag) throws IOException {
+        if (tag == null) {
+            Files.deleteIfExists(file);
+            return;
+        }
+
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+
+        try {
+            NbtIo.writeCompressed(tag, temp);
+
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The writes of one file. At most one is queued or running at a time, and it keeps writing the newest snapshot until none is left
+     */
+    private static class FileWrites implements Runnable {
+        private final Path file;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private CompoundTag next;
+        private boolean hasNext = false;
+        private boolean scheduled = false;
+
+        private FileWrites(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                CompoundTag snapshot;
+                synchronized (PENDING) {
+                    if (!hasNext) {
+                        scheduled = false;
+                        PENDING.remove(file, this);
+                        break;
+                    }
+
+                    snapshot = next;
+                    next = null;
+                    hasNext = false;
+                }
+
+                try {
+                    writeAtomically(file, snapshot);
+                } catch (IOException | RuntimeException e) {
+                    PMWeatherAPI.LOGGER.error("Could not save storage file {}: {}", file, e.getMessage());
+                }
+            }
+
+            done.complete(null);
+        }
+    }
+}
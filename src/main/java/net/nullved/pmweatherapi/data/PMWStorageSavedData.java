@@ -2,10 +2,13 @@ package net.nullved.pmweatherapi.data;
 
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtUtils;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.saveddata.SavedData;
 import net.nullved.pmweatherapi.storage.IStorage;
 
+import java.io.File;
+
 /**
  * A {@link SavedData} instance for {@link IStorage}s
  *
@@ -41,6 +44,24 @@ public class PMWStorageSavedData extends SavedData {
         return storage.save(compoundTag);
     }
 
+    /**
+     * Builds the save snapshot on the calling thread and queues it on the {@link AsyncStorageWriter}
+     * instead of writing the file while the server waits
+     * @param file The {@link File} to save to
+     * @param provider The registry {@link HolderLookup.Provider}
+     * @since 0.16.4.0
+     */
+    @Override
+    public void save(File file, HolderLookup.Provider provider) {
+        if (!isDirty()) return;
+
+        CompoundTag root = new CompoundTag();
+        root.put("data", save(new CompoundTag(), provider));
+        NbtUtils.addCurrentDataVersion(root);
+        AsyncStorageWriter.write(file.toPath(), root);
+        setDirty(false);
+    }
+
     /**
      * Sets the {@link IStorage} associated with this {@link Level} or dimension
      * @param storage The {@link IStorage}
@@ -59,8 +80,14 @@ public class PMWStorageSavedData extends SavedData {
         return tag;
     }
 
+    /**
+     * Whether the {@link IStorage} has changed since it was last saved.
+     * Clean storages are not written at all
+     * @return {@code true} if the {@link IStorage} needs to be saved
+     * @since 0.15.3.3
+     */
     @Override
     public boolean isDirty() {
-        return true;
+        return storage != null && storage.isDirty();
     }
 }
@@ -11,6 +11,7 @@ import net.nullved.pmweatherapi.metar.MetarStorageData;
 import net.nullved.pmweatherapi.radar.storage.*;
 import net.nullved.pmweatherapi.storage.IServerStorage;
 import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.StorageOptions;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 
@@ -145,7 +146,22 @@ public class PMWStorages {
      * @since 0.15.3.3
      */
     public static <D extends IStorageData, S extends IServerStorage<D>> void registerStorage(ResourceLocation id, Class<S> clazz, Function<ServerLevel, S> creator) {
-        StorageInstance<D, S> instance = new StorageInstance<>(id, clazz, creator);
+        registerStorage(id, clazz, creator, StorageOptions.defaults());
+    }
+
+    /**
+     * Register a new {@link IServerStorage} with the given {@link StorageOptions}.
+     * For example, use {@link StorageOptions#concurrent()} if the storage will be read from other threads
+     * @param id The {@link ResourceLocation} to save this {@link IServerStorage} as
+     * @param clazz The {@link Class} of the {@link IServerStorage}
+     * @param creator A function creating another {@link IServerStorage} for the given {@link ServerLevel}
+     * @param options The {@link StorageOptions} to apply to each created {@link IServerStorage}
+     * @param <D> The {@link IStorageData} of the {@link IServerStorage}
+     * @param <S> The {@link IServerStorage}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData, S extends IServerStorage<D>> void registerStorage(ResourceLocation id, Class<S> clazz, Function<ServerLevel, S> creator, StorageOptions options) {
+        StorageInstance<D, S> instance = new StorageInstance<>(id, clazz, creator, options);
         STORAGE_INSTANCES.put(id, instance);
     }
 }
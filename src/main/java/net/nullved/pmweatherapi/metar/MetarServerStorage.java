@@ -1,15 +1,25 @@
 package net.nullved.pmweatherapi.metar;
 
 import dev.protomanly.pmweather.block.MetarBlock;
+import dev.protomanly.pmweather.event.GameBusEvents;
+import dev.protomanly.pmweather.weather.Sounding;
+import dev.protomanly.pmweather.weather.ThermodynamicEngine;
+import dev.protomanly.pmweather.weather.WeatherHandler;
+import dev.protomanly.pmweather.weather.WindEngine;
+import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
 import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.client.metar.MetarClientStorage;
 import net.nullved.pmweatherapi.data.PMWStorages;
 import net.nullved.pmweatherapi.network.S2CMetarPacket;
 import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
 import net.nullved.pmweatherapi.storage.IServerStorage;
 import net.nullved.pmweatherapi.storage.ISyncServerStorage;
+import net.nullved.pmweatherapi.storage.reconcile.IBlockTracker;
 
 /**
  * {@link IServerStorage} for {@link MetarBlock}s
@@ -21,6 +31,12 @@ import net.nullved.pmweatherapi.storage.ISyncServerStorage;
  * @see MetarClientStorage
  */
 public class MetarServerStorage extends MetarStorage implements ISyncServerStorage<MetarStorageData> {
+    /**
+     * The {@link IBlockTracker} for {@link MetarBlock}s
+     * @since 0.16.4.0
+     */
+    public static final IBlockTracker<MetarStorageData> TRACKER = IBlockTracker.of(state -> state.getBlock() instanceof MetarBlock, (level, pos, state) -> sample(level, pos));
+
     private final ServerLevel level;
 
     public MetarServerStorage(ServerLevel level) {
@@ -37,4 +53,36 @@ public class MetarServerStorage extends MetarStorage implements ISyncServerStora
     public S2CStoragePacket<? extends IClientStorage<MetarStorageData>> packet(CompoundTag tag) {
         return new S2CMetarPacket(tag);
     }
+
+    @Override
+    public S2CStoragePacket<? extends IClientStorage<MetarStorageData>> packet(StoragePayload payload) {
+        return new S2CMetarPacket(payload);
+    }
+
+    /**
+     * Samples the current surface weather at a {@link MetarBlock}
+     * @param level The {@link Level} of the block
+     * @param pos The {@link BlockPos} of the block
+     * @return A new {@link MetarStorageData}
+     * @since 0.16.4.0
+     */
+    public static MetarStorageData sample(Level level, BlockPos pos) {
+        WeatherHandler weatherHandler = GameBusEvents.MANAGERS.get(level.dimension());
+        Vec3 wind = WindEngine.getWind(pos, level);
+        int windAngle = Math.floorMod((int)Math.toDegrees(Math.atan2(wind.x, -wind.z)), 360);
+        double windspeed = wind.length();
+        ThermodynamicEngine.AtmosphericDataPoint sfc = ThermodynamicEngine.samplePoint(weatherHandler, pos.getCenter(), level, null, 0);
+        float temp = sfc.temperature();
+        float dew = sfc.dewpoint();
+        float riskV = 0.0F;
+        for(int i = 0; i < 24000; i += 200) {
+            Sounding sounding = new Sounding(weatherHandler, pos.getCenter(), level, 250, 16000, i);
+            float r = sounding.getRisk(i);
+            if (r > riskV) {
+                riskV = r;
+            }
+        }
+
+        return new MetarStorageData(pos, temp, dew, (float) windAngle, (float) windspeed, riskV);
+    }
 }
@@ -3,8 +3,11 @@ package net.nullved.pmweatherapi.metar;
 import dev.protomanly.pmweather.block.MetarBlock;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.IStorageDataCodec;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 
 /**
@@ -16,6 +19,21 @@ import net.nullved.pmweatherapi.storage.data.StorageData;
  */
 public class MetarStorageData extends StorageData {
     public static final ResourceLocation ID = PMWeatherAPI.rl("metar");
+    public static final IStorageDataCodec<MetarStorageData> CODEC = new IStorageDataCodec<>() {
+        @Override
+        public void encode(MetarStorageData data, FriendlyByteBuf buf) {
+            buf.writeFloat(data.temp);
+            buf.writeFloat(data.dew);
+            buf.writeFloat(data.windAngle);
+            buf.writeFloat(data.windspeed);
+            buf.writeFloat(data.risk);
+        }
+
+        @Override
+        public MetarStorageData decode(BlockPos pos, FriendlyByteBuf buf, int version) {
+            return new MetarStorageData(pos, buf.readFloat(), buf.readFloat(), buf.readFloat(), buf.readFloat(), buf.readFloat());
+        }
+    };
     private float temp, dew, windAngle, windspeed, risk;
 
     public MetarStorageData(BlockPos pos, float temp, float dew, float windAngle, float windspeed, float risk) {
@@ -52,6 +70,27 @@ public class MetarStorageData extends StorageData {
         return ID;
     }
 
+    /**
+     * Compares the values at the precision they are displayed with: 0.1 degrees of temperature and dewpoint,
+     * 1 degree of wind angle, 0.1 of windspeed and 0.01 of risk
+     * @param other The {@link IStorageData} that would replace this data
+     * @return {@code true} if every value rounds to the same displayed value
+     * @since 0.16.4.0
+     */
+    @Override
+    public boolean isEquivalent(IStorageData other) {
+        return other instanceof MetarStorageData metar && pos.equals(metar.pos)
+            && quantize(temp, 10) == quantize(metar.temp, 10)
+            && quantize(dew, 10) == quantize(metar.dew, 10)
+            && quantize(windAngle, 1) == quantize(metar.windAngle, 1)
+            && quantize(windspeed, 10) == quantize(metar.windspeed, 10)
+            && quantize(risk, 100) == quantize(metar.risk, 100);
+    }
+
+    private static int quantize(float value, int steps) {
+        return Math.round(value * steps);
+    }
+
     @Override
     public CompoundTag serializeToNBT() {
         CompoundTag tag = super.serializeToNBT();
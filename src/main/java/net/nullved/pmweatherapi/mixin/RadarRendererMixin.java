@@ -4,7 +4,6 @@ import com.llamalad7.mixinextras.injector.wrapmethod.WrapMethod;
 import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
-import dev.protomanly.pmweather.PMWeather;
 import dev.protomanly.pmweather.block.RadarBlock;
 import dev.protomanly.pmweather.block.entity.RadarBlockEntity;
 import dev.protomanly.pmweather.config.ClientConfig;
@@ -28,28 +27,29 @@ import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.levelgen.Heightmap;
-import net.minecraft.world.phys.Vec2;
 import net.minecraft.world.phys.Vec3;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
-import net.nullved.pmweatherapi.client.data.PMWClientStorages;
 import net.nullved.pmweatherapi.client.render.PixelRenderData;
 import net.nullved.pmweatherapi.client.render.RadarRenderData;
+import net.nullved.pmweatherapi.client.render.radar.RadarFrameBuffer;
+import net.nullved.pmweatherapi.client.render.radar.RadarMesh;
 import net.nullved.pmweatherapi.client.render.radar.RadarOverlays;
 import net.nullved.pmweatherapi.client.render.radar.RadarRenderTypes;
+import net.nullved.pmweatherapi.client.render.radar.RadarSampler;
+import net.nullved.pmweatherapi.client.render.radar.RadarSweep;
+import net.nullved.pmweatherapi.client.render.radar.RadarTexture;
 import net.nullved.pmweatherapi.config.PMWClientConfig;
 import net.nullved.pmweatherapi.data.PMWExtras;
 import net.nullved.pmweatherapi.radar.RadarMode;
 import net.nullved.pmweatherapi.util.ColorMap;
 import net.nullved.pmweatherapi.util.ColorMaps;
-import org.joml.Vector2f;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.Unique;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
 @OnlyIn(Dist.CLIENT)
@@ -103,7 +103,6 @@ public class RadarRendererMixin {
 
         // PMWeatherAPI: Switch to using a VertexConsumer over a BufferBuilder
         VertexConsumer vc = multiBufferSource.getBuffer(RadarRenderTypes.RADAR);
-        List<Storm> storms = new ArrayList<>(radarBlockEntity.storms);
         boolean update = false;
 
         ClientConfig.RadarMode clientRadarMode = ClientConfig.radarMode;
@@ -121,77 +120,83 @@ public class RadarRendererMixin {
 
         RadarRenderData radarRenderData = new RadarRenderData(radarBlockEntity, sizeRenderDiameter, simSize, partialTicks, poseStack, multiBufferSource, combinedLightIn, combinedOverlayIn);
         RadarMode radarMode = blockEntity.getBlockState().getValue(PMWExtras.RADAR_MODE);
-        if (!PMWClientStorages.RADAR_MODE_COLORS.computeIfAbsent(radarBlockEntity, bp -> new HashMap<>()).containsKey(radarMode)) update = true;
+
+        // PMWeatherAPI: Keep pixel data in flat arrays instead of boxed maps, so frames between updates allocate nothing
+        RadarFrameBuffer frame = RadarFrameBuffer.of(radarBlockEntity, resolution);
+
+        // PMWeatherAPI: Sample the weather on worker threads or in a sweep spread across frames, and recolor the pixels that were sampled
+        PMWClientConfig.RadarSampling sampling = RadarSampler.mode();
+        float tick = radarBlockEntity.tickCount + partialTicks;
+        if (update) {
+            RadarSampler.Context context = new RadarSampler.Context(radarBlockEntity, new ArrayList<>(radarBlockEntity.storms), resolution, simSize, canRender);
+            switch (sampling) {
+                case PARALLEL -> RadarSampler.sampleParallel(frame, context);
+                case SWEEP -> {
+                    frame.sweep().start(context, tick);
+                    update = false;
+                }
+                default -> RadarSampler.sample(frame, context);
+            }
+        }
+
+        RadarSweep sweep = sampling == PMWClientConfig.RadarSampling.SWEEP ? frame.sweep() : null;
+        boolean swept = sweep != null && sweep.step(tick, PMWClientConfig.radarSweepMicrosPerFrame);
+        if (!frame.hasColors(radarMode)) update = true;
+        int[] modeColors = frame.colors(radarMode);
+
+        // PMWeatherAPI: Optionally draw the pixels as one texture or a baked mesh, which only have to be recomputed when what they show changes
+        boolean originalColors = PMWClientConfig.disableCustomRadarModeRendering || PMWClientConfig.useOriginalPMWeatherColors;
+        ClientConfig.RadarMode debugMode = ClientConfig.radarDebugging ? clientRadarMode : null;
+        RadarTexture texture = PMWClientConfig.radarRenderMode == PMWClientConfig.RadarRenderMode.TEXTURE ? RadarTexture.of(radarBlockEntity, resolution) : null;
+        RadarMesh mesh = PMWClientConfig.radarRenderMode == PMWClientConfig.RadarRenderMode.BAKED ? RadarMesh.of(radarBlockEntity, resolution) : null;
+        // Sweeps only recolor the pixels they sampled, and baked meshes are only baked again once enough of them changed
+        boolean rebake = mesh != null && swept && mesh.markStale(sweep.sweptCount(), !sweep.isSweeping());
+        boolean drawPixels = update
+            || rebake
+            || (texture == null && mesh == null)
+            || (texture != null && !texture.shows(radarMode, originalColors, debugMode))
+            || (mesh != null && !mesh.shows(radarMode, originalColors, debugMode));
+
+        // Baked quads are built relative to the radar and drawn with the current pose later
+        VertexConsumer pixelConsumer = vc;
+        PoseStack pixelPose = poseStack;
+        if (mesh != null && drawPixels) {
+            pixelConsumer = mesh.begin();
+            pixelPose = new PoseStack();
+        }
+
+        List<Storm> storms = (update || swept) && ClientConfig.radarDebugging ? new ArrayList<>(radarBlockEntity.storms) : List.of();
+        double centerX = pos.getX() + 0.5D;
+        double centerZ = pos.getZ() + 0.5D;
 
         // PMWeatherAPI: Flatten double for loop into single pixel idx (pidx) variable
-        int maxPixelIdx = 4 * resolution * resolution + 4 * resolution + 1;
-        for (int pidx = 0; pidx < maxPixelIdx; pidx++) {
+        int maxPixelIdx = drawPixels ? 4 * resolution * resolution + 4 * resolution + 1 : swept ? sweep.sweptCount() : 0;
+        for (int i = 0; i < maxPixelIdx; i++) {
+            int pidx = drawPixels ? i : sweep.swept(i);
             int x = pmwapi$getX(pidx, resolution);
             int z = pmwapi$getZ(pidx, resolution);
 
-            long longID = (long) (x + resolution + 1) + (long) (z + resolution + 1) * ((long) resolution * 2L + 1L);
-
-            float dbz = radarBlockEntity.reflectivityMap.getOrDefault(longID, 0.0F);
-            float temp = radarBlockEntity.temperatureMap.getOrDefault(longID, 15.0F);
-            float vel = radarBlockEntity.velocityMap.getOrDefault(longID, 0.0F);
-            int color = PMWClientStorages.RADAR_MODE_COLORS.computeIfAbsent(radarBlockEntity, bp -> new HashMap<>()).computeIfAbsent(radarMode, rm -> new HashMap<>()).getOrDefault(longID, 0xFFFF00FF);
+            float dbz = frame.reflectivity(pidx);
+            float temp = frame.temperature(pidx);
+            float vel = frame.velocity(pidx);
+            int color = modeColors[pidx];
+            boolean recolor = update || (swept && sweep.isSwept(pidx));
 
             float px = x * invResolution * (sizeRenderDiameter / 2);
             float pz = z * invResolution * (sizeRenderDiameter / 2);
-            double wx = (float) (x * invResolution * simSize + pos.getCenter().x);
-            double wz = (float) (z * invResolution * simSize + pos.getCenter().z);
-            Vec3 worldpos = new Vec3(wx, 0, wz);
-
-            if (update) {
-                float clouds = Clouds.getCloudDensity(GameBusClientEvents.weatherHandler, new Vector2f((float) wx, (float) wz), 0.0F);
-
-                dbz = 0.0F;
-                temp = 0.0F;
-                Vec2 f = (new Vec2((float)x, (float)z)).normalized();
-                Vec3 wind = WindEngine.getWind(new Vec3(wx, blockEntity.getLevel().getMaxBuildHeight() + 1, wz), blockEntity.getLevel(), false, false, false);
-                Vec2 w = new Vec2((float)wind.x, (float)wind.z);
-                vel = f.dot(w);
-
-                for(Storm storm : storms) {
-                    dbz = pmwapi$getDBZForStorm(radarBlockEntity, storm, worldpos, dbz);
-                }
-
-                float v = Math.max(clouds - 0.15F, 0.0F) * 4.0F;
-                if (v > 0.3F) {
-                    float dif = (v - 0.4F) / 1.5F;
-                    v -= dif;
-                }
-
-                dbz = Math.max(dbz, v);
-                dbz += (PMWeather.RANDOM.nextFloat() - 0.5F) * 5.0F / 60.0F;
-                vel += (PMWeather.RANDOM.nextFloat() - 0.5F) * 3.0F;
-                if (dbz > 1.0F) {
-                    dbz = (dbz - 1.0F) / 3.0F + 1.0F;
-                }
-
-                if (!canRender) {
-                    dbz = PMWeather.RANDOM.nextFloat() * 1.2F;
-                    vel = (PMWeather.RANDOM.nextFloat() - 0.5F) * 300.0F;
-                    temp = 15.0F;
-                } else {
-                    temp = ThermodynamicEngine.samplePoint(GameBusClientEvents.weatherHandler, worldpos, blockEntity.getLevel(), radarBlockEntity, 0).temperature();
-                }
-
-                radarBlockEntity.reflectivityMap.put(longID, dbz);
-                radarBlockEntity.temperatureMap.put(longID, temp);
-                radarBlockEntity.velocityMap.put(longID, vel);
-
-                // PMWeatherAPI: Support custom radar modes
-                if (!PMWClientConfig.disableCustomRadarModeRendering) {
-                    PixelRenderData pixelRenderData = new PixelRenderData(canRender, dbz * 60.0F, vel, temp, x, z, resolution, wx, wz, radarRenderData);
-                    color = radarMode.getColorForPixel(pixelRenderData);
-                    PMWClientStorages.RADAR_MODE_COLORS.computeIfAbsent(radarBlockEntity, bp -> new HashMap<>()).get(radarMode).put(longID, color);
-                }
+            double wx = (float) (x * invResolution * simSize + centerX);
+            double wz = (float) (z * invResolution * simSize + centerZ);
+
+            // PMWeatherAPI: Support custom radar modes
+            if (recolor && !PMWClientConfig.disableCustomRadarModeRendering) {
+                PixelRenderData pixelRenderData = new PixelRenderData(frame.canRender(), dbz * 60.0F, vel, temp, x, z, resolution, wx, wz, radarRenderData);
+                color = radarMode.getColorForPixel(pixelRenderData);
+                modeColors[pidx] = color;
             }
 
             float rdbz = dbz * 60.0F;
-            int startColor = radarBlockEntity.terrainMap.getOrDefault(longID, Color.BLACK).getRGB();
-            if (radarBlockEntity.init && update) {
+            int startColor = frame.terrain(pidx);
+            if (radarBlockEntity.init && recolor) {
                 Holder<Biome> biome = radarBlockEntity.getNearestBiome(new BlockPos((int) wx, pos.getY(), (int) wz));
                 String rn = biome.getRegisteredName().toLowerCase();
                 if (rn.contains("ocean") || rn.contains("river")) startColor = 0xFF000000 | biome.value().getWaterColor();
@@ -201,32 +206,45 @@ public class RadarRendererMixin {
 
                 if (PMWClientConfig.darkenBiomesOnRadar) startColor = 0xFF000000 | ColorMap.lerp(0.5F, startColor, 0xFF000000);
                 if (PMWClientConfig.transparentBackground) startColor = 0x00000000;
-                radarBlockEntity.terrainMap.put(longID, new Color(startColor));
+                frame.setTerrain(pidx, 0xFF000000 | startColor);
             }
 
-            if (PMWClientConfig.disableCustomRadarModeRendering || PMWClientConfig.useOriginalPMWeatherColors) {
+            if (originalColors) {
                 color = pmwapi$getCTPixelColor(radarBlockEntity, rdbz, startColor, temp, radarMode, vel);
             }
 
             if (ClientConfig.radarDebugging) {
-                Color dbg = radarBlockEntity.debugMap.getOrDefault(longID, Color.BLACK);
-
-                if (update) {
-                    dbg = pmwapi$getClientDebugColor(radarBlockEntity, clientRadarMode, wx, pos.getY(), wz, dbg, x, z, (float) resolution, pos, storms);
-                    radarBlockEntity.debugMap.put(longID, dbg);
+                if (recolor) {
+                    Color dbg = pmwapi$getClientDebugColor(radarBlockEntity, clientRadarMode, wx, pos.getY(), wz, new Color(frame.debug(pidx), true), x, z, (float) resolution, pos, storms);
+                    frame.setDebug(pidx, dbg.getRGB());
                 }
 
-                color = dbg.getRGB();
+                color = frame.debug(pidx);
             }
 
-            if (!RadarMode.isBaseRenderingDisabled()) {
+            if (texture != null) {
+                texture.set(pidx, color);
+            } else if (drawPixels && (mesh != null || !RadarMode.isBaseRenderingDisabled())) {
                 int a = (int) (FastColor.ARGB32.alpha(color) * 0.75F + 0.25F);
                 color = (a << 24) | color & 0xFFFFFF;
 
-                pmwapi$renderQuad(vc, px, 0.0F, pz, size / 4.0F, poseStack, color, combinedLightIn);
+                pmwapi$renderQuad(pixelConsumer, px, 0.0F, pz, size / 4.0F, pixelPose, color, combinedLightIn);
+            }
+        }
+
+        if (texture != null) {
+            if (drawPixels) texture.markShown(radarMode, originalColors, debugMode);
+            if (!RadarMode.isBaseRenderingDisabled()) {
+                texture.render(poseStack, multiBufferSource, sizeRenderDiameter / 2 + size / 4.0F);
+                vc = multiBufferSource.getBuffer(RadarRenderTypes.RADAR);
             }
         }
 
+        if (mesh != null) {
+            if (drawPixels) mesh.end(radarMode, originalColors, debugMode);
+            if (!RadarMode.isBaseRenderingDisabled()) mesh.render(poseStack);
+        }
+
         int color = radarMode.getDotColor();
         pmwapi$renderQuad(vc, 0.0F, 0.01F, 0.0F, 0.015F, poseStack, color, combinedLightIn);
 
@@ -349,18 +367,6 @@ public class RadarRendererMixin {
         return canRender;
     }
 
-    @Unique
-    private static float pmwapi$getDBZForStorm(RadarBlockEntity radarBlockEntity, Storm storm, Vec3 worldpos, float dbz) {
-        if (!storm.visualOnly && storm.hasRadarRepresentation()) {
-            double renderRange = storm.getRadarRenderRange();
-            double dist = storm.position.multiply(1.0F, 0.0F, 1.0F).distanceTo(worldpos);
-
-            if (dist < renderRange) return Math.max(dbz, storm.getRadarReflectivityReturn(radarBlockEntity, worldpos));
-        }
-
-        return dbz;
-    }
-
     @Unique
     private int pmwapi$getCTPixelColor(RadarBlockEntity radarBlockEntity, float rdbz, int terrainCol, float temp, RadarMode radarMode, float vel) {
         Color color;
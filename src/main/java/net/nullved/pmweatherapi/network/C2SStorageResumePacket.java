@@ -0,0 +1,97 @@
+package net.nullved.pmweatherapi.network;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.player.Player;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.data.ClientStorageCache;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.PagedSync;
+
+/**
+ * The packet a client sends after loading a dimension, naming the cached copy it holds of a storage so the server only sends what changed since.
+ * An epoch of {@code 0} means the client has no cached copy
+ * @see ClientStorageCache
+ * @see PagedSync
+ * @since 0.16.4.0
+ */
+public class C2SStorageResumePacket implements CustomPacketPayload {
+    public static final Type<C2SStorageResumePacket> TYPE = new Type<>(PMWeatherAPI.rl("c2s_storage_resume"));
+    public static final StreamCodec<RegistryFriendlyByteBuf, C2SStorageResumePacket> STREAM_CODEC = StreamCodec.of((buf, pkt) -> pkt.write(buf), C2SStorageResumePacket::new);
+
+    private final ResourceLocation id;
+    private final ResourceLocation dimension;
+    private final long epoch;
+    private final long seq;
+    private final ChunkArea coverage;
+
+    /**
+     * Creates a new {@link C2SStorageResumePacket}
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param dimension The dimension the cached copy belongs to
+     * @param epoch The epoch of the cached copy, or {@code 0} if there is none
+     * @param seq The sequence number of the cached copy
+     * @param coverage The area of the world the cached copy covers, or {@code null} for the whole dimension
+     * @since 0.16.4.0
+     */
+    public C2SStorageResumePacket(ResourceLocation id, ResourceLocation dimension, long epoch, long seq, ChunkArea coverage) {
+        this.id = id;
+        this.dimension = dimension;
+        this.epoch = epoch;
+        this.seq = seq;
+        this.coverage = coverage;
+    }
+
+    private C2SStorageResumePacket(FriendlyByteBuf buf) {
+        this.id = buf.readResourceLocation();
+        this.dimension = buf.readResourceLocation();
+        this.epoch = buf.readLong();
+        this.seq = buf.readVarLong();
+        this.coverage = buf.readBoolean() ? ChunkArea.read(buf) : null;
+    }
+
+    private void write(FriendlyByteBuf buf) {
+        buf.writeResourceLocation(id);
+        buf.writeResourceLocation(dimension);
+        buf.writeLong(epoch);
+        buf.writeVarLong(seq);
+        buf.writeBoolean(coverage != null);
+        if (coverage != null) coverage.write(buf);
+    }
+
+    /**
+     * @return The {@link ResourceLocation} ID of the storage
+     * @since 0.16.4.0
+     */
+    public ResourceLocation id() {
+        return id;
+    }
+
+    /**
+     * Handles the packet on the <strong>SERVER SIDE</strong>
+     * @param player The player that sent the packet
+     * @since 0.16.4.0
+     */
+    public void handle(Player player) {
+        // Answers for a dimension the player already left are dropped, the sync of the new dimension is waiting for its own
+        if (!player.level().dimension().location().equals(dimension)) return;
+
+        StorageInstance<?, ?> instance = PMWStorages.get(id);
+        if (instance == null) return;
+
+        IServerStorage<?> storage = instance.get(player.level().dimension());
+        if (storage != null) PagedSync.resume(storage, (ServerPlayer) player, epoch, seq, coverage);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
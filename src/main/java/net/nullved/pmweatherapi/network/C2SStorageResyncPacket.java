@@ -0,0 +1,59 @@
+package net.nullved.pmweatherapi.network;
+
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
+
+/**
+ * The packet a client sends when it detects a gap in the deltas of a storage, asking for a full sync
+ * @see StorageSyncJournal
+ * @since 0.16.4.0
+ */
+public class C2SStorageResyncPacket implements CustomPacketPayload {
+    public static final Type<C2SStorageResyncPacket> TYPE = new Type<>(PMWeatherAPI.rl("c2s_storage_resync"));
+    public static final StreamCodec<RegistryFriendlyByteBuf, C2SStorageResyncPacket> STREAM_CODEC = StreamCodec.composite(ResourceLocation.STREAM_CODEC, C2SStorageResyncPacket::id, C2SStorageResyncPacket::new);
+
+    private final ResourceLocation id;
+
+    /**
+     * Creates a new {@link C2SStorageResyncPacket}
+     * @param id The {@link ResourceLocation} ID of the storage to resync
+     * @since 0.16.4.0
+     */
+    public C2SStorageResyncPacket(ResourceLocation id) {
+        this.id = id;
+    }
+
+    /**
+     * @return The {@link ResourceLocation} ID of the storage to resync
+     * @since 0.16.4.0
+     */
+    public ResourceLocation id() {
+        return id;
+    }
+
+    /**
+     * Handles the packet on the <strong>SERVER SIDE</strong>
+     * @param player The player that sent the packet
+     * @since 0.16.4.0
+     */
+    public void handle(Player player) {
+        StorageInstance<?, ?> instance = PMWStorages.get(id);
+        if (instance == null) return;
+
+        IServerStorage<?> storage = instance.get(player.level().dimension());
+        if (storage != null) StorageSyncJournal.of(storage).resync(player);
+    }
+
+    @Override
+    public Type<? extends CustomPacketPayload> type() {
+        return TYPE;
+    }
+}
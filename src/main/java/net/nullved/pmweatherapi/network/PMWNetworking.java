@@ -1,16 +1,23 @@
 package net.nullved.pmweatherapi.network;
 
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
 import net.minecraft.network.RegistryFriendlyByteBuf;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.neoforged.neoforge.network.PacketDistributor;
 import net.neoforged.neoforge.network.handling.IPayloadHandler;
 import net.neoforged.neoforge.network.registration.PayloadRegistrar;
+import net.neoforged.neoforge.server.ServerLifecycleHooks;
 import net.nullved.pmweatherapi.radar.storage.RadarServerStorage;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncStats;
 
+import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -28,6 +35,8 @@ public class PMWNetworking {
         registerClientboundPacket(S2CRadarPacket.TYPE, S2CRadarPacket.STREAM_CODEC, S2CRadarPacket::handle, args);
         registerClientboundPacket(S2CMetarPacket.TYPE, S2CMetarPacket.STREAM_CODEC, S2CMetarPacket::handle, args);
         registerClientboundPacket(S2CWSRPacket.TYPE, S2CWSRPacket.STREAM_CODEC, S2CWSRPacket::handle, args);
+        registerServerboundPacket(C2SStorageResyncPacket.TYPE, C2SStorageResyncPacket.STREAM_CODEC, C2SStorageResyncPacket::handle, args);
+        registerServerboundPacket(C2SStorageResumePacket.TYPE, C2SStorageResumePacket.STREAM_CODEC, C2SStorageResumePacket::handle, args);
     }
 
     /**
@@ -61,12 +70,52 @@ public class PMWNetworking {
     }
 
     /**
-     * Sends all clients a {@link S2CStoragePacket}. The type of packet is dependent on the caller of this method
+     * Sends all clients a {@link S2CStoragePacket}. The type of packet is dependent on the caller of this method.
+     * Storages are bound to a single dimension, so prefer {@link #serverSendStorageToDimension(S2CStoragePacket, ServerLevel)}
      * @param tag The tag to send, generated by the {@link RadarServerStorage}
      * @since 0.15.3.3
      */
     public static void serverSendStorageToAll(CompoundTag tag, Function<CompoundTag, S2CStoragePacket<?>> pkt) {
-        PacketDistributor.sendToAllPlayers(pkt.apply(tag));
+        S2CStoragePacket<?> packet = pkt.apply(tag);
+        List<ServerPlayer> players = ServerLifecycleHooks.getCurrentServer().getPlayerList().getPlayers();
+        int size = encodedSize(packet, players);
+        PacketDistributor.sendToAllPlayers(packet);
+        players.forEach(player -> record(packet, player, size));
+    }
+
+    /**
+     * Sends a {@link S2CStoragePacket} to every player in a dimension
+     * @param pkt The packet to send
+     * @param level The {@link ServerLevel} whose players receive the packet
+     * @since 0.16.4.0
+     */
+    public static void serverSendStorageToDimension(S2CStoragePacket<?> pkt, ServerLevel level) {
+        List<ServerPlayer> players = level.players();
+        int size = encodedSize(pkt, players);
+        PacketDistributor.sendToPlayersInDimension(level, pkt);
+        players.forEach(player -> record(pkt, player, size));
+    }
+
+    /**
+     * Asks the server for a full sync of a storage, after the client detected a gap in its deltas
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @since 0.16.4.0
+     */
+    public static void clientRequestResync(ResourceLocation id) {
+        PacketDistributor.sendToServer(new C2SStorageResyncPacket(id));
+    }
+
+    /**
+     * Tells the server which cached copy of a storage the client holds, after loading a dimension
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @param dimension The dimension of the storage
+     * @param epoch The epoch of the cached copy, or {@code 0} if there is none
+     * @param seq The sequence number of the cached copy
+     * @param coverage The area of the world the cached copy covers, or {@code null} for the whole dimension
+     * @since 0.16.4.0
+     */
+    public static void clientSendResume(ResourceLocation id, ResourceLocation dimension, long epoch, long seq, ChunkArea coverage) {
+        PacketDistributor.sendToServer(new C2SStorageResumePacket(id, dimension, epoch, seq, coverage));
     }
 
     /**
@@ -75,6 +124,55 @@ public class PMWNetworking {
      * @since 0.15.3.3
      */
     public static void serverSendStorageToPlayer(CompoundTag tag, Function<CompoundTag, S2CStoragePacket<?>> pkt, Player player) {
-        PacketDistributor.sendToPlayer((ServerPlayer) player, pkt.apply(tag));
+        serverSendStorageToPlayer(pkt.apply(tag), player);
+    }
+
+    /**
+     * Sends a {@link S2CStoragePacket} to a specific player
+     * @param pkt The packet to send
+     * @param player The {@link Player} to send to
+     * @since 0.16.4.0
+     */
+    public static void serverSendStorageToPlayer(S2CStoragePacket<?> pkt, Player player) {
+        ServerPlayer serverPlayer = (ServerPlayer) player;
+        int size = encodedSize(pkt, List.of(serverPlayer));
+        PacketDistributor.sendToPlayer(serverPlayer, pkt);
+        record(pkt, serverPlayer, size);
+    }
+
+    /**
+     * Measures a {@link S2CStoragePacket} once for all of its receivers, before it is sent.
+     * A {@link StoragePayload} is encoded here and keeps its bytes, so the network threads copy them instead of encoding it again
+     * @return The size of the packet in bytes, or {@code 0} if no receiver has a remote connection
+     */
+    private static int encodedSize(S2CStoragePacket<?> pkt, List<ServerPlayer> players) {
+        if (players.stream().allMatch(PMWNetworking::isLocal)) return 0;
+
+        StoragePayload payload = pkt.payload();
+        if (payload != null) return payload.encodedSize();
+        return pkt.tag() != null ? pkt.tag().sizeInBytes() : 0;
+    }
+
+    private static boolean isLocal(ServerPlayer player) {
+        return player.connection.getConnection().isMemoryConnection();
+    }
+
+    /**
+     * Records a sent {@link S2CStoragePacket} in the {@link StorageSyncStats}.
+     * Packets to a singleplayer host are never encoded, so they count no bytes
+     */
+    private static void record(S2CStoragePacket<?> pkt, ServerPlayer player, int size) {
+        int bytes = isLocal(player) ? 0 : size;
+
+        StoragePayload payload = pkt.payload();
+        if (payload != null) {
+            ResourceLocation storage = payload.source() != null ? payload.source() : pkt.type().id();
+            StorageSyncStats.record(storage, payload.dimension(), payload.operation().getSerializedName(), player, payload.entryCount(), bytes);
+        } else if (pkt.tag() != null) {
+            CompoundTag tag = pkt.tag();
+            ResourceLocation dimension = tag.contains("dimension") ? ResourceLocation.tryParse(tag.getString("dimension")) : null;
+            int entries = tag.get("data") instanceof ListTag list ? list.size() : 1;
+            StorageSyncStats.record(pkt.type().id(), dimension, tag.getString("operation"), player, entries, bytes);
+        }
     }
 }
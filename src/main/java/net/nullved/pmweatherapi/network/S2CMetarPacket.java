@@ -2,7 +2,6 @@ package net.nullved.pmweatherapi.network;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.RegistryFriendlyByteBuf;
-import net.minecraft.network.codec.ByteBufCodecs;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.nullved.pmweatherapi.PMWeatherAPI;
@@ -16,7 +15,7 @@ import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
  */
 public class S2CMetarPacket extends S2CStoragePacket<MetarClientStorage> {
     public static final Type<S2CMetarPacket> TYPE = new Type<>(PMWeatherAPI.rl("s2c_metar"));
-    public static final StreamCodec<RegistryFriendlyByteBuf, S2CMetarPacket> STREAM_CODEC = StreamCodec.composite(ByteBufCodecs.COMPOUND_TAG, S2CMetarPacket::tag, S2CMetarPacket::new);
+    public static final StreamCodec<RegistryFriendlyByteBuf, S2CMetarPacket> STREAM_CODEC = streamCodec(S2CMetarPacket::new, S2CMetarPacket::new);
 
     /**
      * Creates a new {@link S2CMetarPacket}
@@ -27,6 +26,15 @@ public class S2CMetarPacket extends S2CStoragePacket<MetarClientStorage> {
         super(tag);
     }
 
+    /**
+     * Creates a new {@link S2CMetarPacket} carrying a binary {@link StoragePayload}
+     * @param payload The {@link StoragePayload} to send with the packet
+     * @since 0.16.4.0
+     */
+    public S2CMetarPacket(StoragePayload payload) {
+        super(payload);
+    }
+
     /**
      * Gets the {@link MetarClientStorage} that is receiving data
      * @return The {@link MetarClientStorage}
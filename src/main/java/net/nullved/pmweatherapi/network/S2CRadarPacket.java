@@ -2,7 +2,6 @@ package net.nullved.pmweatherapi.network;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.RegistryFriendlyByteBuf;
-import net.minecraft.network.codec.ByteBufCodecs;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.nullved.pmweatherapi.PMWeatherAPI;
@@ -15,7 +14,7 @@ import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
  */
 public class S2CRadarPacket extends S2CStoragePacket<RadarClientStorage> {
     public static final CustomPacketPayload.Type<S2CRadarPacket> TYPE = new Type<>(PMWeatherAPI.rl("s2c_radar"));
-    public static final StreamCodec<RegistryFriendlyByteBuf, S2CRadarPacket> STREAM_CODEC = StreamCodec.composite(ByteBufCodecs.COMPOUND_TAG, S2CRadarPacket::tag, S2CRadarPacket::new);
+    public static final StreamCodec<RegistryFriendlyByteBuf, S2CRadarPacket> STREAM_CODEC = streamCodec(S2CRadarPacket::new, S2CRadarPacket::new);
 
     /**
      * Creates a new {@link S2CRadarPacket}
@@ -26,6 +25,15 @@ public class S2CRadarPacket extends S2CStoragePacket<RadarClientStorage> {
         super(tag);
     }
 
+    /**
+     * Creates a new {@link S2CRadarPacket} carrying a binary {@link StoragePayload}
+     * @param payload The {@link StoragePayload} to send with the packet
+     * @since 0.16.4.0
+     */
+    public S2CRadarPacket(StoragePayload payload) {
+        super(payload);
+    }
+
     /**
      * Gets the {@link RadarClientStorage} that is receiving data
      * @return The {@link RadarClientStorage}
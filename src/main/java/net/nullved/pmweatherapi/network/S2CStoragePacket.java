@@ -3,18 +3,25 @@ package net.nullved.pmweatherapi.network;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.minecraft.world.entity.player.Player;
 import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.data.ClientSyncQueue;
 import net.nullved.pmweatherapi.client.data.IClientStorage;
 
+import java.util.function.Function;
+
 /**
  * A base packet for the Storages system that syncs data from the Server -> Client (S2C)
+ * <br><br>
+ * Packets carry a binary {@link StoragePayload}, or a {@link CompoundTag} if created by a storage that only builds tags
  * @param <C> The {@link IClientStorage} that will be synced to
  * @since 0.15.3.3
  */
 public abstract class S2CStoragePacket<C extends IClientStorage<?>> implements CustomPacketPayload {
     public CompoundTag tag;
+    private final StoragePayload payload;
 
     /**
      * Gets the {@link IClientStorage} that will be synced to.
@@ -25,6 +32,40 @@ public abstract class S2CStoragePacket<C extends IClientStorage<?>> implements C
 
     public S2CStoragePacket(CompoundTag tag) {
         this.tag = tag;
+        this.payload = null;
+    }
+
+    /**
+     * Creates a new {@link S2CStoragePacket} carrying a binary {@link StoragePayload}
+     * @param payload The {@link StoragePayload} to send
+     * @since 0.16.4.0
+     */
+    public S2CStoragePacket(StoragePayload payload) {
+        this.tag = null;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates the {@link StreamCodec} of a storage packet, writing its {@link StoragePayload} if it has one and its {@link CompoundTag} otherwise.
+     * Both are decoded into a {@link StoragePayload} while reading, on the network thread
+     * @param fromTag The constructor of the packet taking a {@link CompoundTag}
+     * @param fromPayload The constructor of the packet taking a {@link StoragePayload}
+     * @return A new {@link StreamCodec}
+     * @param <P> The type of packet
+     * @since 0.16.4.0
+     */
+    public static <P extends S2CStoragePacket<?>> StreamCodec<RegistryFriendlyByteBuf, P> streamCodec(Function<CompoundTag, P> fromTag, Function<StoragePayload, P> fromPayload) {
+        return StreamCodec.of((buf, pkt) -> {
+            buf.writeBoolean(pkt.payload() != null);
+            if (pkt.payload() != null) pkt.payload().write(buf);
+            else buf.writeNbt(pkt.tag());
+        }, buf -> {
+            if (buf.readBoolean()) return fromPayload.apply(StoragePayload.read(buf));
+
+            CompoundTag tag = buf.readNbt();
+            StoragePayload payload = tag == null ? null : StoragePayload.fromTag(tag);
+            return payload != null ? fromPayload.apply(payload) : fromTag.apply(tag);
+        });
     }
 
     /**
@@ -38,44 +79,61 @@ public abstract class S2CStoragePacket<C extends IClientStorage<?>> implements C
 
     /**
      * Gets the {@link CompoundTag} send with the packet
-     * @return The packet data
+     * @return The packet data, or {@code null} if the packet carries a {@link StoragePayload}
      * @since 0.15.3.3
      */
     public CompoundTag tag() {
         return tag;
     }
 
+    /**
+     * Gets the {@link StoragePayload} sent with the packet
+     * @return The payload, or {@code null} if the packet carries a {@link CompoundTag}
+     * @since 0.16.4.0
+     */
+    public StoragePayload payload() {
+        return payload;
+    }
+
     /**
      * Writes the data into the given {@link FriendlyByteBuf}
      * @param buf The {@link FriendlyByteBuf} to write into
      * @since 0.15.3.3
      */
     public void write(FriendlyByteBuf buf) {
+        if (payload != null) {
+            payload.write(buf);
+            return;
+        }
+
         tag.putInt("version", getStorage().version());
         buf.writeNbt(tag);
     }
 
     /**
-     * Handles the packet on the <strong>CLIENT SIDE</strong>
+     * Handles the packet on the <strong>CLIENT SIDE</strong>.
+     * The payload is queued on the {@link ClientSyncQueue}, which applies it to the storage within the frame budget
      * @param player The player the packet was sent to
      * @since 0.15.3.3
      */
     public void handle(Player player) {
         try {
-            String operation = tag.getString("operation");
-            C storage = getStorage();
-
-            if (operation.equals("overwrite")) {
-                storage.syncAll(tag);
-            } else if (operation.equals("add")) {
-                storage.syncAdd(tag);
-            } else if (operation.equals("remove")) {
-                storage.syncRemove(tag);
-            } else {
-                PMWeatherAPI.LOGGER.error("Unknown S2CRadarsPacket operation: {}", operation);
+            // Packets read from the network are decoded already, only packets passed in memory still carry a tag or the server's data
+            StoragePayload decoded = payload != null ? payload.detached() : StoragePayload.fromTag(tag);
+            if (decoded == null) {
+                PMWeatherAPI.LOGGER.error("Unknown S2CStoragePacket operation: {}", tag.getString("operation"));
+                return;
+            }
+
+            // Packets queued before a dimension change must not be applied to the new dimension's storages
+            if (decoded.dimension() != null && !player.level().dimension().location().equals(decoded.dimension())) {
+                PMWeatherAPI.LOGGER.debug("Dropping storage packet for dimension {} while in {}", decoded.dimension(), player.level().dimension().location());
+                return;
             }
+
+            ClientSyncQueue.enqueue(getStorage(), decoded);
         } catch (Exception e) {
-            PMWeatherAPI.LOGGER.error("An error occurred when trying to write packet", e);
+            PMWeatherAPI.LOGGER.error("An error occurred when trying to apply packet", e);
         }
     }
 }
@@ -2,7 +2,6 @@ package net.nullved.pmweatherapi.network;
 
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.RegistryFriendlyByteBuf;
-import net.minecraft.network.codec.ByteBufCodecs;
 import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
 import net.nullved.pmweatherapi.PMWeatherAPI;
@@ -16,7 +15,7 @@ import net.nullved.pmweatherapi.client.radar.WSRClientStorage;
  */
 public class S2CWSRPacket extends S2CStoragePacket<WSRClientStorage> {
     public static final Type<S2CWSRPacket> TYPE = new Type<>(PMWeatherAPI.rl("s2c_wsr"));
-    public static final StreamCodec<RegistryFriendlyByteBuf, S2CWSRPacket> STREAM_CODEC = StreamCodec.composite(ByteBufCodecs.COMPOUND_TAG, S2CWSRPacket::tag, S2CWSRPacket::new);
+    public static final StreamCodec<RegistryFriendlyByteBuf, S2CWSRPacket> STREAM_CODEC = streamCodec(S2CWSRPacket::new, S2CWSRPacket::new);
 
     /**
      * Creates a new {@link S2CWSRPacket}
@@ -27,6 +26,15 @@ public class S2CWSRPacket extends S2CStoragePacket<WSRClientStorage> {
         super(tag);
     }
 
+    /**
+     * Creates a new {@link S2CWSRPacket} carrying a binary {@link StoragePayload}
+     * @param payload The {@link StoragePayload} to send with the packet
+     * @since 0.16.4.0
+     */
+    public S2CWSRPacket(StoragePayload payload) {
+        super(payload);
+    }
+
     /**
      * Gets the {@link WSRClientStorage} that is receiving data
      * @return The {@link WSRClientStorage}
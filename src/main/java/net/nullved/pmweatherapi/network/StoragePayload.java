@@ -0,0 +1,789 @@
+package net.nullved.pmweatherapi.network;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.IntArrayTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.data.IClientStorage;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.data.BinaryStorageFormat;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.IStorageDataCodec;
+import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.data.StorageDataManager;
+import net.nullved.pmweatherapi.storage.data.StorageTypeTable;
+import net.nullved.pmweatherapi.storage.sync.ChunkArea;
+import net.nullved.pmweatherapi.storage.sync.PlayerInterest;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The binary payload of a {@link S2CStoragePacket}, replacing the {@link CompoundTag} with string keys that packets used to carry.
+ * <br><br>
+ * The payload is written as:
+ * <ul>
+ *     <li>one byte for the {@link Operation}</li>
+ *     <li>the dimension, as a boolean followed by a {@link ResourceLocation} if present</li>
+ *     <li>a VarLong sequence number plus one, so {@code 0} means none</li>
+ *     <li>a VarInt storage version</li>
+ *     <li>a boolean marking the last page of a full sync, see {@link Operation#PAGE}</li>
+ *     <li>for {@link Operation#OVERWRITE} and {@link Operation#RESUME}, the epoch of the sequence numbers as a long</li>
+ *     <li>the area of the world the client holds data for, as a boolean followed by a {@link ChunkArea} if present</li>
+ *     <li>a VarInt count of replaced chunks, each a packed {@link ChunkPos}</li>
+ *     <li>a VarInt count of added entries. If not zero, a format byte follows: either the {@link StorageTypeTable} and a length-prefixed
+ *     {@link BinaryStorageFormat} list encoded by each type's {@link IStorageDataCodec}, or one NBT tag per entry for types without a codec</li>
+ *     <li>a VarInt count of removed positions, each a packed {@link BlockPos}</li>
+ * </ul>
+ * The client decodes the entries straight into {@link IStorageData} while reading the packet, see {@link IClientStorage#sync(StoragePayload)}
+ *
+ * @since 0.16.4.0
+ */
+public class StoragePayload {
+    public static final StreamCodec<FriendlyByteBuf, StoragePayload> STREAM_CODEC = StreamCodec.of((buf, payload) -> payload.write(buf), StoragePayload::read);
+
+    private static final byte FORMAT_NBT = 0;
+    private static final byte FORMAT_BINARY = 1;
+
+    private final Operation operation;
+    private final ResourceLocation dimension;
+    private final long seq;
+    private final int version;
+    private final boolean complete;
+    private List<IStorageData> added;
+    private final EncodedEntries encodedEntries;
+    private final long[] removed;
+    private long epoch = 0;
+    private ChunkArea coverage = null;
+    private long[] replacedChunks = new long[0];
+    private ResourceLocation source = null;
+    private volatile byte[] encoded;
+    private boolean received = false;
+
+    /**
+     * Creates a new {@link StoragePayload}. Prefer the static factories
+     * @param operation The {@link Operation} of the payload
+     * @param dimension The dimension of the storage, or {@code null} to apply it in any dimension
+     * @param seq The sequence number, or {@code -1} for none
+     * @param version The version of the storage
+     * @param complete {@code false} if more pages of a full sync follow this one
+     * @param added The added {@link IStorageData}
+     * @param removed The removed packed {@link BlockPos}
+     * @since 0.16.4.0
+     */
+    public StoragePayload(Operation operation, ResourceLocation dimension, long seq, int version, boolean complete, Collection<? extends IStorageData> added, long[] removed) {
+        this.operation = operation;
+        this.dimension = dimension;
+        this.seq = seq;
+        this.version = version;
+        this.complete = complete;
+        this.added = new ArrayList<>(added);
+        this.encodedEntries = null;
+        this.removed = removed;
+    }
+
+    /**
+     * Creates a new {@link StoragePayload} whose added entries are already encoded, so they are copied into the packet as they are
+     * @param operation The {@link Operation} of the payload
+     * @param dimension The dimension of the storage, or {@code null} to apply it in any dimension
+     * @param seq The sequence number, or {@code -1} for none
+     * @param version The version of the storage
+     * @param complete {@code false} if more pages of a full sync follow this one
+     * @param entries The {@link EncodedEntries} that were added
+     * @since 0.16.4.0
+     */
+    public StoragePayload(Operation operation, ResourceLocation dimension, long seq, int version, boolean complete, EncodedEntries entries) {
+        this.operation = operation;
+        this.dimension = dimension;
+        this.seq = seq;
+        this.version = version;
+        this.complete = complete;
+        this.added = null;
+        this.encodedEntries = entries;
+        this.removed = new long[0];
+    }
+
+    /**
+     * Creates an {@link Operation#OVERWRITE} payload, replacing all data of the client storage
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The last sent sequence number of the storage
+     * @param datum Every {@link IStorageData} the client should hold
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload overwrite(IServerStorage<?> storage, long seq, Collection<? extends IStorageData> datum) {
+        return overwrite(storage, seq, datum, true);
+    }
+
+    /**
+     * Creates an {@link Operation#OVERWRITE} payload that may be the first page of a full sync
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The last sent sequence number of the storage
+     * @param datum The {@link IStorageData} of the first page
+     * @param complete {@code false} if {@link Operation#PAGE} payloads follow
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload overwrite(IServerStorage<?> storage, long seq, Collection<? extends IStorageData> datum, boolean complete) {
+        return new StoragePayload(Operation.OVERWRITE, dimensionOf(storage), seq, storage.version(), complete, datum, new long[0]).from(storage);
+    }
+
+    /**
+     * Creates an {@link Operation#OVERWRITE} payload from already encoded entries, that may be the first page of a full sync
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The last sent sequence number of the storage
+     * @param entries The {@link EncodedEntries} of the first page
+     * @param complete {@code false} if {@link Operation#PAGE} payloads follow
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload overwrite(IServerStorage<?> storage, long seq, EncodedEntries entries, boolean complete) {
+        return new StoragePayload(Operation.OVERWRITE, dimensionOf(storage), seq, storage.version(), complete, entries).from(storage);
+    }
+
+    /**
+     * Creates a {@link Operation#PAGE} payload from already encoded entries
+     * @param storage The {@link IServerStorage} being synced
+     * @param entries The {@link EncodedEntries} of the page
+     * @param complete {@code true} if this is the last page
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload page(IServerStorage<?> storage, EncodedEntries entries, boolean complete) {
+        return new StoragePayload(Operation.PAGE, dimensionOf(storage), -1, storage.version(), complete, entries).from(storage);
+    }
+
+    /**
+     * Creates a {@link Operation#PAGE} payload, continuing a full sync started by an {@link Operation#OVERWRITE} payload
+     * @param storage The {@link IServerStorage} being synced
+     * @param datum The {@link IStorageData} of the page
+     * @param complete {@code true} if this is the last page
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload page(IServerStorage<?> storage, Collection<? extends IStorageData> datum, boolean complete) {
+        return new StoragePayload(Operation.PAGE, dimensionOf(storage), -1, storage.version(), complete, datum, new long[0]).from(storage);
+    }
+
+    /**
+     * Creates a {@link Operation#RESUME} payload from already encoded entries, that may be the first page of a resumed sync
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The last sent sequence number of the storage
+     * @param entries The {@link EncodedEntries} of the first page
+     * @param complete {@code false} if {@link Operation#PAGE} payloads follow
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload resume(IServerStorage<?> storage, long seq, EncodedEntries entries, boolean complete) {
+        return new StoragePayload(Operation.RESUME, dimensionOf(storage), seq, storage.version(), complete, entries).from(storage);
+    }
+
+    /**
+     * Creates a {@link Operation#RESUME} payload that may be the first page of a resumed sync
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The last sent sequence number of the storage
+     * @param datum The {@link IStorageData} of the first page
+     * @param complete {@code false} if {@link Operation#PAGE} payloads follow
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload resume(IServerStorage<?> storage, long seq, Collection<? extends IStorageData> datum, boolean complete) {
+        return new StoragePayload(Operation.RESUME, dimensionOf(storage), seq, storage.version(), complete, datum, new long[0]).from(storage);
+    }
+
+    /**
+     * Creates an {@link Operation#AREA} payload, moving the area a client holds data for
+     * @param storage The {@link IServerStorage} being synced
+     * @param added The {@link IStorageData} that entered the area
+     * @param removed The packed {@link BlockPos} of the data that left the area
+     * @param coverage The new {@link ChunkArea}
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload area(IServerStorage<?> storage, Collection<? extends IStorageData> added, long[] removed, ChunkArea coverage) {
+        return new StoragePayload(Operation.AREA, dimensionOf(storage), -1, storage.version(), true, added, removed).withCoverage(coverage).from(storage);
+    }
+
+    /**
+     * Creates an {@link Operation#ADD} payload
+     * @param storage The {@link IServerStorage} being synced
+     * @param datum The added {@link IStorageData}
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload add(IServerStorage<?> storage, Collection<? extends IStorageData> datum) {
+        return new StoragePayload(Operation.ADD, dimensionOf(storage), -1, storage.version(), true, datum, new long[0]).from(storage);
+    }
+
+    /**
+     * Creates an {@link Operation#REMOVE} payload
+     * @param storage The {@link IServerStorage} being synced
+     * @param posList The removed {@link BlockPos}
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload remove(IServerStorage<?> storage, Collection<BlockPos> posList) {
+        long[] removed = new long[posList.size()];
+        int i = 0;
+        for (BlockPos pos : posList) removed[i++] = pos.asLong();
+        return new StoragePayload(Operation.REMOVE, dimensionOf(storage), -1, storage.version(), true, List.of(), removed).from(storage);
+    }
+
+    /**
+     * Creates a {@link Operation#DELTA} payload holding the coalesced changes of a tick
+     * @param storage The {@link IServerStorage} being synced
+     * @param seq The sequence number of the delta
+     * @param added The added {@link IStorageData}
+     * @param removed The removed packed {@link BlockPos}
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload delta(IServerStorage<?> storage, long seq, Collection<? extends IStorageData> added, long[] removed) {
+        return new StoragePayload(Operation.DELTA, dimensionOf(storage), seq, storage.version(), true, added, removed).from(storage);
+    }
+
+    private static ResourceLocation dimensionOf(IServerStorage<?> storage) {
+        return storage.getLevel().dimension().location();
+    }
+
+    private StoragePayload from(IServerStorage<?> storage) {
+        this.source = storage.getId();
+        return this;
+    }
+
+    private StoragePayload received() {
+        this.received = true;
+        return this;
+    }
+
+    /**
+     * @return The {@link Operation} of the payload
+     * @since 0.16.4.0
+     */
+    public Operation operation() {
+        return operation;
+    }
+
+    /**
+     * @return The dimension of the storage, or {@code null} if the payload applies in any dimension
+     * @since 0.16.4.0
+     */
+    public ResourceLocation dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return The sequence number, or {@code -1} if the payload has none
+     * @since 0.16.4.0
+     */
+    public long seq() {
+        return seq;
+    }
+
+    /**
+     * @return The version of the storage the added entries were written with
+     * @since 0.16.4.0
+     */
+    public int version() {
+        return version;
+    }
+
+    /**
+     * @return {@code false} if more pages of a full sync follow this payload
+     * @since 0.16.4.0
+     */
+    public boolean complete() {
+        return complete;
+    }
+
+    /**
+     * Gets the added {@link IStorageData}. Payloads created from {@link EncodedEntries} decode them on the first call
+     * @return The added {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public List<IStorageData> added() {
+        if (added == null) {
+            added = BinaryStorageFormat.readEntries(new FriendlyByteBuf(Unpooled.wrappedBuffer(encodedEntries.bytes())), encodedEntries.types(), version);
+        }
+
+        return added;
+    }
+
+    private int addedCount() {
+        return encodedEntries != null ? encodedEntries.count() : added.size();
+    }
+
+    /**
+     * @return The removed positions, as packed {@link BlockPos}
+     * @since 0.16.4.0
+     */
+    public long[] removed() {
+        return removed;
+    }
+
+    /**
+     * @return The amount of added entries plus the amount of removed positions
+     * @since 0.16.4.0
+     */
+    public int entryCount() {
+        return addedCount() + removed.length;
+    }
+
+    /**
+     * @return The epoch of the sequence numbers, or {@code 0} if the payload has none
+     * @see StorageSyncJournal#epoch()
+     * @since 0.16.4.0
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Sets the epoch of the sequence numbers, sent with {@link Operation#OVERWRITE} and {@link Operation#RESUME} payloads
+     * @param epoch The epoch
+     * @return This {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public StoragePayload withEpoch(long epoch) {
+        this.epoch = epoch;
+        return this;
+    }
+
+    /**
+     * @return The area of the world the client holds data for after applying this payload,
+     * or {@code null} if it is unchanged or the storage syncs its whole dimension
+     * @see PlayerInterest
+     * @since 0.16.4.0
+     */
+    public ChunkArea coverage() {
+        return coverage;
+    }
+
+    /**
+     * Sets the area of the world the client holds data for after applying this payload
+     * @param coverage The {@link ChunkArea}, or {@code null} for none
+     * @return This {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public StoragePayload withCoverage(ChunkArea coverage) {
+        this.coverage = coverage;
+        return this;
+    }
+
+    /**
+     * @return The chunks whose data is replaced by the added data, as packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    public long[] replacedChunks() {
+        return replacedChunks;
+    }
+
+    /**
+     * Sets the chunks whose data is replaced by the added data. The client clears these chunks before adding the data,
+     * so chunks that became empty are cleared too
+     * @param replacedChunks The packed {@link ChunkPos} of the chunks
+     * @return This {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public StoragePayload withReplacedChunks(long[] replacedChunks) {
+        this.replacedChunks = replacedChunks;
+        return this;
+    }
+
+    /**
+     * Gets the storage this payload was created for. It is not sent, so payloads read from a packet have none
+     * @return The {@link ResourceLocation} ID of the storage, or {@code null} if unknown
+     * @see StorageSyncStats
+     * @since 0.16.4.0
+     */
+    public ResourceLocation source() {
+        return source;
+    }
+
+    /**
+     * Encodes this payload once and keeps the bytes, so later writes copy them instead of encoding again
+     * @return The size of the encoded payload in bytes
+     * @since 0.16.4.0
+     */
+    public int encodedSize() {
+        byte[] bytes = encoded;
+        if (bytes == null) {
+            int entriesSize = encodedEntries != null ? encodedEntries.bytes().length : added.size() * 16;
+            FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(entriesSize + (removed.length + replacedChunks.length) * 8 + 64));
+            encode(buf);
+            bytes = new byte[buf.readableBytes()];
+            buf.readBytes(bytes);
+            encoded = bytes;
+        }
+
+        return bytes.length;
+    }
+
+    /**
+     * Writes this payload into a buffer
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @since 0.16.4.0
+     */
+    public void write(FriendlyByteBuf buf) {
+        byte[] bytes = encoded;
+        if (bytes != null) buf.writeBytes(bytes);
+        else encode(buf);
+    }
+
+    private void encode(FriendlyByteBuf buf) {
+        buf.writeByte(operation.ordinal());
+        buf.writeBoolean(dimension != null);
+        if (dimension != null) buf.writeResourceLocation(dimension);
+        buf.writeVarLong(seq + 1);
+        buf.writeVarInt(version);
+        buf.writeBoolean(complete);
+        if (hasEpoch(operation)) buf.writeLong(epoch);
+        buf.writeBoolean(coverage != null);
+        if (coverage != null) coverage.write(buf);
+        buf.writeVarInt(replacedChunks.length);
+        for (long chunk : replacedChunks) buf.writeLong(chunk);
+
+        buf.writeVarInt(addedCount());
+        if (encodedEntries != null) {
+            if (encodedEntries.count() > 0) {
+                buf.writeByte(FORMAT_BINARY);
+                encodedEntries.types().write(buf);
+                buf.writeVarInt(encodedEntries.bytes().length);
+                buf.writeBytes(encodedEntries.bytes());
+            }
+        } else if (!added.isEmpty()) {
+            if (BinaryStorageFormat.canEncode(added)) {
+                buf.writeByte(FORMAT_BINARY);
+
+                // Entries are written behind a length so that a client missing a codec can skip them and still read the removals
+                StorageTypeTable types = new StorageTypeTable();
+                FriendlyByteBuf entries = new FriendlyByteBuf(Unpooled.buffer(added.size() * 16));
+                BinaryStorageFormat.writeEntries(entries, added, types);
+
+                types.write(buf);
+                buf.writeVarInt(entries.readableBytes());
+                buf.writeBytes(entries);
+            } else {
+                buf.writeByte(FORMAT_NBT);
+                for (IStorageData data : added) buf.writeNbt(data.serializeToNBT());
+            }
+        }
+
+        buf.writeVarInt(removed.length);
+        for (long pos : removed) buf.writeLong(pos);
+    }
+
+    /**
+     * Reads a payload written by {@link #write(FriendlyByteBuf)}, decoding its entries.
+     * Entries that cannot be decoded are left out
+     * @param buf The {@link FriendlyByteBuf} to read from
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload read(FriendlyByteBuf buf) {
+        Operation operation = Operation.byId(buf.readUnsignedByte());
+        ResourceLocation dimension = buf.readBoolean() ? buf.readResourceLocation() : null;
+        long seq = buf.readVarLong() - 1;
+        int version = buf.readVarInt();
+        boolean complete = buf.readBoolean();
+        long epoch = hasEpoch(operation) ? buf.readLong() : 0;
+        ChunkArea coverage = buf.readBoolean() ? ChunkArea.read(buf) : null;
+        long[] replacedChunks = new long[buf.readVarInt()];
+        for (int i = 0; i < replacedChunks.length; i++) replacedChunks[i] = buf.readLong();
+
+        List<IStorageData> added = new ArrayList<>();
+        int count = buf.readVarInt();
+        if (count > 0) {
+            byte format = buf.readByte();
+            if (format == FORMAT_BINARY) {
+                StorageTypeTable types = StorageTypeTable.read(buf);
+                FriendlyByteBuf entries = new FriendlyByteBuf(buf.readBytes(buf.readVarInt()));
+                try {
+                    added.addAll(BinaryStorageFormat.readEntries(entries, types, version));
+                } catch (RuntimeException e) {
+                    PMWeatherAPI.LOGGER.error("Invalid binary data in storage packet: {}", e.getMessage());
+                } finally {
+                    entries.release();
+                }
+            } else {
+                for (int i = 0; i < count; i++) {
+                    CompoundTag tag = buf.readNbt();
+                    IStorageData data = tag == null ? null : StorageDataManager.get(tag, version);
+                    if (data != null) added.add(data);
+                }
+            }
+        }
+
+        long[] removed = new long[buf.readVarInt()];
+        for (int i = 0; i < removed.length; i++) removed[i] = buf.readLong();
+
+        return new StoragePayload(operation, dimension, seq, version, complete, added, removed).withEpoch(epoch).withCoverage(coverage).withReplacedChunks(replacedChunks).received();
+    }
+
+    /**
+     * Gets a payload whose added entries are not shared with the server.
+     * Packets to a singleplayer host are passed in memory, so their payload still holds the server's {@link IStorageData}
+     * and is copied by encoding and reading it again
+     * @return This payload if it was read from a packet or a tag, or a copy of it otherwise
+     * @since 0.16.4.0
+     */
+    public StoragePayload detached() {
+        if (received) return this;
+
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        try {
+            write(buf);
+            StoragePayload copy = read(buf);
+            copy.source = source;
+            return copy;
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Decodes a {@link CompoundTag} in the format of older packets, see {@link #toTag()}.
+     * Entries that cannot be decoded are left out
+     * @param tag The {@link CompoundTag} of the packet
+     * @return A new {@link StoragePayload}, or {@code null} if the tag has an unknown operation
+     * @since 0.16.4.0
+     */
+    public static StoragePayload fromTag(CompoundTag tag) {
+        Operation operation = Operation.byName(tag.getString("operation"));
+        return operation == null ? null : fromTag(tag, operation);
+    }
+
+    /**
+     * Decodes a {@link CompoundTag} in the format of older packets as the given operation, ignoring its {@code operation} key
+     * @param tag The {@link CompoundTag} of the packet
+     * @param operation The {@link Operation} of the packet
+     * @return A new {@link StoragePayload}
+     * @since 0.16.4.0
+     */
+    public static StoragePayload fromTag(CompoundTag tag, Operation operation) {
+        ResourceLocation dimension = tag.contains("dimension") ? ResourceLocation.tryParse(tag.getString("dimension")) : null;
+        long seq = tag.contains("seq") ? tag.getLong("seq") : -1;
+        int version = tag.getInt("version");
+        boolean complete = !tag.contains("complete") || tag.getBoolean("complete");
+
+        List<IStorageData> added = new ArrayList<>();
+        long[] removed = new long[0];
+        switch (operation) {
+            case OVERWRITE, PAGE, ADD, RESUME -> readTagEntries(tag, version, added);
+            case REMOVE -> removed = readTagRemovals(tag, version);
+            case DELTA, AREA -> {
+                if (tag.contains("add")) {
+                    try {
+                        added.addAll(BinaryStorageFormat.readList(tag.getCompound("add"), version));
+                    } catch (RuntimeException e) {
+                        PMWeatherAPI.LOGGER.info("Invalid data in {} packet: {}", operation.getSerializedName(), e.getMessage());
+                    }
+                }
+
+                removed = tag.getLongArray("remove");
+            }
+        }
+
+        return new StoragePayload(operation, dimension, seq, version, complete, added, removed)
+            .withEpoch(tag.getLong("epoch"))
+            .withCoverage(tag.contains("coverage") ? ChunkArea.fromArray(tag.getIntArray("coverage")) : null)
+            .withReplacedChunks(tag.getLongArray("replaced"))
+            .received();
+    }
+
+    private static void readTagEntries(CompoundTag tag, int version, List<IStorageData> added) {
+        if (tag.contains("types")) {
+            // list format with a type table, binary or NBT
+            try {
+                added.addAll(BinaryStorageFormat.readList(tag, version));
+            } catch (RuntimeException e) {
+                PMWeatherAPI.LOGGER.info("Invalid binary data in packet: {}", e.getMessage());
+            }
+        } else if (tag.contains("list") && tag.getBoolean("list")) {
+            // list format
+            for (Tag entry : tag.getList("data", Tag.TAG_COMPOUND)) {
+                IStorageData data = StorageData.deserializeFromNBT((CompoundTag) entry, version);
+                if (data != null) added.add(data);
+            }
+        } else if (tag.contains("data")) {
+            IStorageData data = StorageData.deserializeFromNBT(tag.getCompound("data"), version);
+            if (data != null) added.add(data);
+        }
+    }
+
+    private static long[] readTagRemovals(CompoundTag tag, int version) {
+        LongArrayList removed = new LongArrayList();
+        if (!tag.contains("format")) {
+            // data
+            if (tag.contains("list") && tag.getBoolean("list")) {
+                for (Tag entry : tag.getList("data", Tag.TAG_COMPOUND)) {
+                    IStorageData data = StorageData.deserializeFromNBT((CompoundTag) entry, version);
+                    if (data != null) removed.add(data.getPos().asLong());
+                }
+            } else {
+                IStorageData data = StorageData.deserializeFromNBT(tag.getCompound("data"), version);
+                if (data != null) removed.add(data.getPos().asLong());
+            }
+        } else if (tag.getString("format").equals("blockpos")) {
+            if (tag.contains("list") && tag.getBoolean("list")) {
+                for (Tag entry : tag.getList("data", Tag.TAG_INT_ARRAY)) {
+                    int[] pos = ((IntArrayTag) entry).getAsIntArray();
+                    if (pos.length == 3) removed.add(BlockPos.asLong(pos[0], pos[1], pos[2]));
+                }
+            } else {
+                NbtUtils.readBlockPos(tag, "data").ifPresent(pos -> removed.add(pos.asLong()));
+            }
+        } else {
+            PMWeatherAPI.LOGGER.info("Invalid data format for packet: '{}'!", tag.getString("format"));
+        }
+
+        return removed.toLongArray();
+    }
+
+    private static boolean hasEpoch(Operation operation) {
+        return operation == Operation.OVERWRITE || operation == Operation.RESUME;
+    }
+
+    /**
+     * Converts this payload to the {@link CompoundTag} format of older packets,
+     * for storages whose {@link S2CStoragePacket} only carries a {@link CompoundTag}
+     * @return A new {@link CompoundTag}
+     * @since 0.16.4.0
+     */
+    public CompoundTag toTag() {
+        CompoundTag tag = new CompoundTag();
+        tag.putString("operation", operation.getSerializedName());
+        if (dimension != null) tag.putString("dimension", dimension.toString());
+        if (seq >= 0) tag.putLong("seq", seq);
+        tag.putInt("version", version);
+        if (!complete) tag.putBoolean("complete", false);
+        if (epoch != 0) tag.putLong("epoch", epoch);
+        if (coverage != null) tag.putIntArray("coverage", coverage.toArray());
+        if (replacedChunks.length > 0) tag.putLongArray("replaced", replacedChunks);
+
+        switch (operation) {
+            case OVERWRITE, PAGE, ADD, RESUME -> BinaryStorageFormat.writeList(tag, added());
+            case REMOVE -> {
+                tag.putString("format", "blockpos");
+                tag.putBoolean("list", true);
+
+                ListTag list = new ListTag();
+                for (long pos : removed) {
+                    BlockPos blockPos = BlockPos.of(pos);
+                    list.add(new IntArrayTag(new int[] {blockPos.getX(), blockPos.getY(), blockPos.getZ()}));
+                }
+                tag.put("data", list);
+            }
+            case DELTA, AREA -> {
+                if (!added.isEmpty()) {
+                    CompoundTag addTag = new CompoundTag();
+                    BinaryStorageFormat.writeList(addTag, added);
+                    tag.put("add", addTag);
+                }
+
+                if (removed.length > 0) tag.put("remove", new LongArrayTag(removed));
+            }
+        }
+
+        return tag;
+    }
+
+    /**
+     * Added entries that are already encoded as a {@link BinaryStorageFormat} list payload, see {@link BinaryStorageFormat#writeEntries}
+     * @param types The {@link StorageTypeTable} the entries were encoded with
+     * @param count The amount of entries
+     * @param bytes The encoded list payload
+     * @since 0.16.4.0
+     */
+    public record EncodedEntries(StorageTypeTable types, int count, byte[] bytes) {}
+
+    /**
+     * The operations a {@link StoragePayload} can perform on a client storage
+     * @since 0.16.4.0
+     */
+    public enum Operation {
+        /**
+         * Replaces all data with the added data
+         */
+        OVERWRITE("overwrite"),
+        /**
+         * Adds the next page of a full sync started by {@link #OVERWRITE}
+         */
+        PAGE("page"),
+        /**
+         * Adds or replaces the added data
+         */
+        ADD("add"),
+        /**
+         * Removes the data at the removed positions
+         */
+        REMOVE("remove"),
+        /**
+         * Removes and then adds data, as one sequenced change
+         */
+        DELTA("delta"),
+        /**
+         * Brings a cached copy of the storage up to date: clears the replaced chunks and the data outside the coverage, then adds the added data.
+         * Like {@link #OVERWRITE}, it may be followed by {@link #PAGE}s
+         */
+        RESUME("resume"),
+        /**
+         * Removes the data that left the client's area and adds the data that entered it, without a sequence number
+         */
+        AREA("area");
+
+        private static final Operation[] VALUES = values();
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return The name of this operation in the {@link CompoundTag} format
+         * @since 0.16.4.0
+         */
+        public String getSerializedName() {
+            return name;
+        }
+
+        /**
+         * Gets an operation by its name in the {@link CompoundTag} format
+         * @param name The name of the operation
+         * @return The {@link Operation}, or {@code null} if there is no operation with this name
+         * @since 0.16.4.0
+         */
+        public static Operation byName(String name) {
+            for (Operation operation : VALUES) {
+                if (operation.name.equals(name)) return operation;
+            }
+
+            return null;
+        }
+
+        /**
+         * Gets an operation by its ordinal
+         * @param id The ordinal of the operation
+         * @return The {@link Operation}
+         * @throws IllegalArgumentException If there is no operation with this ordinal
+         * @since 0.16.4.0
+         */
+        public static Operation byId(int id) {
+            if (id < 0 || id >= VALUES.length) throw new IllegalArgumentException("Unknown storage packet operation " + id);
+            return VALUES[id];
+        }
+    }
+}
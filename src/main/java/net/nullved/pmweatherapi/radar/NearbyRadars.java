@@ -3,6 +3,7 @@ package net.nullved.pmweatherapi.radar;
 import dev.protomanly.pmweather.block.RadarBlock;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceKey;
+import net.minecraft.util.Mth;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
@@ -17,9 +18,10 @@ import net.nullved.pmweatherapi.storage.data.StorageData;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  * Get all the radars within a given radius around a {@link BlockPos} or {@link ChunkPos}
@@ -76,11 +78,13 @@ public class NearbyRadars {
      * @since 0.14.15.1
      */
     public Set<BlockPos> radarsNearBlock(BlockPos pos, double radius) {
-        return storage.getAllWithinRange(pos, radius)
-            .stream()
-            .map(StorageData::getPos)
-            .filter(p -> p != pos)
-            .collect(Collectors.toSet());
+        Set<BlockPos> radarList = new HashSet<>();
+
+        storage.forAllWithinRange(pos, radius, radar -> {
+            if (!radar.getPos().equals(pos)) radarList.add(radar.getPos());
+        });
+
+        return radarList;
 
 //        for (RadarStorageData radar: storage.getAll()) {
 //            if (Math.abs(radar.getPos().distToCenterSqr(pos.getX(), pos.getY(), pos.getZ())) <= radius * radius) radarList.add(radar.getPos());
@@ -97,9 +101,9 @@ public class NearbyRadars {
     public Set<BlockPos> radarsNearChunk(ChunkPos pos, double radius) {
         Set<BlockPos> radarList = new HashSet<>();
 
-        for (RadarStorageData radar: storage.getAll()) {
+        storage.forAllWithinArea(Mth.floor(pos.getMiddleBlockX() - radius) - 1, Mth.floor(pos.getMiddleBlockZ() - radius) - 1, Mth.ceil(pos.getMiddleBlockX() + radius), Mth.ceil(pos.getMiddleBlockZ() + radius), radar -> {
             if (Math.abs(radar.getPos().distToCenterSqr(pos.getMiddleBlockX(), radar.getPos().getY(), pos.getMiddleBlockZ())) <= radius * radius) radarList.add(radar.getPos());
-        }
+        });
 
         return radarList;
     }
@@ -114,13 +118,47 @@ public class NearbyRadars {
     public Set<BlockPos> radarsNearPlayer(Player player, double radius) {
         Set<BlockPos> radarList = new HashSet<>();
 
-        for (RadarStorageData radar: storage.getAll()) {
+        storage.forAllWithinArea(Mth.floor(player.getX() - radius) - 1, Mth.floor(player.getZ() - radius) - 1, Mth.ceil(player.getX() + radius), Mth.ceil(player.getZ() + radius), radar -> {
             if (Math.abs(radar.getPos().distToCenterSqr(player.getX(), player.getY(), player.getZ())) <= radius * radius) radarList.add(radar.getPos());
-        }
+        });
 
         return radarList;
     }
 
+    /**
+     * Returns a {@link List} of the {@link BlockPos} of the {@code k} nearest {@link RadarBlock}s to the block, nearest first
+     * @param pos The {@link BlockPos} to search around
+     * @param k The maximum amount of radars to return
+     * @return A {@link List} of up to {@code k} {@link BlockPos}
+     * @since 0.16.4.0
+     */
+    public List<BlockPos> nearestRadars(BlockPos pos, int k) {
+        return storage.getNearest(pos, k).stream().map(StorageData::getPos).toList();
+    }
+
+    /**
+     * Returns the {@link BlockPos} of the nearest {@link RadarBlock} to the block
+     * @param pos The {@link BlockPos} to search around
+     * @return The {@link BlockPos} of the nearest radar, if there are any radars
+     * @since 0.16.4.0
+     */
+    public Optional<BlockPos> nearestRadar(BlockPos pos) {
+        List<RadarStorageData> nearest = storage.getNearest(pos, 1);
+        return nearest.isEmpty() ? Optional.empty() : Optional.of(nearest.get(0).getPos());
+    }
+
+    /**
+     * Determines if there is any {@link RadarBlock} in a defined radius around, but not including, the block.
+     * Stops searching as soon as one is found
+     * @param pos The {@link BlockPos} of the block at the center of the search area
+     * @param radius The radius of the search area
+     * @return {@code true} if there is a radar within the radius
+     * @since 0.16.4.0
+     */
+    public boolean anyRadarNearBlock(BlockPos pos, double radius) {
+        return storage.findFirstWithin(pos, radius, radar -> !radar.getPos().equals(pos)).isPresent();
+    }
+
 
     /**
      * Executes the given {@link Consumer} for each {@link BlockPos} of a {@link RadarBlock} in a defined radius around the block
@@ -130,8 +168,9 @@ public class NearbyRadars {
      * @since 0.14.15.1
      */
     public void forRadarNearBlock(BlockPos block, double radius, Consumer<BlockPos> consumer) {
-        Set<BlockPos> radars = radarsNearBlock(block, radius);
-        for (BlockPos radar: radars) consumer.accept(radar);
+        storage.forAllWithinRange(block, radius, radar -> {
+            if (!radar.getPos().equals(block)) consumer.accept(radar.getPos());
+        });
     }
 
     /**
@@ -142,8 +181,9 @@ public class NearbyRadars {
      * @since 0.14.15.0
      */
     public void forRadarNearChunk(ChunkPos chunk, double radius, Consumer<BlockPos> consumer) {
-        Set<BlockPos> radars = radarsNearChunk(chunk, radius);
-        for (BlockPos radar: radars) consumer.accept(radar);
+        storage.forAllWithinArea(Mth.floor(chunk.getMiddleBlockX() - radius) - 1, Mth.floor(chunk.getMiddleBlockZ() - radius) - 1, Mth.ceil(chunk.getMiddleBlockX() + radius), Mth.ceil(chunk.getMiddleBlockZ() + radius), radar -> {
+            if (Math.abs(radar.getPos().distToCenterSqr(chunk.getMiddleBlockX(), radar.getPos().getY(), chunk.getMiddleBlockZ())) <= radius * radius) consumer.accept(radar.getPos());
+        });
     }
 
     /**
@@ -154,7 +194,8 @@ public class NearbyRadars {
      * @since 0.14.15.4
      */
     public void forRadarNearPlayer(Player player, double radius, Consumer<BlockPos> consumer) {
-        Set<BlockPos> radars = radarsNearPlayer(player, radius);
-        for (BlockPos radar: radars) consumer.accept(radar);
+        storage.forAllWithinArea(Mth.floor(player.getX() - radius) - 1, Mth.floor(player.getZ() - radius) - 1, Mth.ceil(player.getX() + radius), Mth.ceil(player.getZ() + radius), radar -> {
+            if (Math.abs(radar.getPos().distToCenterSqr(player.getX(), player.getY(), player.getZ())) <= radius * radius) consumer.accept(radar.getPos());
+        });
     }
 }
@@ -7,11 +7,14 @@ import net.minecraft.server.level.ServerLevel;
 import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
 import net.nullved.pmweatherapi.client.radar.WSRClientStorage;
+import net.nullved.pmweatherapi.data.PMWExtras;
 import net.nullved.pmweatherapi.data.PMWStorages;
 import net.nullved.pmweatherapi.network.S2CRadarPacket;
 import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
 import net.nullved.pmweatherapi.storage.IServerStorage;
 import net.nullved.pmweatherapi.storage.ISyncServerStorage;
+import net.nullved.pmweatherapi.storage.reconcile.IBlockTracker;
 
 /**
  * {@link IServerStorage} for {@link RadarBlock}s
@@ -23,6 +26,12 @@ import net.nullved.pmweatherapi.storage.ISyncServerStorage;
  * @see RadarClientStorage
  */
 public class RadarServerStorage extends RadarStorage implements ISyncServerStorage<RadarStorageData> {
+    /**
+     * The {@link IBlockTracker} for {@link RadarBlock}s
+     * @since 0.16.4.0
+     */
+    public static final IBlockTracker<RadarStorageData> TRACKER = IBlockTracker.of(state -> state.getBlock() instanceof RadarBlock, (level, pos, state) -> new RadarStorageData(pos, state.getValue(PMWExtras.RADAR_MODE), state.getValue(RadarBlock.ON)));
+
     private final ServerLevel level;
 
     /**
@@ -46,4 +55,9 @@ public class RadarServerStorage extends RadarStorage implements ISyncServerStora
     public S2CStoragePacket<? extends IClientStorage<RadarStorageData>> packet(CompoundTag tag) {
         return new S2CRadarPacket(tag);
     }
+
+    @Override
+    public S2CStoragePacket<? extends IClientStorage<RadarStorageData>> packet(StoragePayload payload) {
+        return new S2CRadarPacket(payload);
+    }
 }
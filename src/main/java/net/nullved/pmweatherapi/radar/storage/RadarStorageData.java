@@ -4,11 +4,16 @@ import dev.protomanly.pmweather.block.RadarBlock;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtUtils;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.PMWeatherAPI;
 import net.nullved.pmweatherapi.radar.RadarMode;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.IStorageDataCodec;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 
+import java.util.Objects;
+
 /**
  * {@link StorageData} for {@link RadarBlock}s.
  * Includes position and radar mode data
@@ -18,6 +23,18 @@ import net.nullved.pmweatherapi.storage.data.StorageData;
  */
 public class RadarStorageData extends StorageData {
     public static final ResourceLocation ID = PMWeatherAPI.rl("radar");
+    public static final IStorageDataCodec<RadarStorageData> CODEC = new IStorageDataCodec<>() {
+        @Override
+        public void encode(RadarStorageData data, FriendlyByteBuf buf) {
+            buf.writeUtf(data.radarMode.getSerializedName());
+            buf.writeBoolean(data.on);
+        }
+
+        @Override
+        public RadarStorageData decode(BlockPos pos, FriendlyByteBuf buf, int version) {
+            return new RadarStorageData(pos, RadarMode.get(buf.readUtf()), buf.readBoolean());
+        }
+    };
     private final RadarMode radarMode;
     private final boolean on;
 
@@ -40,6 +57,11 @@ public class RadarStorageData extends StorageData {
         return ID;
     }
 
+    @Override
+    public boolean isEquivalent(IStorageData other) {
+        return other instanceof RadarStorageData radar && pos.equals(radar.pos) && Objects.equals(radarMode, radar.radarMode) && on == radar.on;
+    }
+
     @Override
     public CompoundTag serializeToNBT() {
         CompoundTag tag = super.serializeToNBT();
@@ -8,9 +8,11 @@ import net.nullved.pmweatherapi.client.radar.WSRClientStorage;
 import net.nullved.pmweatherapi.data.PMWStorages;
 import net.nullved.pmweatherapi.network.S2CRadarPacket;
 import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
 import net.nullved.pmweatherapi.network.S2CWSRPacket;
 import net.nullved.pmweatherapi.storage.IServerStorage;
 import net.nullved.pmweatherapi.storage.ISyncServerStorage;
+import net.nullved.pmweatherapi.storage.reconcile.IBlockTracker;
 
 /**
  * {@link IServerStorage} for {@link WSR88DCore}s
@@ -22,6 +24,12 @@ import net.nullved.pmweatherapi.storage.ISyncServerStorage;
  * @see WSRClientStorage
  */
 public class WSRServerStorage extends WSRStorage implements ISyncServerStorage<WSRStorageData> {
+    /**
+     * The {@link IBlockTracker} for {@link WSR88DCore}s
+     * @since 0.16.4.0
+     */
+    public static final IBlockTracker<WSRStorageData> TRACKER = IBlockTracker.of(state -> state.getBlock() instanceof WSR88DCore, (level, pos, state) -> new WSRStorageData(pos, ((WSR88DCore) state.getBlock()).isComplete(state)));
+
     private final ServerLevel level;
 
     /**
@@ -45,4 +53,9 @@ public class WSRServerStorage extends WSRStorage implements ISyncServerStorage<W
     public S2CStoragePacket<? extends IClientStorage<WSRStorageData>> packet(CompoundTag tag) {
         return new S2CWSRPacket(tag);
     }
+
+    @Override
+    public S2CStoragePacket<? extends IClientStorage<WSRStorageData>> packet(StoragePayload payload) {
+        return new S2CWSRPacket(payload);
+    }
 }
@@ -3,8 +3,11 @@ package net.nullved.pmweatherapi.radar.storage;
 import dev.protomanly.pmweather.multiblock.wsr88d.WSR88DCore;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.IStorageDataCodec;
 import net.nullved.pmweatherapi.storage.data.StorageData;
 
 /**
@@ -16,6 +19,17 @@ import net.nullved.pmweatherapi.storage.data.StorageData;
  */
 public class WSRStorageData extends StorageData {
     public static final ResourceLocation ID = PMWeatherAPI.rl("wsr");
+    public static final IStorageDataCodec<WSRStorageData> CODEC = new IStorageDataCodec<>() {
+        @Override
+        public void encode(WSRStorageData data, FriendlyByteBuf buf) {
+            buf.writeBoolean(data.completed);
+        }
+
+        @Override
+        public WSRStorageData decode(BlockPos pos, FriendlyByteBuf buf, int version) {
+            return new WSRStorageData(pos, buf.readBoolean());
+        }
+    };
     private final boolean completed;
 
     public WSRStorageData(BlockPos pos, boolean completed) {
@@ -32,6 +46,11 @@ public class WSRStorageData extends StorageData {
         return ID;
     }
 
+    @Override
+    public boolean isEquivalent(IStorageData other) {
+        return other instanceof WSRStorageData wsr && pos.equals(wsr.pos) && completed == wsr.completed;
+    }
+
     @Override
     public CompoundTag serializeToNBT() {
         CompoundTag tag = super.serializeToNBT();
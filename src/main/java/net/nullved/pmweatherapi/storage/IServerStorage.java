@@ -2,16 +2,18 @@ package net.nullved.pmweatherapi.storage;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.NbtUtils;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.data.PMWStorages;
 import net.nullved.pmweatherapi.network.PMWNetworking;
 import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
-import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.sync.PagedSync;
+import net.nullved.pmweatherapi.storage.sync.PlayerInterest;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
 
 import java.util.Collection;
 
@@ -39,132 +41,129 @@ public interface IServerStorage<D extends IStorageData> extends IStorage<D> {
     S2CStoragePacket<? extends IClientStorage<D>> packet(CompoundTag tag);
 
     /**
-     * Syncs all {@link IStorageData} to all players
+     * Generates a {@link S2CStoragePacket} carrying a binary {@link StoragePayload}.
+     * Override this to return a packet created with {@link S2CStoragePacket#S2CStoragePacket(StoragePayload)};
+     * by default the payload is converted to the {@link CompoundTag} format for {@link #packet(CompoundTag)}
+     * @param payload The {@link StoragePayload} to be sent
+     * @return A {@link S2CStoragePacket} instance
+     * @since 0.16.4.0
+     */
+    default S2CStoragePacket<? extends IClientStorage<D>> packet(StoragePayload payload) {
+        return packet(payload.toTag());
+    }
+
+    /**
+     * Syncs all {@link IStorageData} to all players in this storage's dimension, in pages (see {@link PagedSync}).
+     * Pending changes in the {@link StorageSyncJournal} are dropped, since the full sync already contains them.
+     * Storages with {@link StorageOptions#interestManaged()} send each player in the dimension only the data in their {@link PlayerInterest} area
      * @since 0.15.3.3
      */
     default void syncAllToAll() {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "overwrite");
-        tag.putBoolean("list", true);
-
-        ListTag list = new ListTag();
-        getAll().forEach(data -> list.add(data.serializeToNBT()));
-
-        tag.put("data", list);
-
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+        StorageSyncJournal.of(this).clear();
+        getLevel().players().forEach(this::syncAllToPlayer);
     }
 
     /**
-     * Syncs all {@link IStorageData} from the storage to the given player
+     * Syncs all {@link IStorageData} from the storage to the given player.
+     * The data is sent in pages over the following ticks by {@link PagedSync}, replacing any unfinished full sync of this storage.
+     * Storages with {@link StorageOptions#interestManaged()} only send the data in the player's {@link PlayerInterest} area
      * @param player The {@link Player} to sync all data to
      * @since 0.15.3.3
      */
     default void syncAllToPlayer(Player player) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "overwrite");
-        tag.putBoolean("list", true);
-
-        ListTag list = new ListTag();
-        getAll().forEach(data -> list.add(data.serializeToNBT()));
-
-        tag.put("data", list);
+        PagedSync.start(this, (ServerPlayer) player);
+    }
 
-        PMWNetworking.serverSendStorageToPlayer(tag, this::packet, player);
+    /**
+     * Starts a full sync to a player that just joined or changed dimension.
+     * The client may answer with its cached copy of the storage, in which case only what changed since is sent, see {@link PagedSync}
+     * @param player The {@link Player} to sync all data to
+     * @since 0.16.4.0
+     */
+    default void syncResumableToPlayer(Player player) {
+        PagedSync.startResumable(this, (ServerPlayer) player);
     }
 
     /**
-     * Syncs new {@link IStorageData} to all clients
+     * Syncs new {@link IStorageData} to all clients.
+     * The change is recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param data The new {@link IStorageData}
      * @since 0.15.3.3
      */
     default void syncAdd(D data) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "add");
-        tag.put("data", data.serializeToNBT());
-
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+        StorageSyncJournal.of(this).add(data);
     }
 
     /**
-     * Syncs multiple new {@link IStorageData} to all clients
+     * Syncs multiple new {@link IStorageData} to all clients.
+     * The changes are recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param datum A {@link Collection} of {@link IStorageData} to sync
      * @since 0.15.3.3
      */
     default void syncAdd(Collection<D> datum) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "add");
-        tag.putBoolean("list", true);
-
-        ListTag list = new ListTag();
-        datum.forEach(data -> list.add(data.serializeToNBT()));
-
-        tag.put("data", list);
+        StorageSyncJournal<D> journal = StorageSyncJournal.of(this);
+        datum.forEach(journal::add);
+    }
 
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+    /**
+     * Sends {@link IStorageData} to a single player right away, without a sequence number
+     * @param datum A {@link Collection} of {@link IStorageData} to send
+     * @param player The {@link Player} to send to
+     * @since 0.16.4.0
+     */
+    default void syncAddToPlayer(Collection<D> datum, Player player) {
+        PMWNetworking.serverSendStorageToPlayer(packet(StoragePayload.add(this, datum)), player);
     }
 
     /**
-     * Syncs a {@link BlockPos} removal to all clients
+     * Syncs a {@link BlockPos} removal to all clients.
+     * The change is recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param pos The {@link BlockPos} of the radar to remove
      * @since 0.15.3.3
      */
     default void syncRemove(BlockPos pos) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "remove");
-        tag.putString("format", "blockpos");
-        tag.put("data", NbtUtils.writeBlockPos(pos));
-
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+        StorageSyncJournal.of(this).remove(pos);
     }
 
     /**
-     * Syncs multiple {@link BlockPos} removals to all clients
+     * Syncs multiple {@link BlockPos} removals to all clients.
+     * The changes are recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param posList A {@link Collection} of {@link BlockPos} to sync
      * @since 0.15.3.3
      */
     default void syncRemoveByPos(Collection<BlockPos> posList) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "remove");
-        tag.putString("format", "blockpos");
-        tag.putBoolean("list", true);
-
-        ListTag list = new ListTag();
-        posList.forEach(pos -> list.remove(NbtUtils.writeBlockPos(pos)));
-
-        tag.put("data", list);
+        StorageSyncJournal<D> journal = StorageSyncJournal.of(this);
+        posList.forEach(journal::remove);
+    }
 
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+    /**
+     * Sends {@link BlockPos} removals to a single player right away, without a sequence number
+     * @param posList A {@link Collection} of {@link BlockPos} to send
+     * @param player The {@link Player} to send to
+     * @since 0.16.4.0
+     */
+    default void syncRemoveByPosToPlayer(Collection<BlockPos> posList, Player player) {
+        PMWNetworking.serverSendStorageToPlayer(packet(StoragePayload.remove(this, posList)), player);
     }
 
     /**
-     * Syncs a {@link IStorageData} removal to all clients
+     * Syncs a {@link IStorageData} removal to all clients.
+     * The change is recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param data The {@link IStorageData} of the radar to remove
      * @since 0.15.3.3
      */
     default void syncRemove(D data) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "remove");
-        tag.put("data", data.serializeToNBT());
-
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+        StorageSyncJournal.of(this).remove(data.getPos());
     }
 
     /**
-     * Syncs multiple {@link IStorageData} removals to all clients
+     * Syncs multiple {@link IStorageData} removals to all clients.
+     * The changes are recorded in the {@link StorageSyncJournal} and sent at the end of the tick
      * @param datum A {@link Collection} of {@link IStorageData} to sync
      * @since 0.15.3.3
      */
     default void syncRemoveByData(Collection<D> datum) {
-        CompoundTag tag = new CompoundTag();
-        tag.putString("operation", "remove");
-        tag.putBoolean("list", true);
-
-        ListTag list = new ListTag();
-        datum.forEach(data -> list.remove(data.serializeToNBT()));
-
-        tag.put("data", list);
-
-        PMWNetworking.serverSendStorageToAll(tag, this::packet);
+        StorageSyncJournal<D> journal = StorageSyncJournal.of(this);
+        datum.forEach(data -> journal.remove(data.getPos()));
     }
 }
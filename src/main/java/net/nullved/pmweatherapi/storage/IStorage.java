@@ -9,10 +9,14 @@ import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.radar.storage.RadarStorage;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.sync.FullSyncCache;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The interface defining a Storage such as {@link RadarStorage}
@@ -21,7 +25,8 @@ import java.util.function.Consumer;
  * On the client-side, there is one {@link IClientStorage} for each player on a world.
  * <br><br>
  * To add or remove {@link BlockPos}, use {@link #add} and {@link #remove}.
- * To get all {@link BlockPos} use {@link #getAll()} or {@link #getInChunk(ChunkPos)}
+ * To read all {@link IStorageData} without copying, use {@link #view()}, {@link #viewInChunk(ChunkPos)}, or the {@code for*} visitors.
+ * To get a snapshot copy, use {@link #getAll()} or {@link #getInChunk(ChunkPos)}
  * <br><br>
  * Optionally, Storages can be numerically versioned, however, you must write you own version mismatch handler
  * <br><br>
@@ -36,14 +41,36 @@ public interface IStorage<D extends IStorageData> {
     int version();
 
     void clean();
+    default void configure(StorageOptions options) {}
+
+    int size();
+    Collection<D> view();
+    Collection<D> viewInChunk(ChunkPos pos);
+
+    /**
+     * Gets the {@link IStorageData} at a {@link BlockPos}
+     * @param pos The {@link BlockPos}
+     * @return The {@link IStorageData}, or {@code null} if there is none
+     * @since 0.16.4.0
+     */
+    default D get(BlockPos pos) {
+        for (D data : viewInChunk(new ChunkPos(pos))) {
+            if (data.getPos().equals(pos)) return data;
+        }
+
+        return null;
+    }
 
     Set<D> getAll();
     Set<D> getAllWithinRange(BlockPos base, double radius);
     Set<D> getInChunk(ChunkPos pos);
     Set<D> getInAdjacentChunks(ChunkPos pos);
+    List<D> getNearest(BlockPos base, int k);
+    Optional<D> findFirstWithin(BlockPos base, double radius, Predicate<D> predicate);
 
     void forAll(Consumer<D> consumer);
     void forAllWithinRange(BlockPos base, double radius, Consumer<D> consumer);
+    void forAllWithinArea(int minX, int minZ, int maxX, int maxZ, Consumer<D> consumer);
     void forInChunk(ChunkPos pos, Consumer<D> consumer);
     void forInAdjacentChunks(ChunkPos pos, Consumer<D> consumer);
 
@@ -56,6 +83,18 @@ public interface IStorage<D extends IStorageData> {
     void remove(BlockPos pos);
     void removeByPos(Collection<BlockPos> pos);
 
+    default boolean isDirty() {
+        return true;
+    }
+
+    /**
+     * A counter bumped on every change to the data of this storage, used to invalidate data derived from it like the {@link FullSyncCache}
+     * @return The change counter, or {@code -1} if this storage does not count its changes
+     * @since 0.16.4.0
+     */
+    default long modCount() {
+        return -1;
+    }
     CompoundTag save(CompoundTag tag);
     void read();
 }
@@ -2,68 +2,112 @@ package net.nullved.pmweatherapi.storage;
 
 import net.minecraft.core.BlockPos;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
-import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
+/**
+ * An {@link IServerStorage} that keeps its clients in sync.
+ * <br><br>
+ * Changes made through the {@code AndSync} methods are recorded in the storage's {@link StorageSyncJournal}
+ * and sent as a single delta packet at the end of the tick, instead of one packet per call.
+ * Data {@link IStorageData#isEquivalent equivalent} to the data it would replace is skipped, so it is neither written nor sent
+ *
+ * @since 0.15.3.3
+ */
 public interface ISyncServerStorage<D extends IStorageData> extends IServerStorage<D> {
     /**
-     * Shorthand for calling {@link #add(IStorageData)} and {@link #syncAdd(IStorageData)}
+     * Gets the {@link StorageSyncJournal} that changes are recorded in until the end of the tick
+     * @return The {@link StorageSyncJournal} of this storage
+     * @since 0.16.4.0
+     */
+    default StorageSyncJournal<D> journal() {
+        return StorageSyncJournal.of(this);
+    }
+
+    /**
+     * Calls {@link #add(IStorageData)} and records the change in the {@link #journal()},
+     * unless the data is {@link IStorageData#isEquivalent equivalent} to the data it replaces
      * @param data The {@link IStorageData} to add and sync
      * @since 0.15.3.3
      */
     default void addAndSync(D data) {
+        if (isUnchanged(data)) return;
         this.add(data);
-        this.syncAdd(data);
+        journal().add(data);
     }
 
     /**
-     * Shorthand for calling {@link #add(Collection)} and {@link #syncAdd(Collection)}
+     * Calls {@link #add(Collection)} and records the changes in the {@link #journal()},
+     * leaving out data that is {@link IStorageData#isEquivalent equivalent} to the data it replaces
      * @param datum The {@link Collection} of {@link IStorageData} to add and sync
      * @since 0.15.3.3
      */
     default void addAndSync(Collection<D> datum) {
-        this.add(datum);
-        this.syncAdd(datum);
+        List<D> changed = new ArrayList<>(datum.size());
+        for (D data : datum) {
+            if (!isUnchanged(data)) changed.add(data);
+        }
+
+        if (changed.isEmpty()) return;
+        this.add(changed);
+        StorageSyncJournal<D> journal = journal();
+        changed.forEach(journal::add);
+    }
+
+    /**
+     * Checks if adding data would change nothing, because the data at its position is equivalent.
+     * Data modified in place and added again is the same instance as the stored data, so it always counts as changed
+     * @param data The {@link IStorageData} to add
+     * @return {@code true} if the add can be skipped
+     * @since 0.16.4.0
+     */
+    default boolean isUnchanged(D data) {
+        D existing = get(data.getPos());
+        return existing != null && existing != data && existing.isEquivalent(data);
     }
 
     /**
-     * Shorthand for calling {@link #remove(BlockPos)} and {@link #remove(BlockPos)}
+     * Calls {@link #remove(BlockPos)} and records the change in the {@link #journal()}
      * @param pos The {@link BlockPos} to remove and sync
      * @since 0.15.3.3
      */
     default void removeAndSync(BlockPos pos) {
         this.remove(pos);
-        this.syncRemove(pos);
+        journal().remove(pos);
     }
 
     /**
-     * Shorthand for calling {@link #removeByPos(Collection)} and {@link #syncRemoveByPos(Collection)}
+     * Calls {@link #removeByPos(Collection)} and records the changes in the {@link #journal()}
      * @param pos The {@link Collection} of {@link BlockPos} to remove and sync
      * @since 0.15.3.3
      */
     default void removeAndSyncByPos(Collection<BlockPos> pos) {
         this.removeByPos(pos);
-        this.syncRemoveByPos(pos);
+        StorageSyncJournal<D> journal = journal();
+        pos.forEach(journal::remove);
     }
 
     /**
-     * Shorthand for calling {@link #remove(IStorageData)} and {@link #syncRemove(IStorageData)}
+     * Calls {@link #remove(IStorageData)} and records the change in the {@link #journal()}
      * @param data The {@link IStorageData} to remove and sync
      * @since 0.15.3.3
      */
     default void removeAndSync(D data) {
         this.remove(data);
-        this.syncRemove(data);
+        journal().remove(data.getPos());
     }
 
     /**
-     * Shorthand for calling {@link #removeByData(Collection)} and {@link #syncRemoveByData(Collection)}
+     * Calls {@link #removeByData(Collection)} and records the changes in the {@link #journal()}
      * @param datum The {@link Collection} of {@link IStorageData} to remove and sync
      * @since 0.15.3.3
      */
     default void removeAndSyncByData(Collection<D> datum) {
         this.removeByData(datum);
-        this.syncRemoveByData(datum);
+        StorageSyncJournal<D> journal = journal();
+        datum.forEach(data -> journal.remove(data.getPos()));
     }
 }
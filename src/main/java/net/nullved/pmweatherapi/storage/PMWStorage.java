@@ -1,14 +1,29 @@
 package net.nullved.pmweatherapi.storage;
 
 import dev.protomanly.pmweather.block.RadarBlock;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMaps;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.ByteArrayTag;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.Mth;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.neoforged.neoforge.event.level.ChunkWatchEvent;
@@ -17,18 +32,27 @@ import net.nullved.pmweatherapi.client.data.IClientStorage;
 import net.nullved.pmweatherapi.client.data.PMWClientStorages;
 import net.nullved.pmweatherapi.client.radar.RadarClientStorage;
 import net.nullved.pmweatherapi.config.PMWClientConfig;
+import net.nullved.pmweatherapi.config.PMWServerConfig;
 import net.nullved.pmweatherapi.data.PMWStorageSavedData;
 import net.nullved.pmweatherapi.data.PMWStorages;
-import net.nullved.pmweatherapi.event.PMWEvents;
 import net.nullved.pmweatherapi.radar.storage.RadarServerStorage;
 import net.nullved.pmweatherapi.radar.storage.RadarStorage;
+import net.nullved.pmweatherapi.storage.backend.ChunkGridIndex;
+import net.nullved.pmweatherapi.storage.backend.ChunkedStorageBackend;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
+import net.nullved.pmweatherapi.storage.data.BinaryStorageFormat;
 import net.nullved.pmweatherapi.storage.data.IStorageData;
 import net.nullved.pmweatherapi.storage.data.StorageData;
+import net.nullved.pmweatherapi.storage.data.StorageDataManager;
+import net.nullved.pmweatherapi.storage.data.StorageTypeTable;
+import net.nullved.pmweatherapi.storage.reconcile.StorageReconciler;
+import net.nullved.pmweatherapi.storage.region.StorageRegionFiles;
+import net.nullved.pmweatherapi.storage.sync.StorageSyncJournal;
 
 import java.util.*;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 
 /**
@@ -48,6 +72,10 @@ import java.util.stream.Collectors;
  * and {@link PMWClientStorages#registerStorage(ResourceLocation, Class, Function)} on the client-side only
  * <br><br>
  * For a full implementation example, see {@link RadarStorage}, {@link RadarServerStorage}, and {@link RadarClientStorage}
+ * <br><br>
+ * By default, a {@link PMWStorage} must only be used from the thread that owns it.
+ * To read it from other threads, register it with {@link StorageOptions#concurrent()}.
+ * Writes must always come from the thread that owns the storage, as the bookkeeping of changed chunks and regions is not synchronized
  *
  * @see IStorage
  * @see IServerStorage
@@ -55,17 +83,83 @@ import java.util.stream.Collectors;
  * @since 0.15.3.3
  */
 public abstract class PMWStorage<D extends IStorageData> implements IStorage<D> {
+    private static final double NEAREST_START_RADIUS = 64.0;
+    private static final double NEAREST_MAX_RADIUS = 60_000_000.0;
+    private static final long REGION_IDLE_MILLIS = 60_000L;
+    private static final int REGION_SIZE = 1 << ChunkGridIndex.REGION_SHIFT;
 
     /**
-     * A {@link Set} of {@link IStorageData} split up by {@link ChunkPos}
-     * @since 0.15.3.3
+     * The {@link IStorageBackend} holding every {@link IStorageData}, split up by {@link ChunkPos}.
+     * Replaced by {@link #configure(StorageOptions)}
+     * @since 0.16.4.0
      */
-    private final Map<ChunkPos, Set<D>> data = new HashMap<>();
+    private IStorageBackend<D> data = new ChunkedStorageBackend<>();
     /**
-     * The times each {@link ChunkPos} was last checked
+     * The times each {@link ChunkPos} was last checked, keyed by {@link ChunkPos#toLong()}
      * @since 0.15.3.3
      */
-    private final Map<ChunkPos, Long> checkTimes = new HashMap<>();
+    private final Long2LongOpenHashMap checkTimes = new Long2LongOpenHashMap();
+    /**
+     * The serialized {@link Tag} of every saved chunk, keyed by {@link ChunkPos#toLong()}.
+     * This is a {@link ByteArrayTag} in the {@link BinaryStorageFormat} if every {@link IStorageData} in the chunk has a codec, and a {@link ListTag} otherwise.
+     * Only chunks in {@link #dirtyChunks} are serialized again on save
+     * @since 0.16.4.0
+     */
+    private final Long2ObjectOpenHashMap<Tag> chunkTags = new Long2ObjectOpenHashMap<>();
+    /**
+     * The {@link StorageTypeTable} used by the binary chunks of this {@link IStorage}
+     * @since 0.16.4.0
+     */
+    private final StorageTypeTable typeTable = new StorageTypeTable();
+    /**
+     * The chunks changed since the last save, keyed by {@link ChunkPos#toLong()}
+     * @since 0.16.4.0
+     */
+    private final LongOpenHashSet dirtyChunks = new LongOpenHashSet();
+    /**
+     * Saved chunks that could not be decoded, keyed by their key in the saved {@link CompoundTag}.
+     * Each is kept with the version and types it was saved with and written back unchanged on every save, so it is never lost
+     * @since 0.16.4.0
+     */
+    private CompoundTag quarantine = new CompoundTag();
+    /**
+     * Whether anything changed since the last save
+     * @since 0.16.4.0
+     */
+    private boolean dirty = false;
+
+    /**
+     * Bumped on every change, see {@link #modCount()}
+     * @since 0.16.4.0
+     */
+    private volatile long modCount = 0;
+    /**
+     * The data type written to the {@code type} key on save
+     * @since 0.16.4.0
+     */
+    private ResourceLocation savedType = null;
+    /**
+     * The region files of this {@link IStorage}, or {@code null} if it is saved to a single file.
+     * See {@link StorageOptions#regionFiles()}
+     * @since 0.16.4.0
+     */
+    private StorageRegionFiles regionFiles = null;
+    /**
+     * The amount of {@link IStorageData} in each saved region that is not loaded, keyed by {@link ChunkGridIndex#regionKey(long)}
+     * @since 0.16.4.0
+     */
+    private final Long2IntOpenHashMap unloadedRegions = new Long2IntOpenHashMap();
+    private int unloadedSize = 0;
+    /**
+     * The time each loaded region was last used, keyed by {@link ChunkGridIndex#regionKey(long)}
+     * @since 0.16.4.0
+     */
+    private final Long2LongOpenHashMap regionAccess = new Long2LongOpenHashMap();
+    /**
+     * The regions changed since the last save, keyed by {@link ChunkGridIndex#regionKey(long)}
+     * @since 0.16.4.0
+     */
+    private final LongOpenHashSet dirtyRegions = new LongOpenHashSet();
     /**
      * The dimension to store {@link BlockPos} for
      * @since 0.15.3.3
@@ -76,6 +170,204 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
     public void clean() {
         data.clear();
         checkTimes.clear();
+        chunkTags.clear();
+        dirtyChunks.clear();
+        quarantine = new CompoundTag();
+        dirty = true;
+        modCount++;
+        if (this instanceof IServerStorage<?> serverStorage) StorageSyncJournal.of(serverStorage).invalidate();
+
+        if (regionFiles != null) {
+            // Every saved region is now empty, so their files are deleted on the next save
+            dirtyRegions.addAll(unloadedRegions.keySet());
+            dirtyRegions.addAll(regionAccess.keySet());
+            unloadedRegions.clear();
+            regionAccess.clear();
+            unloadedSize = 0;
+        }
+    }
+
+    /**
+     * Whether this {@link IStorage} has changed since it was last saved.
+     * Clean storages are skipped entirely when the level saves
+     *
+     * @return {@code true} if this {@link IStorage} needs to be saved
+     * @since 0.16.4.0
+     */
+    @Override
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    @Override
+    public long modCount() {
+        return modCount;
+    }
+
+    /**
+     * Marks a chunk as changed, so it is serialized again on the next save.
+     * Must be called from the thread that owns the storage
+     *
+     * @param chunk The packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    protected void markDirty(long chunk) {
+        dirtyChunks.add(chunk);
+        dirty = true;
+        modCount++;
+        if (this instanceof IServerStorage<?> serverStorage) StorageSyncJournal.of(serverStorage).touch(chunk);
+
+        if (regionFiles != null) {
+            long region = ChunkGridIndex.regionKey(chunk);
+            dirtyRegions.add(region);
+            regionAccess.put(region, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Applies the {@link StorageOptions} this storage was registered with.
+     * Called by the storage instance after creating the {@link IStorage} and before reading it.
+     * Any data already stored is moved into the new {@link IStorageBackend}
+     *
+     * @param options The {@link StorageOptions} to apply
+     * @since 0.16.4.0
+     */
+    @Override
+    public void configure(StorageOptions options) {
+        IStorageBackend<D> backend = options.createBackend();
+        backend.putAll(data.values());
+        this.data = backend;
+
+        if (options.usesRegionFiles() && getLevel() instanceof ServerLevel level) {
+            this.regionFiles = new StorageRegionFiles(level, getId());
+        }
+    }
+
+    /**
+     * Loads the region holding a chunk that was just loaded in the {@link Level}.
+     * Only used by storages registered with {@link StorageOptions#regionFiles()}
+     *
+     * @param pos The loaded {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    public void onChunkLoaded(ChunkPos pos) {
+        touchArea(pos.x, pos.z, pos.x, pos.z);
+    }
+
+    /**
+     * Removes regions from memory that have not been used for a while and have no loaded chunks.
+     * They are loaded again from their region file when needed.
+     * Only used by storages registered with {@link StorageOptions#regionFiles()}
+     *
+     * @since 0.16.4.0
+     */
+    public void pageOutColdRegions() {
+        if (regionFiles == null || regionAccess.isEmpty() || !canLoadRegions()) return;
+
+        long now = System.currentTimeMillis();
+        LongArrayList cold = new LongArrayList();
+        for (Long2LongMap.Entry entry : Long2LongMaps.fastIterable(regionAccess)) {
+            // Changed regions stay loaded until they are saved
+            if (now - entry.getLongValue() > REGION_IDLE_MILLIS && !dirtyRegions.contains(entry.getLongKey())) cold.add(entry.getLongKey());
+        }
+
+        ServerLevel level = (ServerLevel) getLevel();
+        LongIterator iterator = cold.iterator();
+        while (iterator.hasNext()) {
+            long region = iterator.nextLong();
+            int minX = ChunkPos.getX(region) << ChunkGridIndex.REGION_SHIFT, minZ = ChunkPos.getZ(region) << ChunkGridIndex.REGION_SHIFT;
+
+            LongArrayList chunks = new LongArrayList();
+            boolean evictable = data.forEachChunkInArea(minX, minZ, minX + REGION_SIZE - 1, minZ + REGION_SIZE - 1, chunk -> {
+                if (level.getChunkSource().hasChunk(ChunkPos.getX(chunk), ChunkPos.getZ(chunk))) return false;
+                chunks.add(chunk);
+                return true;
+            });
+
+            if (!evictable) {
+                regionAccess.put(region, now);
+                continue;
+            }
+
+            LongArrayList positions = new LongArrayList();
+            LongIterator chunkIterator = chunks.iterator();
+            while (chunkIterator.hasNext()) {
+                long chunk = chunkIterator.nextLong();
+                data.forEachInChunk(chunk, storageData -> positions.add(storageData.getPos().asLong()));
+                chunkTags.remove(chunk);
+            }
+
+            LongIterator positionIterator = positions.iterator();
+            while (positionIterator.hasNext()) data.remove(positionIterator.nextLong());
+            regionAccess.remove(region);
+            if (!positions.isEmpty()) {
+                unloadedRegions.put(region, positions.size());
+                unloadedSize += positions.size();
+            }
+        }
+    }
+
+    private boolean canLoadRegions() {
+        return getLevel() instanceof ServerLevel level && level.getServer().isSameThread();
+    }
+
+    /**
+     * Makes sure every saved region overlapping the given chunk area is loaded.
+     * Does nothing unless this {@link IStorage} uses region files
+     */
+    private void touchArea(int minX, int minZ, int maxX, int maxZ) {
+        if (regionFiles == null || minX > maxX || minZ > maxZ || !canLoadRegions()) return;
+
+        int minRX = minX >> ChunkGridIndex.REGION_SHIFT, minRZ = minZ >> ChunkGridIndex.REGION_SHIFT;
+        int maxRX = maxX >> ChunkGridIndex.REGION_SHIFT, maxRZ = maxZ >> ChunkGridIndex.REGION_SHIFT;
+        long cells = (long) (maxRX - minRX + 1) * (long) (maxRZ - minRZ + 1);
+        long now = System.currentTimeMillis();
+
+        if (cells > unloadedRegions.size() + regionAccess.size()) {
+            LongArrayList toLoad = new LongArrayList();
+            LongIterator iterator = unloadedRegions.keySet().iterator();
+            while (iterator.hasNext()) {
+                long region = iterator.nextLong();
+                int rx = ChunkPos.getX(region), rz = ChunkPos.getZ(region);
+                if (rx >= minRX && rx <= maxRX && rz >= minRZ && rz <= maxRZ) toLoad.add(region);
+            }
+            loadRegions(toLoad);
+
+            for (Long2LongMap.Entry entry : Long2LongMaps.fastIterable(regionAccess)) {
+                int rx = ChunkPos.getX(entry.getLongKey()), rz = ChunkPos.getZ(entry.getLongKey());
+                if (rx >= minRX && rx <= maxRX && rz >= minRZ && rz <= maxRZ) entry.setValue(now);
+            }
+        } else {
+            for (int rx = minRX; rx <= maxRX; rx++) {
+                for (int rz = minRZ; rz <= maxRZ; rz++) {
+                    long region = ChunkPos.asLong(rx, rz);
+                    if (unloadedRegions.containsKey(region)) loadRegion(region);
+                    else if (regionAccess.containsKey(region)) regionAccess.put(region, now);
+                }
+            }
+        }
+    }
+
+    private void touchChunk(long chunk) {
+        if (regionFiles != null) touchArea(ChunkPos.getX(chunk), ChunkPos.getZ(chunk), ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+    }
+
+    private void loadAllRegions() {
+        if (regionFiles == null || unloadedRegions.isEmpty() || !canLoadRegions()) return;
+        loadRegions(new LongArrayList(unloadedRegions.keySet()));
+    }
+
+    private void loadRegions(LongArrayList regions) {
+        LongIterator iterator = regions.iterator();
+        while (iterator.hasNext()) loadRegion(iterator.nextLong());
+    }
+
+    private void loadRegion(long region) {
+        unloadedSize -= unloadedRegions.remove(region);
+        regionAccess.put(region, System.currentTimeMillis());
+
+        CompoundTag tag = regionFiles.read(region);
+        if (tag != null) readChunks(tag);
     }
 
     public abstract ResourceLocation getExpectedDataType();
@@ -119,17 +411,74 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
     }
 
     /**
-     * Gets a {@link Set} of every {@link IStorageData} saved in this {@link IStorage}, regardless of {@link ChunkPos}
+     * Gets the amount of {@link IStorageData} saved in this {@link IStorage}
      *
-     * @return Every saved {@link IStorageData}
+     * @return The amount of saved {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    @Override
+    public int size() {
+        return data.size() + unloadedSize;
+    }
+
+    /**
+     * Gets a read-only live view of every {@link IStorageData} saved in this {@link IStorage}, regardless of {@link ChunkPos}.
+     * Unlike {@link #getAll()}, nothing is copied, so this is the preferred way to read a whole storage.
+     * Unless the storage uses {@link StorageOptions#concurrent()}, the view must not be iterated while the storage is being modified; take a {@link #getAll()} snapshot for that
+     *
+     * @return A read-only {@link Collection} view of every saved {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    @Override
+    public Collection<D> view() {
+        loadAllRegions();
+        return data.values();
+    }
+
+    /**
+     * Gets a read-only live view of the {@link IStorageData} in this {@link ChunkPos}.
+     * Unlike {@link #getInChunk(ChunkPos)}, nothing is copied
+     *
+     * @param pos The {@link ChunkPos} to view
+     * @return A read-only {@link Collection} view of the {@link IStorageData} in this chunk
+     * @since 0.16.4.0
+     */
+    @Override
+    public Collection<D> viewInChunk(ChunkPos pos) {
+        touchChunk(pos.toLong());
+        return data.valuesInChunk(pos.toLong());
+    }
+
+    /**
+     * Gets the {@link IStorageData} at a {@link BlockPos}
+     *
+     * @param pos The {@link BlockPos}
+     * @return The {@link IStorageData}, or {@code null} if there is none
+     * @since 0.16.4.0
+     */
+    @Override
+    public D get(BlockPos pos) {
+        long key = pos.asLong();
+        touchChunk(IStorageBackend.chunkKey(key));
+        return data.get(key);
+    }
+
+    /**
+     * Gets a snapshot {@link Set} of every {@link IStorageData} saved in this {@link IStorage}, regardless of {@link ChunkPos}.
+     * This copies the whole storage, so prefer {@link #view()} or {@link #forAll(Consumer)} unless you need a copy
+     *
+     * @return A copy of every saved {@link IStorageData}
      * @since 0.15.3.3
      */
     public Set<D> getAll() {
-        return data.values().stream().flatMap(Collection::stream).collect(Collectors.toSet());
+        loadAllRegions();
+        Set<D> set = new HashSet<>(data.size());
+        data.forEach(set::add);
+        return set;
     }
 
     /**
-     * Gets a {@link Set} of every {@link IStorageData} within a given radius of the base {@link BlockPos}
+     * Gets a snapshot {@link Set} of every {@link IStorageData} within a given radius of the base {@link BlockPos}
      *
      * @param base The base {@link BlockPos}
      * @param radius The radius of the search range
@@ -138,34 +487,89 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      */
     @Override
     public Set<D> getAllWithinRange(BlockPos base, double radius) {
-        int chunks = (int) Math.ceil(radius / 16.0F) + 1;
-        ChunkPos cpos = new ChunkPos(base);
-
         HashSet<D> set = new HashSet<>();
-        for (int x = -chunks; x <= chunks; x++) {
-            for (int z = -chunks; z <= chunks; z++) {
-                for (D candidate: getInChunk(new ChunkPos(cpos.x + x, cpos.z + z))) {
-                    if (Math.abs(base.distToCenterSqr(candidate.getPos().getX(), candidate.getPos().getY(), candidate.getPos().getZ())) <= radius * radius) set.add(candidate);
-                }
-            }
+        forAllWithinRange(base, radius, set::add);
+        return set;
+    }
+
+    /**
+     * Gets a {@link List} of the {@code k} nearest {@link IStorageData} to the base {@link BlockPos}, sorted nearest first.
+     * <br>
+     * The search starts close to the base {@link BlockPos} and doubles its radius until enough {@link IStorageData} have been found,
+     * so nearby results are found without visiting the rest of the {@link IStorage}
+     *
+     * @param base The base {@link BlockPos}
+     * @param k The maximum amount of {@link IStorageData} to return
+     * @return Up to {@code k} {@link IStorageData}, sorted by distance to the base {@link BlockPos}
+     * @since 0.16.4.0
+     */
+    @Override
+    public List<D> getNearest(BlockPos base, int k) {
+        if (k <= 0 || size() == 0) return List.of();
+
+        List<D> found = new ArrayList<>();
+        double radius = NEAREST_START_RADIUS;
+        while (true) {
+            found.clear();
+            forAllWithinRange(base, radius, found::add);
+
+            // Every data outside the radius is further away than every data inside of it, so the k nearest are inside
+            if (found.size() >= k || found.size() >= size() || radius >= NEAREST_MAX_RADIUS) break;
+            radius *= 2.0;
         }
 
-        return set;
+        found.sort(Comparator.comparingDouble(d -> base.distToCenterSqr(d.getPos().getX(), d.getPos().getY(), d.getPos().getZ())));
+        return found.size() > k ? new ArrayList<>(found.subList(0, k)) : found;
     }
 
     /**
-     * Gets the {@link Set} of {@link IStorageData} for this {@link ChunkPos}
+     * Finds the first {@link IStorageData} within a given radius of the base {@link BlockPos} that matches a {@link Predicate}.
+     * The search stops as soon as a match is found, and the match is not guaranteed to be the nearest one.
+     * Use {@link #getNearest(BlockPos, int)} if you need the nearest
+     *
+     * @param base The base {@link BlockPos}
+     * @param radius The radius of the search range
+     * @param predicate The {@link Predicate} to test each {@link IStorageData} with
+     * @return The first matching {@link IStorageData}, if any
+     * @since 0.16.4.0
+     */
+    @Override
+    public Optional<D> findFirstWithin(BlockPos base, double radius, Predicate<D> predicate) {
+        double radiusSqr = radius * radius;
+        List<D> result = new ArrayList<>(1);
+        int minX = Mth.floor(base.getX() + 0.5 - radius) >> 4, minZ = Mth.floor(base.getZ() + 0.5 - radius) >> 4;
+        int maxX = Mth.floor(base.getX() + 0.5 + radius) >> 4, maxZ = Mth.floor(base.getZ() + 0.5 + radius) >> 4;
+
+        touchArea(minX, minZ, maxX, maxZ);
+        data.forEachChunkInArea(minX, minZ, maxX, maxZ,
+            chunk -> {
+                D match = data.findInChunk(chunk, candidate -> base.distToCenterSqr(candidate.getPos().getX(), candidate.getPos().getY(), candidate.getPos().getZ()) <= radiusSqr && predicate.test(candidate));
+                if (match == null) return true;
+
+                result.add(match);
+                return false;
+            }
+        );
+
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * Gets a snapshot {@link Set} of {@link IStorageData} for this {@link ChunkPos}
      *
      * @param pos The {@link ChunkPos} to search
      * @return A {@link Set} of the {@link IStorageData} in this chunk
      * @since 0.15.3.3
      */
     public Set<D> getInChunk(ChunkPos pos) {
-        return data.getOrDefault(pos, Set.of());
+        Set<D> set = new HashSet<>();
+        touchChunk(pos.toLong());
+        data.forEachInChunk(pos.toLong(), set::add);
+        return set;
     }
 
     /**
-     * Gets the {@link Set} of {@link IStorageData} within this and adjacent {@link ChunkPos}'
+     * Gets a snapshot {@link Set} of {@link IStorageData} within this and adjacent {@link ChunkPos}'
      *
      * @param pos The middle {@link ChunkPos}
      * @return A {@link Set} of the {@link IStorageData} in this and adjacent chunks
@@ -174,9 +578,10 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
     @Override
     public Set<D> getInAdjacentChunks(ChunkPos pos) {
         Set<D> set = new HashSet<>();
+        touchArea(pos.x - 1, pos.z - 1, pos.x + 1, pos.z + 1);
         for (int x = -1; x <= 1; x++) {
             for (int z = -1; z <= 1; z++) {
-                set.addAll(getInChunk(new ChunkPos(pos.x + x, pos.z + z)));
+                data.forEachInChunk(ChunkPos.asLong(pos.x + x, pos.z + z), set::add);
             }
         }
         return set;
@@ -191,7 +596,8 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      */
     @Override
     public void forAll(Consumer<D> consumer) {
-        getAll().forEach(consumer);
+        loadAllRegions();
+        data.forEach(consumer);
     }
 
     /**
@@ -204,7 +610,38 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      */
     @Override
     public void forAllWithinRange(BlockPos base, double radius, Consumer<D> consumer) {
-        getAllWithinRange(base, radius).forEach(consumer);
+        double radiusSqr = radius * radius;
+
+        forAllWithinArea(
+            Mth.floor(base.getX() + 0.5 - radius), Mth.floor(base.getZ() + 0.5 - radius),
+            Mth.floor(base.getX() + 0.5 + radius), Mth.floor(base.getZ() + 0.5 + radius),
+            candidate -> {
+                if (base.distToCenterSqr(candidate.getPos().getX(), candidate.getPos().getY(), candidate.getPos().getZ()) <= radiusSqr) consumer.accept(candidate);
+            }
+        );
+    }
+
+    /**
+     * Executes a {@link Consumer} for every {@link IStorageData} whose x and z coordinates are within the given block area (inclusive), at any height.
+     * Only chunks that hold data are visited, so this is cheap even for large areas
+     *
+     * @param minX The minimum x-coordinate
+     * @param minZ The minimum z-coordinate
+     * @param maxX The maximum x-coordinate
+     * @param maxZ The maximum z-coordinate
+     * @param consumer The function to run for each {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    @Override
+    public void forAllWithinArea(int minX, int minZ, int maxX, int maxZ, Consumer<D> consumer) {
+        touchArea(minX >> 4, minZ >> 4, maxX >> 4, maxZ >> 4);
+        data.forEachChunkInArea(minX >> 4, minZ >> 4, maxX >> 4, maxZ >> 4, chunk -> {
+            data.forEachInChunk(chunk, candidate -> {
+                BlockPos pos = candidate.getPos();
+                if (pos.getX() >= minX && pos.getX() <= maxX && pos.getZ() >= minZ && pos.getZ() <= maxZ) consumer.accept(candidate);
+            });
+            return true;
+        });
     }
 
     /**
@@ -216,7 +653,8 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      */
     @Override
     public void forInChunk(ChunkPos pos, Consumer<D> consumer) {
-        getInChunk(pos).forEach(consumer);
+        touchChunk(pos.toLong());
+        data.forEachInChunk(pos.toLong(), consumer);
     }
 
     /**
@@ -228,43 +666,56 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      */
     @Override
     public void forInAdjacentChunks(ChunkPos pos, Consumer<D> consumer) {
-        getInAdjacentChunks(pos).forEach(consumer);
+        touchArea(pos.x - 1, pos.z - 1, pos.x + 1, pos.z + 1);
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                data.forEachInChunk(ChunkPos.asLong(pos.x + x, pos.z + z), consumer);
+            }
+        }
     }
 
     /**
-     * Determines if the data for the given {@link ChunkPos} is older than 30 seconds or does not exist.
-     * Intended to be used while listening to a {@link ChunkWatchEvent.Sent} event (See {@link PMWEvents})
+     * Determines if the data for the given {@link ChunkPos} was last checked longer ago than {@link PMWServerConfig#reconcileIntervalSeconds} or was never checked.
+     * Returning {@code true} marks the chunk as checked now.
+     * Intended to be used while listening to a {@link ChunkWatchEvent.Sent} event (See {@link StorageReconciler})
      *
      * @param pos The {@link ChunkPos} to check
      * @return Whether the data should be recalculated or not
      * @since 0.15.3.3
      */
     public boolean shouldRecalculate(ChunkPos pos) {
-        if (!checkTimes.containsKey(pos)) {
-            checkTimes.put(pos, System.currentTimeMillis());
-            return true;
-        }
+        long key = pos.toLong();
+        long now = System.currentTimeMillis();
+        if (checkTimes.containsKey(key) && now - checkTimes.get(key) <= PMWServerConfig.reconcileIntervalSeconds * 1000L) return false;
+
+        checkTimes.put(key, now);
+        return true;
+    }
 
-        return checkTimes.get(pos) - System.currentTimeMillis() > 30000L;
+    /**
+     * Forgets the check times of chunks that would be recalculated anyway, so they do not pile up for every chunk ever sent
+     *
+     * @since 0.16.4.0
+     */
+    public void expireCheckTimes() {
+        long expired = System.currentTimeMillis() - PMWServerConfig.reconcileIntervalSeconds * 1000L;
+        LongIterator iterator = checkTimes.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.nextLong() < expired) iterator.remove();
+        }
     }
 
     /**
-     * Adds a single {@link IStorageData} to the {@link IStorage}
+     * Adds a single {@link IStorageData} to the {@link IStorage}, replacing any existing data at the same {@link BlockPos}
      *
      * @param addData The new {@link IStorageData}
      * @since 0.15.3.3
      */
     public void add(D addData) {
-        ChunkPos chunkPos = new ChunkPos(addData.getPos());
-        Set<D> set = data.computeIfAbsent(chunkPos, c -> new HashSet<>());
-
-        Set<BlockPos> exist = set.stream().map(IStorageData::getPos).filter(c -> c.equals(addData.getPos())).collect(Collectors.toSet());
-        if (!exist.isEmpty()) {
-            removeByPos(exist);
-        }
-
-        set.add(addData);
-        data.put(chunkPos, set);
+        long chunk = IStorageBackend.chunkKey(addData.getPos().asLong());
+        touchChunk(chunk);
+        data.put(addData);
+        markDirty(chunk);
     }
 
     /**
@@ -274,7 +725,19 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      * @since 0.15.3.3
      */
     public void add(Collection<D> datum) {
-        datum.forEach(this::add);
+        if (datum.isEmpty()) return;
+
+        LongOpenHashSet chunks = new LongOpenHashSet();
+        for (D addData : datum) chunks.add(IStorageBackend.chunkKey(addData.getPos().asLong()));
+
+        LongIterator iterator = chunks.iterator();
+        while (iterator.hasNext()) touchChunk(iterator.nextLong());
+
+        // Added in one batch, so copy-on-write backends copy each chunk once
+        data.putAll(datum);
+
+        iterator = chunks.iterator();
+        while (iterator.hasNext()) markDirty(iterator.nextLong());
     }
 
     /**
@@ -284,15 +747,9 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
      * @since 0.15.3.3
      */
     public void remove(BlockPos pos) {
-        ChunkPos chunkPos = new ChunkPos(pos);
-        Set<D> set = data.computeIfAbsent(chunkPos, c -> new HashSet<>());
-
-        Set<D> exist = set.stream().filter(c -> c.getPos().equals(pos)).collect(Collectors.toSet());
-        if (!exist.isEmpty()) {
-            exist.forEach(set::remove);
-        }
-
-        data.put(chunkPos, set);
+        long key = pos.asLong();
+        touchChunk(IStorageBackend.chunkKey(key));
+        if (data.remove(key) != null) markDirty(IStorageBackend.chunkKey(key));
     }
 
     /**
@@ -306,16 +763,14 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
     }
 
     /**
-     * Removes a single {@link IStorageData} from the {@link IStorage}
+     * Removes a single {@link IStorageData} from the {@link IStorage}.
+     * As there is only one {@link IStorageData} per {@link BlockPos}, this removes whatever is stored at its position
      *
      * @param removedData The {@link IStorageData} to remove
      * @since 0.15.3.3
      */
     public void remove(D removedData) {
-        ChunkPos chunkPos = new ChunkPos(removedData.getPos());
-        Set<D> set = data.computeIfAbsent(chunkPos, c -> new HashSet<>());
-        set.remove(removedData);
-        data.put(chunkPos, set);
+        remove(removedData.getPos());
     }
 
     /**
@@ -329,77 +784,295 @@ public abstract class PMWStorage<D extends IStorageData> implements IStorage<D>
     }
 
     /**
-     * Saves the data of this {@link IStorage} to a {@link CompoundTag}
+     * Saves the data of this {@link IStorage} to a {@link CompoundTag}.
+     * Only chunks that changed since the last save are serialized again, every other chunk reuses its previous {@link Tag}
      *
      * @param tag The pre-existing {@link CompoundTag}
      * @return A {@link CompoundTag} with storage data
      * @since 0.15.3.3
      */
     public CompoundTag save(CompoundTag tag) {
-        if (PMWClientConfig.debug) PMWeatherAPI.LOGGER.info("Saving storage {} to level...", getId());
+        if (PMWClientConfig.debug) PMWeatherAPI.LOGGER.info("Saving storage {} to level ({} changed chunks)...", getId(), dirtyChunks.size());
         if (version() != -1) tag.putInt("version", version());
         tag.putLong("saveTime", System.currentTimeMillis());
 
-        final ResourceLocation[] type = {null};
-        for (Map.Entry<ChunkPos, Set<D>> entry : data.entrySet()) {
-            ListTag list = new ListTag();
-            entry.getValue().forEach(storageData -> {
-                CompoundTag ctag = storageData.serializeToNBT();
-                if (type[0] == null) {
-                    type[0] = ResourceLocation.parse(ctag.getString("type"));
-                }
-                ctag.remove("type");
-                list.add(ctag);
-            });
-            tag.put(String.valueOf(entry.getKey().toLong()), list);
+        LongIterator iterator = dirtyChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunk = iterator.nextLong();
+            Tag chunkTag = serializeChunk(chunk);
+            if (chunkTag == null) chunkTags.remove(chunk);
+            else chunkTags.put(chunk, chunkTag);
+        }
+
+        if (regionFiles != null) {
+            saveRegions();
+
+            // Only the amount of data in each region is kept in the main file, so they can be loaded lazily
+            Long2IntOpenHashMap counts = new Long2IntOpenHashMap(unloadedRegions);
+            data.forEachChunk(chunk -> counts.addTo(ChunkGridIndex.regionKey(chunk), data.valuesInChunk(chunk).size()));
+
+            CompoundTag regions = new CompoundTag();
+            for (Long2IntMap.Entry entry : Long2IntMaps.fastIterable(counts)) {
+                if (entry.getIntValue() > 0) regions.putInt(String.valueOf(entry.getLongKey()), entry.getIntValue());
+            }
+
+            tag.putString("format", "regions");
+            tag.put("regions", regions);
+        } else {
+            for (Long2ObjectMap.Entry<Tag> entry : Long2ObjectMaps.fastIterable(chunkTags)) {
+                tag.put(String.valueOf(entry.getLongKey()), entry.getValue());
+            }
+        }
+
+        if (savedType != null) tag.putString("type", savedType.toString());
+        if (typeTable.size() > 0) tag.put("types", typeTable.toTag());
+        if (!quarantine.isEmpty()) tag.put("quarantine", quarantine.copy());
+
+        if (this instanceof IServerStorage<?> serverStorage) {
+            // Lets clients that were in sync with this save resume from their cache after a restart
+            StorageSyncJournal<?> journal = StorageSyncJournal.of(serverStorage);
+            tag.putLong("syncEpoch", journal.epoch());
+            tag.putLong("syncSeq", journal.savedSeq());
         }
 
-        if (type[0] != null) tag.putString("type", type[0].toString());
+        dirtyChunks.clear();
+        dirty = false;
 
         if (PMWClientConfig.debug) PMWeatherAPI.LOGGER.info("Saved storage {} to level", getId());
         return tag;
     }
 
     /**
-     * Reads the saved data from the {@link Level} and initializes this {@link IStorage} with the data
+     * Writes every changed region to its region file, deleting the files of regions that are now empty
+     *
+     * @since 0.16.4.0
+     */
+    private void saveRegions() {
+        LongIterator iterator = dirtyRegions.iterator();
+        while (iterator.hasNext()) {
+            long region = iterator.nextLong();
+            int minX = ChunkPos.getX(region) << ChunkGridIndex.REGION_SHIFT, minZ = ChunkPos.getZ(region) << ChunkGridIndex.REGION_SHIFT;
+
+            CompoundTag regionTag = new CompoundTag();
+            data.forEachChunkInArea(minX, minZ, minX + REGION_SIZE - 1, minZ + REGION_SIZE - 1, chunk -> {
+                Tag chunkTag = chunkTags.get(chunk);
+                if (chunkTag != null) regionTag.put(String.valueOf(chunk), chunkTag);
+                return true;
+            });
+
+            if (regionTag.isEmpty()) {
+                regionFiles.write(region, null);
+            } else {
+                if (version() != -1) regionTag.putInt("version", version());
+                if (savedType != null) regionTag.putString("type", savedType.toString());
+                if (typeTable.size() > 0) regionTag.put("types", typeTable.toTag());
+                regionFiles.write(region, regionTag);
+            }
+        }
+
+        dirtyRegions.clear();
+    }
+
+    /**
+     * Serializes every {@link IStorageData} in a chunk.
+     * Uses the {@link BinaryStorageFormat} if every {@link IStorageData} has a codec, and NBT without their {@code type} otherwise
+     *
+     * @param chunk The packed {@link ChunkPos}
+     * @return A new {@link ByteArrayTag} or {@link ListTag}, or {@code null} if the chunk is empty
+     * @since 0.16.4.0
+     */
+    private Tag serializeChunk(long chunk) {
+        Collection<D> chunkData = data.valuesInChunk(chunk);
+        if (chunkData.isEmpty()) return null;
+
+        byte[] bytes = BinaryStorageFormat.encodeChunk(chunk, chunkData, typeTable);
+        if (bytes != null) return new ByteArrayTag(bytes);
+
+        ListTag list = new ListTag();
+        data.forEachInChunk(chunk, storageData -> {
+            CompoundTag ctag = storageData.serializeToNBT();
+            if (savedType == null) {
+                savedType = ResourceLocation.parse(ctag.getString("type"));
+            }
+            ctag.remove("type");
+            list.add(ctag);
+        });
+        return list;
+    }
+
+    /**
+     * Reads the saved data from the {@link Level} and initializes this {@link IStorage} with the data.
+     * If this {@link IStorage} uses region files, only the amount of data in each region is read, and regions are loaded when needed
      * @since 0.15.3.3
      */
     public void read() {
         PMWStorageSavedData savedData = ((ServerLevel) this.getLevel()).getDataStorage().computeIfAbsent(PMWStorageSavedData.factory(), getId().toString().replace(":", "_"));
         savedData.setStorage(this);
         PMWeatherAPI.LOGGER.info("Reading storage {} from level...", getId());
-        CompoundTag data = savedData.getTag();
-        String type = this.getExpectedDataType().toString();
-        int version = data.getInt("version");
-        Set<String> chunks = data.getAllKeys();
-        chunks.removeAll(Set.of("version", "saveTime", "type"));
-
-        for (String chunk : chunks) {
-            Set<D> blocks = new HashSet<>();
-            ListTag list = (ListTag) data.get(chunk);
-            for (int i = 0; i < list.size(); i++) {
+        CompoundTag tag = savedData.getTag();
+
+        if (tag.contains("syncEpoch") && this instanceof IServerStorage<?> serverStorage) {
+            StorageSyncJournal.of(serverStorage).restore(tag.getLong("syncEpoch"), tag.getLong("syncSeq"));
+        }
+
+        if (tag.getString("format").equals("regions")) {
+            if (tag.contains("type")) savedType = ResourceLocation.tryParse(tag.getString("type"));
+
+            CompoundTag regions = tag.getCompound("regions");
+            for (String region : regions.getAllKeys()) {
                 try {
-                    if (!list.get(i).getType().equals(CompoundTag.TYPE)) {
-                        // not a compound
-                        CompoundTag ctag = new CompoundTag();
-                        ctag.put("blockpos", list.get(i));
-
-                        if (NbtUtils.readBlockPos(ctag, "blockpos").isPresent()) {
-                            blocks.add(StorageData.deserializeFromNBT(ctag, version));
-                        } else {
-                            PMWeatherAPI.LOGGER.error("Could not deserialize tag {}! No type data and not a blockpos!", NbtUtils.toPrettyComponent(ctag.get("blockpos")));
-                        }
+                    int count = regions.getInt(region);
+                    unloadedRegions.put(Long.parseLong(region), count);
+                    unloadedSize += count;
+                } catch (NumberFormatException e) {
+                    PMWeatherAPI.LOGGER.warn("Invalid region {} in storage {}", region, getId());
+                }
+            }
+
+            if (regionFiles == null) {
+                // No longer registered with region files, so move everything back into the single file
+                PMWeatherAPI.LOGGER.info("Moving storage {} from region files back into a single file", getId());
+                regionFiles = new StorageRegionFiles((ServerLevel) getLevel(), getId());
+                loadRegions(new LongArrayList(unloadedRegions.keySet()));
+                regionFiles = null;
+                regionAccess.clear();
+                dirtyRegions.clear();
+                data.forEachChunk(this::markDirty);
+            }
+
+            return;
+        }
+
+        readChunks(tag);
+
+        if (regionFiles != null && data.size() > 0) {
+            PMWeatherAPI.LOGGER.info("Importing storage {} into region files", getId());
+            data.forEachChunk(this::markDirty);
+        }
+    }
+
+    /**
+     * Reads every saved chunk in a {@link CompoundTag} into this {@link IStorage}.
+     * Chunks saved in the current format are kept for the next save, every other chunk is marked as changed
+     *
+     * @param tag A {@link CompoundTag} in the format written by {@link #save(CompoundTag)}
+     * @since 0.16.4.0
+     */
+    void readChunks(CompoundTag tag) {
+        int version = tag.getInt("version");
+        if (tag.contains("type")) savedType = ResourceLocation.tryParse(tag.getString("type"));
+        StorageTypeTable types = StorageTypeTable.fromTag(tag.getList("types", Tag.TAG_STRING));
+        // Chunks saved by an older version, or with conflicting type indices, are rewritten on the next save instead of being reused
+        boolean reusable = (version() == -1 || (tag.contains("version") && version == version())) & typeTable.merge(types);
+        Set<String> reserved = Set.of("version", "saveTime", "type", "types", "format", "regions", "syncEpoch", "syncSeq", "quarantine");
+        if (tag.contains("quarantine")) quarantine.merge(tag.getCompound("quarantine"));
+
+        for (String chunk : tag.getAllKeys()) {
+            if (reserved.contains(chunk)) continue;
+
+            long chunkKey = 0;
+            boolean clean = reusable;
+            try {
+                chunkKey = Long.parseLong(chunk);
+            } catch (NumberFormatException e) {
+                clean = false;
+            }
+
+            Tag chunkTag = tag.get(chunk);
+            List<D> blocks;
+            if (chunkTag instanceof ByteArrayTag bytes) {
+                try {
+                    blocks = BinaryStorageFormat.decodeChunk(chunkKey, bytes.getAsByteArray(), types, version);
+                } catch (RuntimeException e) {
+                    PMWeatherAPI.LOGGER.error("Invalid binary data in storage {} at chunk {}, keeping it undecoded: {}", getId(), chunk, e.getMessage());
+                    quarantine(chunk, chunkTag, tag);
+                    continue;
+                }
+            } else if (chunkTag instanceof ListTag list) {
+                blocks = readChunkList(chunk, list, version);
+                // Chunks that can now be saved in the binary format are rewritten on the next save
+                if (blocks.size() != list.size() || blocks.contains(null) || BinaryStorageFormat.canEncode(blocks)) clean = false;
+            } else continue;
+
+            List<D> read = new ArrayList<>(blocks.size());
+            for (D block : blocks) {
+                if (block == null) {
+                    clean = false;
+                    continue;
+                }
+
+                read.add(block);
+            }
+
+            this.data.putAll(read);
+            for (D block : read) {
+                if (!clean || IStorageBackend.chunkKey(block.getPos().asLong()) != chunkKey) markDirty(IStorageBackend.chunkKey(block.getPos().asLong()));
+            }
+
+            // The loaded tag matches what this chunk would serialize to, so keep it for the next save
+            if (clean && !dirtyChunks.contains(chunkKey) && !blocks.isEmpty()) chunkTags.put(chunkKey, chunkTag);
+        }
+    }
+
+    /**
+     * Keeps a saved chunk that could not be decoded, with the version and types needed to decode it later.
+     * The storage is marked as changed so the main file is saved with it, even if the chunk came from a region file
+     *
+     * @param chunk The key of the chunk in the saved {@link CompoundTag}
+     * @param chunkTag The undecoded {@link Tag} of the chunk
+     * @param tag The saved {@link CompoundTag} the chunk was read from
+     * @since 0.16.4.0
+     */
+    private void quarantine(String chunk, Tag chunkTag, CompoundTag tag) {
+        CompoundTag entry = new CompoundTag();
+        entry.put("data", chunkTag);
+        if (tag.contains("version")) entry.putInt("version", tag.getInt("version"));
+        if (tag.contains("types")) entry.put("types", tag.get("types"));
+        quarantine.put(chunk, entry);
+        dirty = true;
+    }
+
+    /**
+     * Reads the {@link IStorageData} of a chunk saved as NBT
+     *
+     * @param chunk The key of the chunk in the saved {@link CompoundTag}
+     * @param list The saved {@link ListTag}
+     * @param version The version the chunk was saved with
+     * @return The read {@link IStorageData}, leaving out entries that could not be read
+     * @since 0.16.4.0
+     */
+    private List<D> readChunkList(String chunk, ListTag list, int version) {
+        // The type is resolved once for the whole chunk instead of being written into and parsed from every entry
+        ResourceLocation type = savedType != null ? savedType : this.getExpectedDataType();
+        int typeId = StorageDataManager.getTypeId(type);
+        List<D> blocks = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            try {
+                if (!list.get(i).getType().equals(CompoundTag.TYPE)) {
+                    // not a compound
+                    CompoundTag ctag = new CompoundTag();
+                    ctag.put("blockpos", list.get(i));
+
+                    if (NbtUtils.readBlockPos(ctag, "blockpos").isPresent()) {
+                        blocks.add(StorageData.deserializeFromNBT(ctag, version));
                     } else {
-                        CompoundTag ctag = list.getCompound(i);
-                        if (!type.isEmpty()) ctag.putString("type", type);
+                        PMWeatherAPI.LOGGER.error("Could not deserialize tag {}! No type data and not a blockpos!", NbtUtils.toPrettyComponent(ctag.get("blockpos")));
+                    }
+                } else {
+                    CompoundTag ctag = list.getCompound(i);
+                    if (typeId != -1) {
+                        blocks.add(StorageDataManager.get(typeId, ctag, version));
+                    } else {
+                        ctag.putString("type", type.toString());
                         blocks.add(StorageData.deserializeFromNBT(ctag, version));
+                        ctag.remove("type");
                     }
-                } catch (ClassCastException e) {
-                    PMWeatherAPI.LOGGER.warn("Invalid data entry in storage {} at chunk {}: {}", getId(), chunk, e.getMessage());
                 }
+            } catch (ClassCastException e) {
+                PMWeatherAPI.LOGGER.warn("Invalid data entry in storage {} at chunk {}: {}", getId(), chunk, e.getMessage());
             }
-
-            this.data.put(new ChunkPos(Long.parseLong(chunk)), blocks);
         }
+
+        return blocks;
     }
 }
\ No newline at end of file
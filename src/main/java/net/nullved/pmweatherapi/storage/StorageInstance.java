@@ -34,18 +34,28 @@ public class StorageInstance<D extends IStorageData, S extends IServerStorage<D>
     private final ResourceLocation id;
     private final Class<S> clazz;
     private final Function<ServerLevel, S> creator;
+    private final StorageOptions options;
     private final HashMap<ResourceKey<Level>, S> map = new HashMap<>();
 
     public StorageInstance(ResourceLocation id, Class<S> clazz, Function<ServerLevel, S> creator) {
+        this(id, clazz, creator, StorageOptions.defaults());
+    }
+
+    public StorageInstance(ResourceLocation id, Class<S> clazz, Function<ServerLevel, S> creator, StorageOptions options) {
         this.id = id;
         this.clazz = clazz;
         this.creator = creator;
+        this.options = options;
     }
 
     public ResourceLocation id() {
         return id;
     }
 
+    public StorageOptions options() {
+        return options;
+    }
+
     public HashMap<ResourceKey<Level>, S> getBackingMap() {
         return map;
     }
@@ -73,6 +83,7 @@ public class StorageInstance<D extends IStorageData, S extends IServerStorage<D>
     public S getOrCreate(ServerLevel level) {
         return map.computeIfAbsent(level.dimension(), dim -> {
             S storage = creator.apply(level);
+            storage.configure(options);
             storage.read();
             return storage;
         });
@@ -81,7 +92,7 @@ public class StorageInstance<D extends IStorageData, S extends IServerStorage<D>
     public <F extends IStorageData, O extends IServerStorage<F>> Optional<StorageInstance<F, O>> cast(Class<O> oclazz) {
         if (oclazz.isAssignableFrom(clazz)) {
             @SuppressWarnings("unchecked")
-            StorageInstance<F, O> casted = new StorageInstance<>(id(), oclazz, sl -> (O) creator.apply(sl));
+            StorageInstance<F, O> casted = new StorageInstance<>(id(), oclazz, sl -> (O) creator.apply(sl), options);
             HashMap<ResourceKey<Level>, O> backingMap = casted.getBackingMap();
 
             try {
@@ -99,6 +110,7 @@ public class StorageInstance<D extends IStorageData, S extends IServerStorage<D>
 
     public void load(ServerLevel level) {
         S storage = creator.apply(level);
+        storage.configure(options);
         storage.read();
         map.put(level.dimension(), storage);
     }
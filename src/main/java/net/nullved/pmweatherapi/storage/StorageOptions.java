@@ -0,0 +1,172 @@
+package net.nullved.pmweatherapi.storage;
+
+import net.minecraft.resources.ResourceLocation;
+import net.nullved.pmweatherapi.client.data.PMWClientStorages;
+import net.nullved.pmweatherapi.config.PMWServerConfig;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.storage.backend.ChunkedStorageBackend;
+import net.nullved.pmweatherapi.storage.backend.ConcurrentStorageBackend;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.reconcile.IBlockTracker;
+import net.nullved.pmweatherapi.storage.reconcile.StorageReconciler;
+import net.nullved.pmweatherapi.storage.region.StorageRegionFiles;
+import net.nullved.pmweatherapi.storage.sync.PlayerInterest;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Options applied to every {@link IStorage} created for a registered storage.
+ * Pass them to {@link PMWStorages#registerStorage(ResourceLocation, Class, Function, StorageOptions)}
+ * or {@link PMWClientStorages#registerStorage(ResourceLocation, Class, Function, StorageOptions)}.
+ * <br><br>
+ * Create options with {@link #defaults()} and chain the setters, for example {@code StorageOptions.defaults().concurrent()}
+ *
+ * @since 0.16.4.0
+ */
+public class StorageOptions {
+    private Supplier<IStorageBackend<?>> backend = ChunkedStorageBackend::new;
+    private boolean concurrent = false;
+    private boolean regionFiles = false;
+    private IBlockTracker<?> tracker = null;
+    private boolean interestManaged = false;
+    private int interestMargin = -1;
+
+    private StorageOptions() {}
+
+    /**
+     * Creates a new {@link StorageOptions} with the default options
+     * @return A new {@link StorageOptions}
+     * @since 0.16.4.0
+     */
+    public static StorageOptions defaults() {
+        return new StorageOptions();
+    }
+
+    /**
+     * Sets the {@link IStorageBackend} each {@link PMWStorage} will hold its data in.
+     * The supplier must return a new, empty backend each time it is called
+     * @param backend A {@link Supplier} of new {@link IStorageBackend}s
+     * @return The {@link StorageOptions} instance
+     * @since 0.16.4.0
+     */
+    public StorageOptions backend(Supplier<IStorageBackend<?>> backend) {
+        this.backend = backend;
+        this.concurrent = false;
+        return this;
+    }
+
+    /**
+     * Uses a {@link ConcurrentStorageBackend}, so the storage can be read from any thread without locking
+     * while the server or client thread modifies it.
+     * See {@link ConcurrentStorageBackend} for its consistency guarantees
+     * @return The {@link StorageOptions} instance
+     * @since 0.16.4.0
+     */
+    public StorageOptions concurrent() {
+        this.backend = ConcurrentStorageBackend::new;
+        this.concurrent = true;
+        return this;
+    }
+
+    /**
+     * @return Whether {@link #concurrent()} was selected
+     * @since 0.16.4.0
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * Saves server storages to one file per region of {@code 32x32} chunks instead of a single file per dimension.
+     * Regions are only loaded when their chunks are loaded or queried, and regions that have not been used for a while are paged out.
+     * Existing single-file data is imported on the first load.
+     * <br><br>
+     * Operations over the whole storage, like {@link IStorage#forAll} or {@link IStorage#view()}, load every region.
+     * Regions are only loaded from the server thread, so other threads only see regions that are already loaded.
+     * Has no effect on client storages
+     * @return The {@link StorageOptions} instance
+     * @see StorageRegionFiles
+     * @since 0.16.4.0
+     */
+    public StorageOptions regionFiles() {
+        this.regionFiles = true;
+        return this;
+    }
+
+    /**
+     * @return Whether {@link #regionFiles()} was selected
+     * @since 0.16.4.0
+     */
+    public boolean usesRegionFiles() {
+        return regionFiles;
+    }
+
+    /**
+     * Sets the blocks the storage tracks, so the {@link StorageReconciler} can re-scan chunks and fix data that was missed.
+     * Has no effect on client storages
+     * @param tracker The {@link IBlockTracker} of the storage's {@link IStorageData}
+     * @return The {@link StorageOptions} instance
+     * @since 0.16.4.0
+     */
+    public StorageOptions tracking(IBlockTracker<?> tracker) {
+        this.tracker = tracker;
+        return this;
+    }
+
+    /**
+     * @return The {@link IBlockTracker} set with {@link #tracking(IBlockTracker)}, or {@code null} if the storage is not reconciled
+     * @since 0.16.4.0
+     */
+    public IBlockTracker<?> tracker() {
+        return tracker;
+    }
+
+    /**
+     * Only syncs the data near each player instead of the whole dimension, using {@link PMWServerConfig#syncMarginChunks} as the margin.
+     * Has no effect on client storages
+     * @return The {@link StorageOptions} instance
+     * @see PlayerInterest
+     * @since 0.16.4.0
+     */
+    public StorageOptions interestManaged() {
+        this.interestManaged = true;
+        this.interestMargin = -1;
+        return this;
+    }
+
+    /**
+     * Only syncs the data near each player instead of the whole dimension.
+     * Has no effect on client storages
+     * @param marginChunks How many chunks past the chunks tracked by a player data is still synced
+     * @return The {@link StorageOptions} instance
+     * @see PlayerInterest
+     * @since 0.16.4.0
+     */
+    public StorageOptions interestManaged(int marginChunks) {
+        this.interestManaged = true;
+        this.interestMargin = Math.max(0, marginChunks);
+        return this;
+    }
+
+    /**
+     * @return The margin in chunks set with {@link #interestManaged()}, or {@code -1} if the storage syncs its whole dimension
+     * @since 0.16.4.0
+     */
+    public int interestMargin() {
+        if (!interestManaged) return -1;
+        return interestMargin == -1 ? PMWServerConfig.syncMarginChunks : interestMargin;
+    }
+
+    /**
+     * Creates a new, empty {@link IStorageBackend}
+     * @return The new {@link IStorageBackend}
+     * @param <D> The {@link IStorageData} of the {@link IStorage}
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    public <D extends IStorageData> IStorageBackend<D> createBackend() {
+        return (IStorageBackend<D>) backend.get();
+    }
+}
@@ -0,0 +1,211 @@
+package net.nullved.pmweatherapi.storage.backend;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.function.LongPredicate;
+
+/**
+ * A two-level spatial grid over occupied chunk coordinates.
+ * <br><br>
+ * Occupied chunks are grouped into regions of {@code 32x32} chunks (the same size as an Anvil region file).
+ * Area queries only visit regions and chunks that actually hold data,
+ * so their cost scales with the number of occupied cells instead of the size of the queried area.
+ * <br><br>
+ * This index is not thread-safe, unless created with {@link #copyOnWrite()}.
+ *
+ * @see ChunkedStorageBackend
+ * @see ConcurrentStorageBackend
+ * @since 0.16.4.0
+ */
+public class ChunkGridIndex {
+    /**
+     * The number of bits to shift a chunk coordinate by to get its region coordinate
+     * @since 0.16.4.0
+     */
+    public static final int REGION_SHIFT = 5;
+    private static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+    private final boolean copyOnWrite;
+    private volatile Long2ObjectOpenHashMap<LongOpenHashSet> regions = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Creates a new, empty index that is not thread-safe
+     * @since 0.16.4.0
+     */
+    public ChunkGridIndex() {
+        this(false);
+    }
+
+    private ChunkGridIndex(boolean copyOnWrite) {
+        this.copyOnWrite = copyOnWrite;
+    }
+
+    /**
+     * Creates a new, empty index that can be queried from any thread while one thread at a time modifies it.
+     * Every change copies the map of regions and the regions it changes, then publishes the copy, so a query sees the index as it was when it started
+     * @return A new {@link ChunkGridIndex}
+     * @since 0.16.4.0
+     */
+    public static ChunkGridIndex copyOnWrite() {
+        return new ChunkGridIndex(true);
+    }
+
+    /**
+     * Gets the packed region coordinate of a packed {@link ChunkPos}
+     * @param chunk The packed {@link ChunkPos}
+     * @return The packed region coordinate
+     * @since 0.16.4.0
+     */
+    public static long regionKey(long chunk) {
+        return ChunkPos.asLong(ChunkPos.getX(chunk) >> REGION_SHIFT, ChunkPos.getZ(chunk) >> REGION_SHIFT);
+    }
+
+    /**
+     * Marks a chunk as occupied
+     * @param chunk The packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    public void add(long chunk) {
+        if (copyOnWrite) {
+            addAll(LongSet.of(chunk));
+            return;
+        }
+
+        long regionKey = regionKey(chunk);
+        LongOpenHashSet region = regions.get(regionKey);
+        if (region == null) {
+            region = new LongOpenHashSet();
+            regions.put(regionKey, region);
+        }
+
+        region.add(chunk);
+    }
+
+    /**
+     * Marks chunks as occupied. A copy-on-write index copies each changed region only once
+     * @param chunks The packed {@link ChunkPos}es
+     * @since 0.16.4.0
+     */
+    public void addAll(LongCollection chunks) {
+        if (chunks.isEmpty()) return;
+
+        // Regions that are not changed are shared with the published map and never modified
+        Long2ObjectOpenHashMap<LongOpenHashSet> target = copyOnWrite ? new Long2ObjectOpenHashMap<>(regions) : regions;
+        LongOpenHashSet copied = copyOnWrite ? new LongOpenHashSet() : null;
+
+        LongIterator iterator = chunks.iterator();
+        while (iterator.hasNext()) {
+            long chunk = iterator.nextLong();
+            long regionKey = regionKey(chunk);
+            LongOpenHashSet region = target.get(regionKey);
+            if (region == null) {
+                region = new LongOpenHashSet();
+                target.put(regionKey, region);
+                if (copied != null) copied.add(regionKey);
+            } else if (copied != null && copied.add(regionKey)) {
+                region = new LongOpenHashSet(region);
+                target.put(regionKey, region);
+            }
+
+            region.add(chunk);
+        }
+
+        regions = target;
+    }
+
+    /**
+     * Marks a chunk as no longer occupied
+     * @param chunk The packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    public void remove(long chunk) {
+        long regionKey = regionKey(chunk);
+        LongOpenHashSet region = regions.get(regionKey);
+        if (region == null || !region.contains(chunk)) return;
+
+        Long2ObjectOpenHashMap<LongOpenHashSet> target = regions;
+        if (copyOnWrite) {
+            target = new Long2ObjectOpenHashMap<>(regions);
+            region = new LongOpenHashSet(region);
+            target.put(regionKey, region);
+        }
+
+        region.remove(chunk);
+        if (region.isEmpty()) target.remove(regionKey);
+        regions = target;
+    }
+
+    /**
+     * Clears the index
+     * @since 0.16.4.0
+     */
+    public void clear() {
+        if (copyOnWrite) regions = new Long2ObjectOpenHashMap<>();
+        else regions.clear();
+    }
+
+    /**
+     * Visits every occupied chunk within the given chunk coordinates (inclusive).
+     * The visitor must not modify the index.
+     *
+     * @param minX The minimum chunk x-coordinate
+     * @param minZ The minimum chunk z-coordinate
+     * @param maxX The maximum chunk x-coordinate
+     * @param maxZ The maximum chunk z-coordinate
+     * @param visitor Receives each packed {@link ChunkPos}, returning {@code false} to stop early
+     * @return {@code false} if the visitor stopped early, {@code true} otherwise
+     * @since 0.16.4.0
+     */
+    public boolean forEachInArea(int minX, int minZ, int maxX, int maxZ, LongPredicate visitor) {
+        Long2ObjectOpenHashMap<LongOpenHashSet> regions = this.regions;
+        if (regions.isEmpty() || minX > maxX || minZ > maxZ) return true;
+
+        int minRX = minX >> REGION_SHIFT, minRZ = minZ >> REGION_SHIFT;
+        int maxRX = maxX >> REGION_SHIFT, maxRZ = maxZ >> REGION_SHIFT;
+        long cells = (long) (maxRX - minRX + 1) * (long) (maxRZ - minRZ + 1);
+
+        if (cells > regions.size()) {
+            // The area covers more region cells than are occupied, so walk the occupied regions instead
+            for (Long2ObjectMap.Entry<LongOpenHashSet> entry : Long2ObjectMaps.fastIterable(regions)) {
+                int rx = ChunkPos.getX(entry.getLongKey());
+                int rz = ChunkPos.getZ(entry.getLongKey());
+                if (rx < minRX || rx > maxRX || rz < minRZ || rz > maxRZ) continue;
+                if (!visitRegion(rx, rz, entry.getValue(), minX, minZ, maxX, maxZ, visitor)) return false;
+            }
+        } else {
+            for (int rx = minRX; rx <= maxRX; rx++) {
+                for (int rz = minRZ; rz <= maxRZ; rz++) {
+                    LongOpenHashSet region = regions.get(ChunkPos.asLong(rx, rz));
+                    if (region != null && !visitRegion(rx, rz, region, minX, minZ, maxX, maxZ, visitor)) return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean visitRegion(int rx, int rz, LongOpenHashSet region, int minX, int minZ, int maxX, int maxZ, LongPredicate visitor) {
+        int startX = rx << REGION_SHIFT, startZ = rz << REGION_SHIFT;
+        boolean contained = startX >= minX && startX + REGION_SIZE - 1 <= maxX && startZ >= minZ && startZ + REGION_SIZE - 1 <= maxZ;
+
+        LongIterator iterator = region.iterator();
+        while (iterator.hasNext()) {
+            long chunk = iterator.nextLong();
+            if (!contained) {
+                int cx = ChunkPos.getX(chunk), cz = ChunkPos.getZ(chunk);
+                if (cx < minX || cx > maxX || cz < minZ || cz > maxZ) continue;
+            }
+
+            if (!visitor.test(chunk)) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+package net.nullved.pmweatherapi.storage.backend;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The default {@link IStorageBackend} used by {@link PMWStorage}.
+ * <br><br>
+ * Each chunk is stored in a primitive long map keyed by {@link ChunkPos#toLong()},
+ * and each chunk is a primitive long map of {@link BlockPos#asLong()} to {@link IStorageData}.
+ * Adding, replacing, and removing data are all constant-time and do not box any keys.
+ * Occupied chunks are tracked in a {@link ChunkGridIndex} so area queries only visit chunks that hold data.
+ * <br><br>
+ * This backend is not thread-safe and should only be accessed from the thread that owns the storage.
+ *
+ * @param <D> The {@link IStorageData} held by this backend
+ * @since 0.16.4.0
+ */
+public class ChunkedStorageBackend<D extends IStorageData> implements IStorageBackend<D> {
+    private final Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<D>> chunks = new Long2ObjectOpenHashMap<>();
+    private final ChunkGridIndex index = new ChunkGridIndex();
+    private final Collection<D> values = new ValuesView();
+    private int size = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        index.clear();
+        size = 0;
+    }
+
+    @Override
+    public D get(long pos) {
+        Long2ObjectOpenHashMap<D> chunk = chunks.get(IStorageBackend.chunkKey(pos));
+        return chunk == null ? null : chunk.get(pos);
+    }
+
+    @Override
+    public D put(D data) {
+        long pos = data.getPos().asLong();
+        long chunkKey = IStorageBackend.chunkKey(pos);
+
+        Long2ObjectOpenHashMap<D> chunk = chunks.get(chunkKey);
+        if (chunk == null) {
+            chunk = new Long2ObjectOpenHashMap<>(4);
+            chunks.put(chunkKey, chunk);
+            index.add(chunkKey);
+        }
+
+        D previous = chunk.put(pos, data);
+        if (previous == null) size++;
+        return previous;
+    }
+
+    @Override
+    public D remove(long pos) {
+        long chunkKey = IStorageBackend.chunkKey(pos);
+        Long2ObjectOpenHashMap<D> chunk = chunks.get(chunkKey);
+        if (chunk == null) return null;
+
+        D removed = chunk.remove(pos);
+        if (removed != null) {
+            size--;
+            if (chunk.isEmpty()) {
+                chunks.remove(chunkKey);
+                index.remove(chunkKey);
+            }
+        }
+
+        return removed;
+    }
+
+    @Override
+    public void forEach(Consumer<D> consumer) {
+        for (Long2ObjectOpenHashMap<D> chunk : chunks.values()) {
+            for (D data : chunk.values()) consumer.accept(data);
+        }
+    }
+
+    @Override
+    public void forEachInChunk(long chunk, Consumer<D> consumer) {
+        Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+        if (map == null) return;
+
+        for (D data : map.values()) consumer.accept(data);
+    }
+
+    @Override
+    public void forEachChunk(LongConsumer consumer) {
+        chunks.keySet().forEach(consumer);
+    }
+
+    @Override
+    public D findInChunk(long chunk, Predicate<D> predicate) {
+        Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+        if (map == null) return null;
+
+        for (D data : map.values()) {
+            if (predicate.test(data)) return data;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean forEachChunkInArea(int minX, int minZ, int maxX, int maxZ, LongPredicate visitor) {
+        return index.forEachInArea(minX, minZ, maxX, maxZ, visitor);
+    }
+
+    @Override
+    public Collection<D> values() {
+        return values;
+    }
+
+    @Override
+    public Collection<D> valuesInChunk(long chunk) {
+        return new ChunkView(chunk);
+    }
+
+    private class ValuesView extends AbstractCollection<D> {
+        @Override
+        public Iterator<D> iterator() {
+            return new Iterator<>() {
+                private final ObjectIterator<Long2ObjectOpenHashMap<D>> chunkIterator = chunks.values().iterator();
+                private Iterator<D> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (!chunkIterator.hasNext()) return false;
+                        current = chunkIterator.next().values().iterator();
+                    }
+
+                    return true;
+                }
+
+                @Override
+                public D next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof IStorageData data && data.equals(get(data.getPos().asLong()));
+        }
+
+        @Override
+        public void forEach(Consumer<? super D> action) {
+            ChunkedStorageBackend.this.forEach(action::accept);
+        }
+    }
+
+    private class ChunkView extends AbstractCollection<D> {
+        private final long chunk;
+
+        private ChunkView(long chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public Iterator<D> iterator() {
+            Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+            return map == null ? Collections.emptyIterator() : Collections.unmodifiableCollection(map.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+            return map == null ? 0 : map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof IStorageData data && IStorageBackend.chunkKey(data.getPos().asLong()) == chunk && data.equals(get(data.getPos().asLong()));
+        }
+
+        @Override
+        public void forEach(Consumer<? super D> action) {
+            forEachInChunk(chunk, action::accept);
+        }
+    }
+}
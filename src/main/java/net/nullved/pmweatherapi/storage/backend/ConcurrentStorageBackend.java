@@ -0,0 +1,267 @@
+package net.nullved.pmweatherapi.storage.backend;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A thread-safe {@link IStorageBackend} for storages that are read from worker threads while the server or client thread modifies them.
+ * Select it with {@link StorageOptions#concurrent()}.
+ * <br><br>
+ * Each chunk is an immutable map of {@link BlockPos#asLong()} to {@link IStorageData}.
+ * Writes copy the chunk they touch and publish the copy, so readers never take a lock and never block the thread that owns the storage.
+ * <br><br>
+ * Consistency guarantees:
+ * <ul>
+ *     <li>Reads never block and never throw a {@link java.util.ConcurrentModificationException}</li>
+ *     <li>A single chunk is always seen as a whole: either before or after any write to it, never halfway through</li>
+ *     <li>Iterating more than one chunk is weakly consistent: writes to other chunks made during the iteration may or may not be seen</li>
+ *     <li>{@link #size()} is updated after each write is published, so it may briefly differ from what an iteration sees</li>
+ *     <li>{@link #clear()} is not atomic for readers, who may see some chunks cleared and others not</li>
+ * </ul>
+ * Writes must come from one thread at a time, normally the thread that owns the storage, as {@link PMWStorage} does not synchronize
+ * its own bookkeeping of changed chunks. The backend itself still serializes writes with a lock that only writers take.
+ * Writing is more expensive than {@link ChunkedStorageBackend} because each write copies one chunk.
+ * {@link #putAll(Collection)} copies each chunk only once, so bulk adds stay linear.
+ *
+ * @param <D> The {@link IStorageData} held by this backend
+ * @see ChunkedStorageBackend
+ * @since 0.16.4.0
+ */
+public class ConcurrentStorageBackend<D extends IStorageData> implements IStorageBackend<D> {
+    private final ConcurrentHashMap<Long, Long2ObjectOpenHashMap<D>> chunks = new ConcurrentHashMap<>();
+    private final ChunkGridIndex index = ChunkGridIndex.copyOnWrite();
+    private final Collection<D> values = new ValuesView();
+    private final Object writeLock = new Object();
+    private volatile int size = 0;
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            chunks.clear();
+            index.clear();
+            size = 0;
+        }
+    }
+
+    @Override
+    public D get(long pos) {
+        Long2ObjectOpenHashMap<D> chunk = chunks.get(IStorageBackend.chunkKey(pos));
+        return chunk == null ? null : chunk.get(pos);
+    }
+
+    @Override
+    public D put(D data) {
+        long pos = data.getPos().asLong();
+        long chunkKey = IStorageBackend.chunkKey(pos);
+
+        synchronized (writeLock) {
+            Long2ObjectOpenHashMap<D> chunk = chunks.get(chunkKey);
+            Long2ObjectOpenHashMap<D> copy = chunk == null ? new Long2ObjectOpenHashMap<>(4) : new Long2ObjectOpenHashMap<>(chunk);
+
+            D previous = copy.put(pos, data);
+            chunks.put(chunkKey, copy);
+            if (chunk == null) index.add(chunkKey);
+            if (previous == null) size++;
+            return previous;
+        }
+    }
+
+    @Override
+    public void putAll(Collection<D> data) {
+        synchronized (writeLock) {
+            // Each touched chunk is copied once, filled, then published
+            Long2ObjectOpenHashMap<Long2ObjectOpenHashMap<D>> copies = new Long2ObjectOpenHashMap<>();
+            LongOpenHashSet added = new LongOpenHashSet();
+            int newSize = size;
+
+            for (D storageData : data) {
+                long pos = storageData.getPos().asLong();
+                long chunkKey = IStorageBackend.chunkKey(pos);
+
+                Long2ObjectOpenHashMap<D> copy = copies.get(chunkKey);
+                if (copy == null) {
+                    Long2ObjectOpenHashMap<D> chunk = chunks.get(chunkKey);
+                    copy = chunk == null ? new Long2ObjectOpenHashMap<>(4) : new Long2ObjectOpenHashMap<>(chunk);
+                    copies.put(chunkKey, copy);
+                    if (chunk == null) added.add(chunkKey);
+                }
+
+                if (copy.put(pos, storageData) == null) newSize++;
+            }
+
+            for (Long2ObjectMap.Entry<Long2ObjectOpenHashMap<D>> entry : Long2ObjectMaps.fastIterable(copies)) {
+                chunks.put(entry.getLongKey(), entry.getValue());
+            }
+
+            index.addAll(added);
+            size = newSize;
+        }
+    }
+
+    @Override
+    public D remove(long pos) {
+        long chunkKey = IStorageBackend.chunkKey(pos);
+
+        synchronized (writeLock) {
+            Long2ObjectOpenHashMap<D> chunk = chunks.get(chunkKey);
+            if (chunk == null || !chunk.containsKey(pos)) return null;
+
+            Long2ObjectOpenHashMap<D> copy = new Long2ObjectOpenHashMap<>(chunk);
+            D removed = copy.remove(pos);
+            if (copy.isEmpty()) {
+                chunks.remove(chunkKey);
+                index.remove(chunkKey);
+            } else {
+                chunks.put(chunkKey, copy);
+            }
+
+            size--;
+            return removed;
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<D> consumer) {
+        for (Long2ObjectOpenHashMap<D> chunk : chunks.values()) {
+            for (D data : chunk.values()) consumer.accept(data);
+        }
+    }
+
+    @Override
+    public void forEachInChunk(long chunk, Consumer<D> consumer) {
+        Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+        if (map == null) return;
+
+        for (D data : map.values()) consumer.accept(data);
+    }
+
+    @Override
+    public void forEachChunk(LongConsumer consumer) {
+        for (Long chunk : chunks.keySet()) consumer.accept(chunk);
+    }
+
+    @Override
+    public D findInChunk(long chunk, Predicate<D> predicate) {
+        Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+        if (map == null) return null;
+
+        for (D data : map.values()) {
+            if (predicate.test(data)) return data;
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean forEachChunkInArea(int minX, int minZ, int maxX, int maxZ, LongPredicate visitor) {
+        return index.forEachInArea(minX, minZ, maxX, maxZ, visitor);
+    }
+
+    @Override
+    public Collection<D> values() {
+        return values;
+    }
+
+    @Override
+    public Collection<D> valuesInChunk(long chunk) {
+        return new ChunkView(chunk);
+    }
+
+    private class ValuesView extends AbstractCollection<D> {
+        @Override
+        public Iterator<D> iterator() {
+            return new Iterator<>() {
+                private final Iterator<Long2ObjectOpenHashMap<D>> chunkIterator = chunks.values().iterator();
+                private Iterator<D> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext()) {
+                        if (!chunkIterator.hasNext()) return false;
+                        current = Collections.unmodifiableCollection(chunkIterator.next().values()).iterator();
+                    }
+
+                    return true;
+                }
+
+                @Override
+                public D next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof IStorageData data && data.equals(get(data.getPos().asLong()));
+        }
+
+        @Override
+        public void forEach(Consumer<? super D> action) {
+            ConcurrentStorageBackend.this.forEach(action::accept);
+        }
+    }
+
+    private class ChunkView extends AbstractCollection<D> {
+        private final long chunk;
+
+        private ChunkView(long chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public Iterator<D> iterator() {
+            Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+            return map == null ? Collections.emptyIterator() : Collections.unmodifiableCollection(map.values()).iterator();
+        }
+
+        @Override
+        public int size() {
+            Long2ObjectOpenHashMap<D> map = chunks.get(chunk);
+            return map == null ? 0 : map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof IStorageData data && IStorageBackend.chunkKey(data.getPos().asLong()) == chunk && data.equals(get(data.getPos().asLong()));
+        }
+
+        @Override
+        public void forEach(Consumer<? super D> action) {
+            forEachInChunk(chunk, action::accept);
+        }
+    }
+}
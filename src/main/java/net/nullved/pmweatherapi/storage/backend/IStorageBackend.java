@@ -0,0 +1,152 @@
+package net.nullved.pmweatherapi.storage.backend;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.storage.IStorage;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * The interface defining the in-memory structure that holds the {@link IStorageData} of a {@link PMWStorage}.
+ * <br><br>
+ * Entries are keyed by their packed {@link BlockPos} ({@link BlockPos#asLong()}) and grouped by their packed {@link ChunkPos} ({@link ChunkPos#toLong()}),
+ * so there is at most one {@link IStorageData} per {@link BlockPos}.
+ * <br><br>
+ * For the default implementation, see {@link ChunkedStorageBackend}
+ *
+ * @param <D> The {@link IStorageData} held by this backend
+ * @see ChunkedStorageBackend
+ * @see IStorage
+ * @since 0.16.4.0
+ */
+public interface IStorageBackend<D extends IStorageData> {
+    /**
+     * Gets the packed {@link ChunkPos} that contains the given packed {@link BlockPos}
+     * @param blockPos A packed {@link BlockPos}
+     * @return The packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    static long chunkKey(long blockPos) {
+        return ChunkPos.asLong(BlockPos.getX(blockPos) >> 4, BlockPos.getZ(blockPos) >> 4);
+    }
+
+    /**
+     * @return The total number of {@link IStorageData} in this backend
+     * @since 0.16.4.0
+     */
+    int size();
+
+    /**
+     * @return The number of chunks that hold at least one {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    int chunkCount();
+
+    /**
+     * Removes every {@link IStorageData} from this backend
+     * @since 0.16.4.0
+     */
+    void clear();
+
+    /**
+     * Gets the {@link IStorageData} at a packed {@link BlockPos}
+     * @param pos The packed {@link BlockPos}
+     * @return The {@link IStorageData}, or {@code null} if there is none
+     * @since 0.16.4.0
+     */
+    D get(long pos);
+
+    /**
+     * Inserts a {@link IStorageData}, replacing any existing data at the same {@link BlockPos}
+     * @param data The {@link IStorageData} to insert
+     * @return The replaced {@link IStorageData}, or {@code null} if there was none
+     * @since 0.16.4.0
+     */
+    D put(D data);
+
+    /**
+     * Inserts every {@link IStorageData} of a {@link Collection}, replacing any existing data at the same {@link BlockPos}.
+     * Implementations that copy on write should copy each chunk only once
+     * @param data The {@link IStorageData} to insert
+     * @since 0.16.4.0
+     */
+    default void putAll(Collection<D> data) {
+        for (D storageData : data) put(storageData);
+    }
+
+    /**
+     * Removes the {@link IStorageData} at a packed {@link BlockPos}
+     * @param pos The packed {@link BlockPos}
+     * @return The removed {@link IStorageData}, or {@code null} if there was none
+     * @since 0.16.4.0
+     */
+    D remove(long pos);
+
+    /**
+     * Executes a {@link Consumer} for every {@link IStorageData} in this backend
+     * @param consumer The function to run for each {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    void forEach(Consumer<D> consumer);
+
+    /**
+     * Executes a {@link Consumer} for every {@link IStorageData} in a chunk
+     * @param chunk The packed {@link ChunkPos}
+     * @param consumer The function to run for each {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    void forEachInChunk(long chunk, Consumer<D> consumer);
+
+    /**
+     * Executes a {@link LongConsumer} for every packed {@link ChunkPos} holding at least one {@link IStorageData}
+     * @param consumer The function to run for each packed {@link ChunkPos}
+     * @since 0.16.4.0
+     */
+    void forEachChunk(LongConsumer consumer);
+
+    /**
+     * Finds the first {@link IStorageData} in a chunk that matches a {@link Predicate}
+     * @param chunk The packed {@link ChunkPos}
+     * @param predicate The {@link Predicate} to test each {@link IStorageData} with
+     * @return The first matching {@link IStorageData}, or {@code null} if none match
+     * @since 0.16.4.0
+     */
+    D findInChunk(long chunk, Predicate<D> predicate);
+
+    /**
+     * Visits every packed {@link ChunkPos} holding at least one {@link IStorageData} within the given chunk coordinates (inclusive).
+     * Implementations should only visit occupied chunks, rather than every chunk in the area.
+     *
+     * @param minX The minimum chunk x-coordinate
+     * @param minZ The minimum chunk z-coordinate
+     * @param maxX The maximum chunk x-coordinate
+     * @param maxZ The maximum chunk z-coordinate
+     * @param visitor Receives each packed {@link ChunkPos}, returning {@code false} to stop early
+     * @return {@code false} if the visitor stopped early, {@code true} otherwise
+     * @since 0.16.4.0
+     */
+    boolean forEachChunkInArea(int minX, int minZ, int maxX, int maxZ, LongPredicate visitor);
+
+    /**
+     * Gets a read-only live view of every {@link IStorageData} in this backend.
+     * The view reflects later changes to the backend and must not be iterated while the backend is being modified
+     * @return A read-only {@link Collection} view
+     * @since 0.16.4.0
+     */
+    Collection<D> values();
+
+    /**
+     * Gets a read-only live view of every {@link IStorageData} in a chunk.
+     * The view reflects later changes to the chunk, including the chunk being emptied and refilled
+     * @param chunk The packed {@link ChunkPos}
+     * @return A read-only {@link Collection} view
+     * @since 0.16.4.0
+     */
+    Collection<D> valuesInChunk(long chunk);
+}
@@ -0,0 +1,305 @@
+package net.nullved.pmweatherapi.storage.data;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The compact binary format used for {@link IStorageData} with an {@link IStorageDataCodec}, both by {@link PMWStorage} saves and by storage sync packets.
+ * <br><br>
+ * A chunk payload is a VarInt entry count followed by each entry:
+ * <ul>
+ *     <li>a VarInt index into the {@link StorageTypeTable}</li>
+ *     <li>one byte holding the x and z coordinates within the chunk</li>
+ *     <li>a zigzag VarInt y-coordinate</li>
+ *     <li>the fields written by the type's {@link IStorageDataCodec}</li>
+ * </ul>
+ * A list payload is a VarInt chunk count followed by each chunk's zigzag VarInt x and z coordinates and its chunk payload.
+ * <br><br>
+ * If any entry has no {@link IStorageDataCodec}, encoding returns {@code null} and callers fall back to NBT
+ *
+ * @see IStorageDataCodec
+ * @see StorageTypeTable
+ * @since 0.16.4.0
+ */
+public class BinaryStorageFormat {
+    /**
+     * Checks if every {@link IStorageData} can be encoded in the binary format
+     * @param datum The {@link IStorageData} to check
+     * @return {@code true} if every {@link IStorageData} has an {@link IStorageDataCodec}
+     * @since 0.16.4.0
+     */
+    public static boolean canEncode(Iterable<? extends IStorageData> datum) {
+        for (IStorageData data : datum) {
+            if (StorageDataManager.getCodec(data.getId()) == null) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Encodes the {@link IStorageData} of a single chunk
+     * @param chunk The packed {@link ChunkPos} every {@link IStorageData} is in
+     * @param datum The {@link IStorageData} to encode
+     * @param types The {@link StorageTypeTable} to add types to
+     * @return The encoded bytes, or {@code null} if any {@link IStorageData} has no {@link IStorageDataCodec}
+     * @since 0.16.4.0
+     */
+    public static byte[] encodeChunk(long chunk, Collection<? extends IStorageData> datum, StorageTypeTable types) {
+        if (!canEncode(datum)) return null;
+
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(datum.size() * 16));
+        writeChunk(buf, datum, types);
+        return toBytes(buf);
+    }
+
+    /**
+     * Decodes a chunk payload written by {@link #encodeChunk(long, Collection, StorageTypeTable)}
+     * @param chunk The packed {@link ChunkPos} of the payload
+     * @param bytes The encoded bytes
+     * @param types The {@link StorageTypeTable} the payload was encoded with
+     * @param version The version of the storage the payload was saved with
+     * @return The decoded {@link IStorageData}
+     * @param <D> The type of {@link IStorageData}
+     * @throws IllegalStateException If an entry's type has no {@link IStorageDataCodec}, since the entries after it cannot be read
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> List<D> decodeChunk(long chunk, byte[] bytes, StorageTypeTable types, int version) {
+        List<D> list = new ArrayList<>();
+        int unknown = readChunk(new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes)), chunk, types, types.resolve(), version, list);
+        if (unknown != -1) throw new IllegalStateException("No codec for storage data type " + types.get(unknown) + " at index " + unknown);
+        return list;
+    }
+
+    /**
+     * Encodes {@link IStorageData} from any chunks
+     * @param datum The {@link IStorageData} to encode
+     * @param types The {@link StorageTypeTable} to add types to
+     * @return The encoded bytes, or {@code null} if any {@link IStorageData} has no {@link IStorageDataCodec}
+     * @since 0.16.4.0
+     */
+    public static byte[] encodeList(Collection<? extends IStorageData> datum, StorageTypeTable types) {
+        if (!canEncode(datum)) return null;
+
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(datum.size() * 16));
+        writeEntries(buf, datum, types);
+        return toBytes(buf);
+    }
+
+    /**
+     * Decodes a list payload written by {@link #encodeList(Collection, StorageTypeTable)}
+     * @param bytes The encoded bytes
+     * @param types The {@link StorageTypeTable} the payload was encoded with
+     * @param version The version of the storage the payload was saved with
+     * @return The decoded {@link IStorageData}
+     * @param <D> The type of {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> List<D> decodeList(byte[] bytes, StorageTypeTable types, int version) {
+        return readEntries(new FriendlyByteBuf(Unpooled.wrappedBuffer(bytes)), types, version);
+    }
+
+    /**
+     * Writes a list payload of {@link IStorageData} from any chunks straight into a buffer.
+     * Every {@link IStorageData} must have an {@link IStorageDataCodec}, see {@link #canEncode(Iterable)}
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @param datum The {@link IStorageData} to encode
+     * @param types The {@link StorageTypeTable} to add types to
+     * @since 0.16.4.0
+     */
+    public static void writeEntries(FriendlyByteBuf buf, Collection<? extends IStorageData> datum, StorageTypeTable types) {
+        Long2ObjectLinkedOpenHashMap<List<IStorageData>> chunks = new Long2ObjectLinkedOpenHashMap<>();
+        for (IStorageData data : datum) {
+            chunks.computeIfAbsent(IStorageBackend.chunkKey(data.getPos().asLong()), c -> new ArrayList<>()).add(data);
+        }
+
+        buf.writeVarInt(chunks.size());
+        for (Long2ObjectMap.Entry<List<IStorageData>> entry : Long2ObjectMaps.fastIterable(chunks)) {
+            writeChunkEntry(buf, entry.getLongKey(), entry.getValue(), types);
+        }
+    }
+
+    /**
+     * Writes one chunk of a list payload: its coordinates followed by its chunk payload.
+     * A list payload is a VarInt chunk count followed by this many chunk entries, so cached chunk entries can be concatenated into one.
+     * Every {@link IStorageData} must be in the chunk and have an {@link IStorageDataCodec}
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @param chunk The packed {@link ChunkPos} every {@link IStorageData} is in
+     * @param datum The {@link IStorageData} to encode
+     * @param types The {@link StorageTypeTable} to add types to
+     * @since 0.16.4.0
+     */
+    public static void writeChunkEntry(FriendlyByteBuf buf, long chunk, Collection<? extends IStorageData> datum, StorageTypeTable types) {
+        writeZigZag(buf, ChunkPos.getX(chunk));
+        writeZigZag(buf, ChunkPos.getZ(chunk));
+        writeChunk(buf, datum, types);
+    }
+
+    /**
+     * Reads a list payload written by {@link #writeEntries(FriendlyByteBuf, Collection, StorageTypeTable)}.
+     * Reading stops at the first entry of a type without a codec
+     * @param buf The {@link FriendlyByteBuf} to read from
+     * @param types The {@link StorageTypeTable} the payload was encoded with
+     * @param version The version of the storage the payload was saved with
+     * @return The decoded {@link IStorageData}
+     * @param <D> The type of {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> List<D> readEntries(FriendlyByteBuf buf, StorageTypeTable types, int version) {
+        List<D> list = new ArrayList<>();
+        int[] typeIds = types.resolve();
+
+        int chunks = buf.readVarInt();
+        for (int i = 0; i < chunks; i++) {
+            int x = readZigZag(buf), z = readZigZag(buf);
+            if (readChunk(buf, ChunkPos.asLong(x, z), types, typeIds, version, list) != -1) break;
+        }
+
+        return list;
+    }
+
+    /**
+     * Writes {@link IStorageData} into a sync {@link CompoundTag}, along with the {@link StorageTypeTable} of the payload.
+     * The data is written as binary if possible, and as an NBT {@code data} list otherwise.
+     * In the NBT list, each entry replaces its {@code type} string with a {@code typeIndex} into the table
+     * @param tag The {@link CompoundTag} to write into
+     * @param datum The {@link IStorageData} to write
+     * @since 0.16.4.0
+     */
+    public static void writeList(CompoundTag tag, Collection<? extends IStorageData> datum) {
+        tag.putBoolean("list", true);
+
+        StorageTypeTable types = new StorageTypeTable();
+        byte[] bytes = encodeList(datum, types);
+        if (bytes != null) {
+            tag.putByteArray("binary", bytes);
+        } else {
+            ListTag list = new ListTag();
+            for (IStorageData data : datum) {
+                CompoundTag ctag = data.serializeToNBT();
+                ctag.remove("type");
+                ctag.putInt("typeIndex", types.indexOf(data.getId()));
+                list.add(ctag);
+            }
+            tag.put("data", list);
+        }
+
+        tag.put("types", types.toTag());
+    }
+
+    /**
+     * Reads a sync {@link CompoundTag} written by {@link #writeList(CompoundTag, Collection)}.
+     * The {@link StorageTypeTable} is resolved once, so no entry parses its type
+     * @param tag The {@link CompoundTag} to read
+     * @param version The version of the storage
+     * @return The decoded {@link IStorageData}, leaving out entries that could not be read
+     * @param <D> The type of {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> List<D> readList(CompoundTag tag, int version) {
+        StorageTypeTable types = StorageTypeTable.fromTag(tag.getList("types", Tag.TAG_STRING));
+        if (tag.contains("binary")) return decodeList(tag.getByteArray("binary"), types, version);
+
+        int[] typeIds = types.resolve();
+        ListTag list = tag.getList("data", Tag.TAG_COMPOUND);
+        List<D> datum = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            CompoundTag ctag = list.getCompound(i);
+            int index = ctag.getInt("typeIndex");
+            if (index < 0 || index >= typeIds.length || typeIds[index] == -1) {
+                PMWeatherAPI.LOGGER.error("Unknown storage data type {} at index {}", types.get(index), index);
+                continue;
+            }
+
+            D data = StorageDataManager.get(typeIds[index], ctag, version);
+            if (data != null) datum.add(data);
+        }
+
+        return datum;
+    }
+
+    private static void writeChunk(FriendlyByteBuf buf, Collection<? extends IStorageData> datum, StorageTypeTable types) {
+        buf.writeVarInt(datum.size());
+
+        // Storages almost always hold a single type, so only look up the index and codec when the type changes
+        ResourceLocation lastType = null;
+        int index = -1;
+        IStorageDataCodec<?> codec = null;
+        for (IStorageData data : datum) {
+            ResourceLocation type = data.getId();
+            if (!type.equals(lastType)) {
+                lastType = type;
+                index = types.indexOf(type);
+                codec = StorageDataManager.getCodec(type);
+            }
+
+            BlockPos pos = data.getPos();
+            buf.writeVarInt(index);
+            buf.writeByte((pos.getX() & 15) | (pos.getZ() & 15) << 4);
+            writeZigZag(buf, pos.getY());
+            encode(codec, data, buf);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D extends IStorageData> void encode(IStorageDataCodec<D> codec, IStorageData data, FriendlyByteBuf buf) {
+        codec.encode((D) data, buf);
+    }
+
+    /**
+     * @return {@code -1} if every entry was read, or the index of the first type without a codec, after which the rest of the payload cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    private static <D extends IStorageData> int readChunk(FriendlyByteBuf buf, long chunk, StorageTypeTable types, int[] typeIds, int version, List<D> out) {
+        int baseX = ChunkPos.getX(chunk) << 4, baseZ = ChunkPos.getZ(chunk) << 4;
+
+        int count = buf.readVarInt();
+        for (int i = 0; i < count; i++) {
+            int index = buf.readVarInt();
+            if (index < 0) throw new IllegalStateException("Invalid storage data type index " + index);
+            IStorageDataCodec<?> codec = index < typeIds.length ? StorageDataManager.getCodec(typeIds[index]) : null;
+            if (codec == null) {
+                // The fields of an unknown type have no known length, so the rest of the payload cannot be read
+                PMWeatherAPI.LOGGER.error("No codec for storage data type {} at index {}, skipping the rest of the payload", types.get(index), index);
+                return index;
+            }
+
+            int xz = buf.readUnsignedByte();
+            BlockPos pos = new BlockPos(baseX + (xz & 15), readZigZag(buf), baseZ + (xz >> 4));
+            out.add((D) codec.decode(pos, buf, version));
+        }
+
+        return -1;
+    }
+
+    private static void writeZigZag(FriendlyByteBuf buf, int value) {
+        buf.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private static int readZigZag(FriendlyByteBuf buf) {
+        int value = buf.readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] toBytes(FriendlyByteBuf buf) {
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+}
@@ -2,6 +2,7 @@ package net.nullved.pmweatherapi.storage.data;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.PMWeatherAPI;
 
@@ -13,6 +14,15 @@ import net.nullved.pmweatherapi.PMWeatherAPI;
  */
 public class BlockPosData extends StorageData {
     public static final ResourceLocation ID = PMWeatherAPI.rl("blockpos");
+    public static final IStorageDataCodec<BlockPosData> CODEC = new IStorageDataCodec<>() {
+        @Override
+        public void encode(BlockPosData data, FriendlyByteBuf buf) {}
+
+        @Override
+        public BlockPosData decode(BlockPos pos, FriendlyByteBuf buf, int version) {
+            return new BlockPosData(pos);
+        }
+    };
 
     public BlockPosData(BlockPos pos) {
         super(pos);
@@ -4,6 +4,7 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.radar.storage.RadarStorageData;
+import net.nullved.pmweatherapi.storage.ISyncServerStorage;
 
 /**
  * The interface defining Storage Data such as {@link RadarStorageData}
@@ -17,4 +18,16 @@ public interface IStorageData {
     ResourceLocation getId();
     BlockPos getPos();
     CompoundTag serializeToNBT();
+
+    /**
+     * Checks if replacing this data with another would change nothing a player can see.
+     * Data with measured values should compare them at the precision they are displayed with.
+     * {@link ISyncServerStorage#addAndSync(IStorageData)} skips data equivalent to the data it replaces, both in the storage and in the packet
+     * @param other The {@link IStorageData} that would replace this data
+     * @return {@code true} if the data is equivalent. By default, data is never equivalent
+     * @since 0.16.4.0
+     */
+    default boolean isEquivalent(IStorageData other) {
+        return false;
+    }
 }
@@ -0,0 +1,40 @@
+package net.nullved.pmweatherapi.storage.data;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.function.BiFunction;
+
+/**
+ * A compact binary codec for an {@link IStorageData}, used on disk and on the wire instead of NBT.
+ * <br><br>
+ * The type and {@link BlockPos} are written by {@link BinaryStorageFormat}, so a codec only writes the fields of its data,
+ * preferably with fixed-width writes such as {@link FriendlyByteBuf#writeFloat(float)}.
+ * <br><br>
+ * Register a codec with {@link StorageDataManager#register(ResourceLocation, BiFunction, IStorageDataCodec)}.
+ * Data without a codec is saved and synced as NBT
+ *
+ * @param <D> The {@link IStorageData} this codec handles
+ * @see BinaryStorageFormat
+ * @since 0.16.4.0
+ */
+public interface IStorageDataCodec<D extends IStorageData> {
+    /**
+     * Writes the fields of the data, without its type or {@link BlockPos}
+     * @param data The {@link IStorageData} to write
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @since 0.16.4.0
+     */
+    void encode(D data, FriendlyByteBuf buf);
+
+    /**
+     * Reads the fields written by {@link #encode(IStorageData, FriendlyByteBuf)}
+     * @param pos The already decoded {@link BlockPos}
+     * @param buf The {@link FriendlyByteBuf} to read from
+     * @param version The version of the storage the data was saved with
+     * @return The decoded {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    D decode(BlockPos pos, FriendlyByteBuf buf, int version);
+}
@@ -66,6 +66,18 @@ public abstract class StorageData implements IStorageData {
         return tag;
     }
 
+    /**
+     * Checks if replacing this data with another would change nothing, by comparing their serialized NBT.
+     * Override this to compare fields directly, or at display precision
+     * @param other The {@link IStorageData} that would replace this data
+     * @return {@code true} if both are the same type at the same position with the same NBT
+     * @since 0.16.4.0
+     */
+    @Override
+    public boolean isEquivalent(IStorageData other) {
+        return other != null && other.getClass() == getClass() && pos.equals(other.getPos()) && serializeToNBT().equals(other.serializeToNBT());
+    }
+
     /**
      * Deserialize a {@link BlockPos} from a {@link CompoundTag}
      * @param tag The {@link CompoundTag} to get the {@link BlockPos} from
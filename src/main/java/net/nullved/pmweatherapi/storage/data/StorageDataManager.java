@@ -1,19 +1,26 @@
 package net.nullved.pmweatherapi.storage.data;
 
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.NbtUtils;
 import net.minecraft.resources.ResourceLocation;
 import net.nullved.pmweatherapi.PMWeatherAPI;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 
 /**
  * A manager for {@link IStorageData}.
  * <br><br>
- * To register a {@link IStorageData}, you must pass a {@link ResourceLocation} of the id, and the deserialization function
+ * To register a {@link IStorageData}, you must pass a {@link ResourceLocation} of the id, and the deserialization function.
+ * Optionally, also pass an {@link IStorageDataCodec} to save and sync the data in the compact {@link BinaryStorageFormat}
+ * <br><br>
+ * Every registered type is given an integer type id, so deserializers and codecs are looked up by array index instead of by {@link ResourceLocation}.
+ * Saves and sync packets carry a {@link StorageTypeTable} mapping their own indices to {@link ResourceLocation}s, which is resolved to type ids once per payload
  *
  * @since 0.15.3.3
  * @see IStorageData
@@ -21,9 +28,88 @@ import java.util.function.BiFunction;
  */
 public class StorageDataManager {
     public static final HashMap<ResourceLocation, BiFunction<CompoundTag, Integer, ? extends IStorageData>> map = new HashMap<>();
+    private static final Object2IntOpenHashMap<ResourceLocation> TYPE_IDS = new Object2IntOpenHashMap<>();
+    private static final List<ResourceLocation> TYPES = new ArrayList<>();
+    private static final List<BiFunction<CompoundTag, Integer, ? extends IStorageData>> DESERIALIZERS = new ArrayList<>();
+    private static final List<IStorageDataCodec<?>> CODECS = new ArrayList<>();
+
+    static {
+        TYPE_IDS.defaultReturnValue(-1);
+    }
 
     public static <D extends IStorageData> void register(ResourceLocation id, BiFunction<CompoundTag, Integer, D> deserializer) {
         map.put(id, deserializer);
+        DESERIALIZERS.set(assignTypeId(id), deserializer);
+    }
+
+    /**
+     * Registers an {@link IStorageData} with both an NBT deserializer and a binary {@link IStorageDataCodec}
+     * @param id The {@link ResourceLocation} of the {@link IStorageData}
+     * @param deserializer The NBT deserialization function, used as a fallback
+     * @param codec The {@link IStorageDataCodec}
+     * @param <D> The {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> void register(ResourceLocation id, BiFunction<CompoundTag, Integer, D> deserializer, IStorageDataCodec<D> codec) {
+        register(id, deserializer);
+        CODECS.set(getTypeId(id), codec);
+    }
+
+    private static int assignTypeId(ResourceLocation id) {
+        int typeId = TYPE_IDS.getInt(id);
+        if (typeId == -1) {
+            typeId = TYPES.size();
+            TYPE_IDS.put(id, typeId);
+            TYPES.add(id);
+            DESERIALIZERS.add(null);
+            CODECS.add(null);
+        }
+
+        return typeId;
+    }
+
+    /**
+     * Gets the integer type id of a registered {@link IStorageData} type.
+     * <br><br>
+     * Type ids are assigned in registration order and are only valid for the running game.
+     * They must never be saved or synced directly, use a {@link StorageTypeTable} instead
+     * @param id The {@link ResourceLocation} of the {@link IStorageData}
+     * @return The type id, or {@code -1} if the type is not registered
+     * @since 0.16.4.0
+     */
+    public static int getTypeId(ResourceLocation id) {
+        return TYPE_IDS.getInt(id);
+    }
+
+    /**
+     * Gets the {@link ResourceLocation} of a type id
+     * @param typeId The type id
+     * @return The {@link ResourceLocation}, or {@code null} if no type has this id
+     * @since 0.16.4.0
+     */
+    public static ResourceLocation getType(int typeId) {
+        return typeId >= 0 && typeId < TYPES.size() ? TYPES.get(typeId) : null;
+    }
+
+    /**
+     * Gets the {@link IStorageDataCodec} of an {@link IStorageData} type
+     * @param id The {@link ResourceLocation} of the {@link IStorageData}
+     * @return The {@link IStorageDataCodec}, or {@code null} if the type has none
+     * @since 0.16.4.0
+     */
+    public static <D extends IStorageData> IStorageDataCodec<D> getCodec(ResourceLocation id) {
+        return getCodec(getTypeId(id));
+    }
+
+    /**
+     * Gets the {@link IStorageDataCodec} of a type id
+     * @param typeId The type id, see {@link #getTypeId(ResourceLocation)}
+     * @return The {@link IStorageDataCodec}, or {@code null} if the type has none
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    public static <D extends IStorageData> IStorageDataCodec<D> getCodec(int typeId) {
+        return typeId >= 0 && typeId < CODECS.size() ? (IStorageDataCodec<D>) CODECS.get(typeId) : null;
     }
 
     public static <D extends IStorageData> D get(CompoundTag tag, int version) {
@@ -39,4 +125,26 @@ public class StorageDataManager {
             return null;
         }
     }
+
+    /**
+     * Deserializes a {@link CompoundTag} with an already resolved type, so the tag does not need a {@code type}
+     * @param typeId The type id, see {@link #getTypeId(ResourceLocation)}
+     * @param tag The {@link CompoundTag}
+     * @param version The version of the data
+     * @return An {@link IStorageData} instance, or {@code null} if it could not be deserialized
+     * @param <D> The type of {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    public static <D extends IStorageData> D get(int typeId, CompoundTag tag, int version) {
+        BiFunction<CompoundTag, Integer, ? extends IStorageData> deserializer = typeId >= 0 && typeId < DESERIALIZERS.size() ? DESERIALIZERS.get(typeId) : null;
+        if (deserializer == null) return get(tag, version);
+
+        try {
+            return (D) deserializer.apply(tag, version);
+        } catch (Exception e) {
+            PMWeatherAPI.LOGGER.error("Could not deserialize tag {} of type {}: {}", NbtUtils.toPrettyComponent(tag), getType(typeId), e.getMessage());
+            return null;
+        }
+    }
 }
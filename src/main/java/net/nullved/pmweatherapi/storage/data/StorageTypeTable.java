@@ -0,0 +1,140 @@
+package net.nullved.pmweatherapi.storage.data;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table of the {@link IStorageData} types used in a binary payload, so each entry only stores a small index instead of its type.
+ * <br><br>
+ * Indices are only ever appended, so payloads encoded with an older copy of a table can still be decoded with a newer one.
+ *
+ * @see BinaryStorageFormat
+ * @since 0.16.4.0
+ */
+public class StorageTypeTable {
+    private final List<ResourceLocation> types = new ArrayList<>();
+    private final Object2IntOpenHashMap<ResourceLocation> indices = new Object2IntOpenHashMap<>();
+
+    public StorageTypeTable() {
+        indices.defaultReturnValue(-1);
+    }
+
+    /**
+     * Gets the index of a type, adding it to the table if it is not present
+     * @param type The {@link ResourceLocation} of the type
+     * @return The index of the type
+     * @since 0.16.4.0
+     */
+    public int indexOf(ResourceLocation type) {
+        int index = indices.getInt(type);
+        if (index == -1) {
+            index = types.size();
+            types.add(type);
+            indices.put(type, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the type at an index
+     * @param index The index of the type
+     * @return The {@link ResourceLocation} of the type, or {@code null} if the index is not in the table
+     * @since 0.16.4.0
+     */
+    public ResourceLocation get(int index) {
+        return index >= 0 && index < types.size() ? types.get(index) : null;
+    }
+
+    /**
+     * @return The amount of types in the table
+     * @since 0.16.4.0
+     */
+    public int size() {
+        return types.size();
+    }
+
+    /**
+     * Resolves every index of this table to the type id of the running game, see {@link StorageDataManager#getTypeId(ResourceLocation)}.
+     * Payloads resolve their table once, so decoding an entry is a single array lookup
+     * @return An array of type ids by index, with {@code -1} for types that are not registered
+     * @since 0.16.4.0
+     */
+    public int[] resolve() {
+        int[] typeIds = new int[types.size()];
+        for (int i = 0; i < typeIds.length; i++) typeIds[i] = StorageDataManager.getTypeId(types.get(i));
+        return typeIds;
+    }
+
+    /**
+     * Adds every type of another table to this one, keeping their indices.
+     * This fails if both tables give the same index to different types
+     * @param other The {@link StorageTypeTable} to merge
+     * @return {@code true} if payloads encoded with the other table can be decoded with this one
+     * @since 0.16.4.0
+     */
+    public boolean merge(StorageTypeTable other) {
+        for (int i = 0; i < other.size(); i++) {
+            if (i < types.size()) {
+                if (!types.get(i).equals(other.get(i))) return false;
+            } else {
+                indexOf(other.get(i));
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Serializes this table to a {@link ListTag} of type strings
+     * @return A new {@link ListTag}
+     * @since 0.16.4.0
+     */
+    public ListTag toTag() {
+        ListTag list = new ListTag();
+        for (ResourceLocation type : types) list.add(StringTag.valueOf(type.toString()));
+        return list;
+    }
+
+    /**
+     * Writes this table into a buffer, as a VarInt count followed by each type
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @since 0.16.4.0
+     */
+    public void write(FriendlyByteBuf buf) {
+        buf.writeVarInt(types.size());
+        for (ResourceLocation type : types) buf.writeResourceLocation(type);
+    }
+
+    /**
+     * Reads a table written by {@link #write(FriendlyByteBuf)}
+     * @param buf The {@link FriendlyByteBuf} to read from
+     * @return A new {@link StorageTypeTable}
+     * @since 0.16.4.0
+     */
+    public static StorageTypeTable read(FriendlyByteBuf buf) {
+        StorageTypeTable table = new StorageTypeTable();
+        int size = buf.readVarInt();
+        for (int i = 0; i < size; i++) table.indexOf(buf.readResourceLocation());
+        return table;
+    }
+
+    /**
+     * Deserializes a table written by {@link #toTag()}
+     * @param list The {@link ListTag} of type strings
+     * @return A new {@link StorageTypeTable}
+     * @since 0.16.4.0
+     */
+    public static StorageTypeTable fromTag(ListTag list) {
+        StorageTypeTable table = new StorageTypeTable();
+        for (Tag tag : list) table.indexOf(ResourceLocation.parse(tag.getAsString()));
+        return table;
+    }
+}
@@ -0,0 +1,74 @@
+package net.nullved.pmweatherapi.storage.reconcile;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Describes the blocks an {@link IServerStorage} tracks, so the {@link StorageReconciler} can find blocks it missed and data whose block is gone.
+ * <br><br>
+ * Register one with {@link StorageOptions#tracking(IBlockTracker)} when calling {@link PMWStorages#registerStorage(ResourceLocation, Class, Function, StorageOptions)}
+ *
+ * @param <D> The {@link IStorageData} of the storage
+ * @see StorageReconciler
+ * @since 0.16.4.0
+ */
+public interface IBlockTracker<D extends IStorageData> {
+    /**
+     * Checks if a {@link BlockState} is tracked by the storage
+     * @param state The {@link BlockState} to check
+     * @return {@code true} if the storage should hold data for this block
+     * @since 0.16.4.0
+     */
+    boolean tracks(BlockState state);
+
+    /**
+     * Creates the data for a tracked block that the storage is missing
+     * @param level The {@link ServerLevel} of the block
+     * @param pos The {@link BlockPos} of the block
+     * @param state The {@link BlockState} of the block
+     * @return The new {@link IStorageData}, or {@code null} to skip the block
+     * @since 0.16.4.0
+     */
+    D create(ServerLevel level, BlockPos pos, BlockState state);
+
+    /**
+     * Creates an {@link IBlockTracker} from a predicate and a factory
+     * @param predicate The {@link Predicate} of tracked {@link BlockState}s
+     * @param factory The {@link Factory} creating missing data
+     * @return A new {@link IBlockTracker}
+     * @param <D> The {@link IStorageData} of the storage
+     * @since 0.16.4.0
+     */
+    static <D extends IStorageData> IBlockTracker<D> of(Predicate<BlockState> predicate, Factory<D> factory) {
+        return new IBlockTracker<>() {
+            @Override
+            public boolean tracks(BlockState state) {
+                return predicate.test(state);
+            }
+
+            @Override
+            public D create(ServerLevel level, BlockPos pos, BlockState state) {
+                return factory.create(level, pos, state);
+            }
+        };
+    }
+
+    /**
+     * Creates the data for a tracked block, see {@link IBlockTracker#create(ServerLevel, BlockPos, BlockState)}
+     * @param <D> The {@link IStorageData} of the storage
+     * @since 0.16.4.0
+     */
+    @FunctionalInterface
+    interface Factory<D extends IStorageData> {
+        D create(ServerLevel level, BlockPos pos, BlockState state);
+    }
+}
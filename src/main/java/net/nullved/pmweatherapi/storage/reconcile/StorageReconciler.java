@@ -0,0 +1,165 @@
+package net.nullved.pmweatherapi.storage.reconcile;
+
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.neoforged.neoforge.event.level.ChunkWatchEvent;
+import net.nullved.pmweatherapi.config.PMWServerConfig;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.mixin.BlockBehaviourMixin;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.ISyncServerStorage;
+import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps server storages in line with the blocks in the world.
+ * <br><br>
+ * Storages are normally updated by {@link BlockBehaviourMixin} when a tracked block is placed or removed,
+ * which misses blocks changed without a block update, like structure placement or external world edits.
+ * When a chunk is sent to a player (see {@link ChunkWatchEvent.Sent}) and any tracking storage {@link IServerStorage#shouldRecalculate(ChunkPos) should recalculate} it,
+ * the chunk is queued. Queued chunks are re-scanned at the end of each tick within {@link PMWServerConfig#reconcileBudgetMicros}.
+ * <br><br>
+ * Scanning a chunk checks every storage registered with {@link StorageOptions#tracking(IBlockTracker)}:
+ * data whose block is no longer tracked is removed, and tracked block entities without data are added.
+ * Changes are synced to clients for {@link ISyncServerStorage}s
+ *
+ * @see IBlockTracker
+ * @since 0.16.4.0
+ */
+public class StorageReconciler {
+    private static final Map<ResourceKey<Level>, LongLinkedOpenHashSet> QUEUES = new HashMap<>();
+
+    /**
+     * Queues a chunk that was sent to a player if any tracking storage should recalculate it
+     * @param level The {@link ServerLevel} of the chunk
+     * @param pos The {@link ChunkPos} of the chunk
+     * @since 0.16.4.0
+     */
+    public static void onChunkSent(ServerLevel level, ChunkPos pos) {
+        if (!PMWServerConfig.reconcileStorages) return;
+
+        boolean recalculate = false;
+        for (StorageInstance<?, ?> instance : PMWStorages.getAll()) {
+            if (instance.options().tracker() == null) continue;
+
+            IServerStorage<?> storage = instance.get(level.dimension());
+            // Every storage is asked so they all record the check time
+            if (storage != null && storage.shouldRecalculate(pos)) recalculate = true;
+        }
+
+        if (recalculate) queue(level, pos);
+    }
+
+    /**
+     * Queues a chunk to be re-scanned, regardless of when it was last scanned
+     * @param level The {@link ServerLevel} of the chunk
+     * @param pos The {@link ChunkPos} of the chunk
+     * @since 0.16.4.0
+     */
+    public static void queue(ServerLevel level, ChunkPos pos) {
+        QUEUES.computeIfAbsent(level.dimension(), dim -> new LongLinkedOpenHashSet()).add(pos.toLong());
+    }
+
+    /**
+     * @return The amount of chunks waiting to be re-scanned in every dimension
+     * @since 0.16.4.0
+     */
+    public static int queued() {
+        return QUEUES.values().stream().mapToInt(LongLinkedOpenHashSet::size).sum();
+    }
+
+    /**
+     * Drops the queued chunks of a dimension, called when it unloads
+     * @param dimension The dimension
+     * @since 0.16.4.0
+     */
+    public static void clear(ResourceKey<Level> dimension) {
+        QUEUES.remove(dimension);
+    }
+
+    /**
+     * Re-scans queued chunks until the tick budget runs out, taking one chunk from each dimension in turn.
+     * At least one chunk is scanned per call while any are queued
+     * @param server The {@link MinecraftServer}
+     * @since 0.16.4.0
+     */
+    public static void tick(MinecraftServer server) {
+        if (QUEUES.isEmpty()) return;
+
+        long deadline = System.nanoTime() + PMWServerConfig.reconcileBudgetMicros * 1000L;
+        boolean progressed = true;
+        while (progressed) {
+            progressed = false;
+            for (ServerLevel level : server.getAllLevels()) {
+                LongLinkedOpenHashSet queue = QUEUES.get(level.dimension());
+                if (queue == null || queue.isEmpty()) continue;
+
+                reconcile(level, queue.removeFirstLong());
+                progressed = true;
+                if (System.nanoTime() >= deadline) return;
+            }
+        }
+
+        QUEUES.values().removeIf(LongLinkedOpenHashSet::isEmpty);
+    }
+
+    private static void reconcile(ServerLevel level, long chunkKey) {
+        // Chunks that unloaded while queued are scanned again when they are next sent
+        LevelChunk chunk = level.getChunkSource().getChunkNow(ChunkPos.getX(chunkKey), ChunkPos.getZ(chunkKey));
+        if (chunk == null) return;
+
+        for (StorageInstance<?, ?> instance : PMWStorages.getAll()) {
+            IBlockTracker<?> tracker = instance.options().tracker();
+            if (tracker == null) continue;
+
+            IServerStorage<?> storage = instance.get(level.dimension());
+            if (storage != null) reconcile(level, chunk, storage, tracker);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D extends IStorageData> void reconcile(ServerLevel level, LevelChunk chunk, IServerStorage<D> storage, IBlockTracker<?> rawTracker) {
+        IBlockTracker<D> tracker = (IBlockTracker<D>) rawTracker;
+
+        LongOpenHashSet present = new LongOpenHashSet();
+        List<BlockPos> stale = new ArrayList<>();
+        storage.forInChunk(chunk.getPos(), data -> {
+            BlockPos pos = data.getPos();
+            if (tracker.tracks(chunk.getBlockState(pos))) present.add(pos.asLong());
+            else stale.add(pos);
+        });
+
+        List<D> missing = new ArrayList<>();
+        for (BlockPos pos : chunk.getBlockEntitiesPos()) {
+            if (present.contains(pos.asLong())) continue;
+
+            BlockState state = chunk.getBlockState(pos);
+            if (!tracker.tracks(state)) continue;
+
+            D data = tracker.create(level, pos, state);
+            if (data != null) missing.add(data);
+        }
+
+        if (storage instanceof ISyncServerStorage<D> sync) {
+            if (!stale.isEmpty()) sync.removeAndSyncByPos(stale);
+            if (!missing.isEmpty()) sync.addAndSync(missing);
+        } else {
+            if (!stale.isEmpty()) storage.removeByPos(stale);
+            if (!missing.isEmpty()) storage.add(missing);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package net.nullved.pmweatherapi.storage.region;
+
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.dimension.DimensionType;
+import net.minecraft.world.level.storage.LevelResource;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.data.AsyncStorageWriter;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.backend.ChunkGridIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The region files of a {@link PMWStorage} registered with {@link StorageOptions#regionFiles()}.
+ * <br><br>
+ * Each region of {@code 32x32} chunks (see {@link ChunkGridIndex#REGION_SHIFT}) is saved to its own compressed NBT file at
+ * {@code <dimension>/data/pmweatherapi/<namespace>_<path>/r.<x>.<z>.dat},
+ * using the same per-chunk layout as a regular storage save.
+ * Files are written in the background by the {@link AsyncStorageWriter}.
+ *
+ * @since 0.16.4.0
+ */
+public class StorageRegionFiles {
+    private final Path directory;
+
+    /**
+     * Creates the region files for a storage in a {@link ServerLevel}
+     * @param level The {@link ServerLevel} the storage belongs to
+     * @param id The {@link ResourceLocation} ID of the storage
+     * @since 0.16.4.0
+     */
+    public StorageRegionFiles(ServerLevel level, ResourceLocation id) {
+        Path root = DimensionType.getStorageFolder(level.dimension(), level.getServer().getWorldPath(LevelResource.ROOT));
+        this.directory = root.resolve("data").resolve(PMWeatherAPI.MODID).resolve(id.getNamespace() + "_" + id.getPath());
+    }
+
+    /**
+     * @return The directory holding the region files
+     * @since 0.16.4.0
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * Gets the file of a region
+     * @param region The packed region coordinate, see {@link ChunkGridIndex#regionKey(long)}
+     * @return The {@link Path} of the region file
+     * @since 0.16.4.0
+     */
+    public Path file(long region) {
+        return directory.resolve("r." + ChunkPos.getX(region) + "." + ChunkPos.getZ(region) + ".dat");
+    }
+
+    /**
+     * Reads a region file
+     * @param region The packed region coordinate
+     * @return The saved {@link CompoundTag}, or {@code null} if the region has no file or could not be read
+     * @since 0.16.4.0
+     */
+    public CompoundTag read(long region) {
+        Path file = file(region);
+        // A region paged out right after being saved may still be waiting to be written
+        AsyncStorageWriter.await(file);
+        if (!Files.exists(file)) return null;
+
+        try {
+            return NbtIo.readCompressed(file, NbtAccounter.unlimitedHeap());
+        } catch (IOException e) {
+            PMWeatherAPI.LOGGER.error("Could not read storage region file {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Queues a region file to be written on the {@link AsyncStorageWriter}, or deleted if the {@link CompoundTag} is {@code null}
+     * @param region The packed region coordinate
+     * @param tag The {@link CompoundTag} to write, or {@code null} to delete the file. It must not be modified afterward
+     * @since 0.16.4.0
+     */
+    public void write(long region, CompoundTag tag) {
+        AsyncStorageWriter.write(file(region), tag);
+    }
+}
@@ -0,0 +1,140 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.storage.IStorage;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.function.Consumer;
+
+/**
+ * An inclusive rectangle of chunks, used to describe the area a player is interested in
+ * @param minX The minimum chunk x-coordinate
+ * @param minZ The minimum chunk z-coordinate
+ * @param maxX The maximum chunk x-coordinate
+ * @param maxZ The maximum chunk z-coordinate
+ * @see PlayerInterest
+ * @since 0.16.4.0
+ */
+public record ChunkArea(int minX, int minZ, int maxX, int maxZ) {
+    /**
+     * An area containing no chunks
+     * @since 0.16.4.0
+     */
+    public static final ChunkArea EMPTY = new ChunkArea(0, 0, -1, -1);
+
+    /**
+     * @return {@code true} if this area contains no chunks
+     * @since 0.16.4.0
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minZ > maxZ;
+    }
+
+    /**
+     * Grows this area by a margin on every side
+     * @param margin The margin in chunks
+     * @return The grown {@link ChunkArea}, or {@link #EMPTY} if this area is empty
+     * @since 0.16.4.0
+     */
+    public ChunkArea expand(int margin) {
+        if (isEmpty()) return EMPTY;
+        return new ChunkArea(minX - margin, minZ - margin, maxX + margin, maxZ + margin);
+    }
+
+    /**
+     * Checks if a chunk is in this area
+     * @param chunkX The chunk x-coordinate
+     * @param chunkZ The chunk z-coordinate
+     * @return {@code true} if the chunk is in this area
+     * @since 0.16.4.0
+     */
+    public boolean contains(int chunkX, int chunkZ) {
+        return chunkX >= minX && chunkX <= maxX && chunkZ >= minZ && chunkZ <= maxZ;
+    }
+
+    /**
+     * Checks if a chunk is in this area
+     * @param chunk The packed {@link ChunkPos}
+     * @return {@code true} if the chunk is in this area
+     * @since 0.16.4.0
+     */
+    public boolean contains(long chunk) {
+        return contains(ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+    }
+
+    /**
+     * Splits the part of this area that is not in another area into at most four rectangles
+     * @param other The {@link ChunkArea} to subtract
+     * @param consumer Receives each non-empty rectangle of the difference
+     * @since 0.16.4.0
+     */
+    public void subtract(ChunkArea other, Consumer<ChunkArea> consumer) {
+        if (isEmpty()) return;
+
+        int iMinX = Math.max(minX, other.minX), iMaxX = Math.min(maxX, other.maxX);
+        int iMinZ = Math.max(minZ, other.minZ), iMaxZ = Math.min(maxZ, other.maxZ);
+        if (other.isEmpty() || iMinX > iMaxX || iMinZ > iMaxZ) {
+            consumer.accept(this);
+            return;
+        }
+
+        // Full-width bands above and below the intersection, then the parts left and right of it
+        if (minZ < iMinZ) consumer.accept(new ChunkArea(minX, minZ, maxX, iMinZ - 1));
+        if (maxZ > iMaxZ) consumer.accept(new ChunkArea(minX, iMaxZ + 1, maxX, maxZ));
+        if (minX < iMinX) consumer.accept(new ChunkArea(minX, iMinZ, iMinX - 1, iMaxZ));
+        if (maxX > iMaxX) consumer.accept(new ChunkArea(iMaxX + 1, iMinZ, maxX, iMaxZ));
+    }
+
+    /**
+     * Executes a {@link Consumer} for every {@link IStorageData} of an {@link IStorage} in this area
+     * @param storage The {@link IStorage}
+     * @param consumer The function to run for each {@link IStorageData}
+     * @param <D> The {@link IStorageData} of the storage
+     * @since 0.16.4.0
+     */
+    public <D extends IStorageData> void forAll(IStorage<D> storage, Consumer<D> consumer) {
+        if (isEmpty()) return;
+        storage.forAllWithinArea(minX << 4, minZ << 4, (maxX << 4) | 15, (maxZ << 4) | 15, consumer);
+    }
+
+    /**
+     * Writes this area into a buffer
+     * @param buf The {@link FriendlyByteBuf} to write into
+     * @since 0.16.4.0
+     */
+    public void write(FriendlyByteBuf buf) {
+        buf.writeInt(minX);
+        buf.writeInt(minZ);
+        buf.writeInt(maxX);
+        buf.writeInt(maxZ);
+    }
+
+    /**
+     * Reads an area written by {@link #write(FriendlyByteBuf)}
+     * @param buf The {@link FriendlyByteBuf} to read from
+     * @return The {@link ChunkArea}
+     * @since 0.16.4.0
+     */
+    public static ChunkArea read(FriendlyByteBuf buf) {
+        return new ChunkArea(buf.readInt(), buf.readInt(), buf.readInt(), buf.readInt());
+    }
+
+    /**
+     * @return This area as an array of its minimum and maximum coordinates, for saving as NBT
+     * @since 0.16.4.0
+     */
+    public int[] toArray() {
+        return new int[] {minX, minZ, maxX, maxZ};
+    }
+
+    /**
+     * Creates an area from an array written by {@link #toArray()}
+     * @param array The array of coordinates
+     * @return The {@link ChunkArea}, or {@code null} if the array is invalid
+     * @since 0.16.4.0
+     */
+    public static ChunkArea fromArray(int[] array) {
+        return array.length == 4 ? new ChunkArea(array[0], array[1], array[2], array[3]) : null;
+    }
+}
@@ -0,0 +1,131 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.nullved.pmweatherapi.network.StoragePayload;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.IStorage;
+import net.nullved.pmweatherapi.storage.data.BinaryStorageFormat;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.StorageTypeTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the encoded chunks of a storage for full syncs, so players joining one after another do not each encode the same data again.
+ * <br><br>
+ * The pages of a {@link PagedSync} differ per player, since they are ordered by distance and filtered by {@link PlayerInterest},
+ * so chunks are cached instead of whole pages. Each cached chunk is an immutable {@link BinaryStorageFormat} chunk entry,
+ * and a page is built by copying the entries of its chunks behind a chunk count.
+ * <br><br>
+ * The cache is dropped whenever the storage's {@link IStorage#modCount()} changes. Storages that do not count their changes are never cached
+ *
+ * @param <D> The {@link IStorageData} of the storage
+ * @since 0.16.4.0
+ */
+public class FullSyncCache<D extends IStorageData> {
+    private static final Map<IServerStorage<?>, FullSyncCache<?>> CACHES = new HashMap<>();
+    private static final Segment EMPTY = new Segment(0, new byte[0]);
+
+    private final IServerStorage<D> storage;
+    private final Long2ObjectOpenHashMap<Segment> segments = new Long2ObjectOpenHashMap<>();
+    // Never reset, so segments encoded before and after an invalidation can share a page
+    private final StorageTypeTable types = new StorageTypeTable();
+    private long modCount = -1;
+
+    private FullSyncCache(IServerStorage<D> storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Gets the cache of a storage, creating it if needed
+     * @param storage The {@link IServerStorage}
+     * @return The {@link FullSyncCache} of the storage
+     * @param <D> The {@link IStorageData} of the storage
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    public static <D extends IStorageData> FullSyncCache<D> of(IServerStorage<D> storage) {
+        return (FullSyncCache<D>) CACHES.computeIfAbsent(storage, s -> new FullSyncCache<>(storage));
+    }
+
+    /**
+     * Drops the caches of every storage of a dimension, called when its level unloads.
+     * Caches reference their storage, and so its level, so they are removed explicitly instead of relying on weak keys
+     * @param dimension The dimension that unloaded
+     * @since 0.16.4.0
+     */
+    public static void remove(ResourceKey<Level> dimension) {
+        CACHES.keySet().removeIf(storage -> storage.getLevel().dimension().equals(dimension));
+    }
+
+    /**
+     * Drops every cache, called when the server stops
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        CACHES.clear();
+    }
+
+    /**
+     * Encodes the given chunks into the added entries of a full sync page, reusing the cached chunks
+     * @param chunks The packed {@link ChunkPos} of the chunks in the page
+     * @return The {@link StoragePayload.EncodedEntries}, or {@code null} if any {@link IStorageData} has no codec and the page must be sent as NBT
+     * @since 0.16.4.0
+     */
+    public StoragePayload.EncodedEntries encode(long[] chunks) {
+        long current = storage.modCount();
+        if (current == -1) return null;
+        if (current != modCount) {
+            segments.clear();
+            modCount = current;
+        }
+
+        List<Segment> page = new ArrayList<>(chunks.length);
+        int count = 0, size = 0;
+        for (long chunk : chunks) {
+            Segment segment = segments.get(chunk);
+            if (segment == null) {
+                segment = encodeChunk(chunk);
+                if (segment == null) return null;
+                segments.put(chunk, segment);
+            }
+
+            if (segment.count() == 0) continue;
+            page.add(segment);
+            count += segment.count();
+            size += segment.bytes().length;
+        }
+
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(size + 5));
+        buf.writeVarInt(page.size());
+        for (Segment segment : page) buf.writeBytes(segment.bytes());
+
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return new StoragePayload.EncodedEntries(types, count, bytes);
+    }
+
+    private Segment encodeChunk(long chunk) {
+        List<D> datum = new ArrayList<>();
+        storage.forInChunk(new ChunkPos(chunk), datum::add);
+        if (datum.isEmpty()) return EMPTY;
+        if (!BinaryStorageFormat.canEncode(datum)) return null;
+
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer(datum.size() * 16 + 8));
+        BinaryStorageFormat.writeChunkEntry(buf, chunk, datum, types);
+
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return new Segment(datum.size(), bytes);
+    }
+
+    private record Segment(int count, byte[] bytes) {}
+}
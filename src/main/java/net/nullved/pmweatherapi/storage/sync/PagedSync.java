@@ -0,0 +1,287 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.nullved.pmweatherapi.PMWeatherAPI;
+import net.nullved.pmweatherapi.client.data.IClientStorage;
+import net.nullved.pmweatherapi.config.PMWServerConfig;
+import net.nullved.pmweatherapi.network.C2SStorageResumePacket;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.network.StoragePayload;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends full storage syncs in bounded pages over several ticks, instead of one packet holding the whole storage.
+ * <br><br>
+ * {@link IServerStorage#syncAllToPlayer} starts a sync, and at the end of each tick every player receives pages until
+ * {@link PMWServerConfig#syncBytesPerTick} is used up, nearest chunks first. Pages are read from the storage when they are sent,
+ * so changes sent by the {@link StorageSyncJournal} in between are never overwritten with older data.
+ * The encoded chunks are shared between players through the {@link FullSyncCache}.
+ * <br><br>
+ * The first page is an {@link StoragePayload.Operation#OVERWRITE} and the rest are {@link StoragePayload.Operation#PAGE}s.
+ * The client applies each page as it arrives and marks the storage complete with the last one, see {@link IClientStorage#isComplete()}
+ * <br><br>
+ * Syncs started when a player joins or changes dimension are resumable: they wait up to {@link #RESUME_TIMEOUT_TICKS} for a
+ * {@link C2SStorageResumePacket} naming the epoch and sequence number of the client's cached copy. If the {@link StorageSyncJournal}
+ * can resume from it, only the chunks that changed since then and the chunks outside the cached area are sent,
+ * starting with a {@link StoragePayload.Operation#RESUME} instead of an {@link StoragePayload.Operation#OVERWRITE}.
+ * <br><br>
+ * The client drops cached data outside the area of a {@link StoragePayload.Operation#RESUME}, so for storages that only sync the data near players,
+ * resumed syncs also wait for the player's {@link PlayerInterest} area to settle, up to {@link #SETTLE_TIMEOUT_TICKS}.
+ * Until the first page is sent, the area grows without sending anything, so a player that joins where they left receives almost nothing
+ *
+ * @since 0.16.4.0
+ */
+public class PagedSync {
+    private static final Map<UUID, Deque<Session<?>>> SESSIONS = new HashMap<>();
+    private static final int PAGE_ENTRIES = 512;
+    /**
+     * How long a resumable sync waits for the client's {@link C2SStorageResumePacket} before sending everything
+     * @since 0.16.4.0
+     */
+    public static final int RESUME_TIMEOUT_TICKS = 100;
+    /**
+     * How long a resumed sync waits for the player's interest area to settle before sending its first page anyway
+     * @since 0.16.4.0
+     */
+    public static final int SETTLE_TIMEOUT_TICKS = 200;
+    private static final int SETTLE_TICKS = 20;
+    private static long ticks = 0;
+
+    /**
+     * Starts a full sync of a storage to a player, replacing any unfinished sync of the same storage
+     * @param storage The {@link IServerStorage} to sync
+     * @param player The {@link ServerPlayer} to sync to
+     * @since 0.16.4.0
+     */
+    public static void start(IServerStorage<?> storage, ServerPlayer player) {
+        Deque<Session<?>> sessions = SESSIONS.computeIfAbsent(player.getUUID(), uuid -> new ArrayDeque<>());
+        sessions.removeIf(session -> session.storage == storage);
+        sessions.addLast(new Session<>(storage));
+    }
+
+    /**
+     * Starts a full sync of a storage to a player that may answer with a {@link C2SStorageResumePacket}.
+     * Nothing is sent until the client answers or {@link #RESUME_TIMEOUT_TICKS} pass
+     * @param storage The {@link IServerStorage} to sync
+     * @param player The {@link ServerPlayer} to sync to
+     * @since 0.16.4.0
+     */
+    public static void startResumable(IServerStorage<?> storage, ServerPlayer player) {
+        start(storage, player);
+        SESSIONS.get(player.getUUID()).peekLast().resumeDeadline = ticks + RESUME_TIMEOUT_TICKS;
+    }
+
+    /**
+     * Resumes a waiting sync from the client's cached copy of a storage, or lets it send everything if the cache is too old
+     * @param storage The {@link IServerStorage}
+     * @param player The {@link ServerPlayer} that sent the {@link C2SStorageResumePacket}
+     * @param epoch The epoch of the cached copy, or {@code 0} if the client has none
+     * @param seq The sequence number of the cached copy
+     * @param coverage The area of the world the cached copy covers, or {@code null} for the whole dimension
+     * @since 0.16.4.0
+     */
+    public static void resume(IServerStorage<?> storage, ServerPlayer player, long epoch, long seq, ChunkArea coverage) {
+        Deque<Session<?>> sessions = SESSIONS.get(player.getUUID());
+        if (sessions == null) return;
+
+        for (Session<?> session : sessions) {
+            if (session.storage != storage || !session.isAwaitingResume()) continue;
+
+            session.resumeDeadline = 0;
+            session.resumeBase = StorageSyncJournal.of(storage).resumeBase(epoch, seq);
+            session.resumeCoverage = coverage == null ? ChunkArea.EMPTY : coverage;
+            session.settleDeadline = ticks + SETTLE_TIMEOUT_TICKS;
+            if (session.resumeBase >= 0) PMWeatherAPI.LOGGER.debug("Resuming storage {} for {} from sequence number {}", storage.getId(), player.getDisplayName().getString(), seq);
+            return;
+        }
+    }
+
+    /**
+     * Checks if a full sync of a storage to a player was started, but its first page is not sent yet.
+     * Anything sent to the player before the first page would be cleared by it
+     * @param storage The {@link IServerStorage}
+     * @param player The {@link ServerPlayer}
+     * @return {@code true} if the first page of a full sync is still waiting to be sent
+     * @since 0.16.4.0
+     */
+    public static boolean isWaiting(IServerStorage<?> storage, ServerPlayer player) {
+        Deque<Session<?>> sessions = SESSIONS.get(player.getUUID());
+        if (sessions == null) return false;
+
+        for (Session<?> session : sessions) {
+            if (session.storage == storage) return session.chunks == null;
+        }
+
+        return false;
+    }
+
+    /**
+     * Drops the unfinished syncs of a player that left the server
+     * @param player The {@link ServerPlayer}
+     * @since 0.16.4.0
+     */
+    public static void remove(ServerPlayer player) {
+        SESSIONS.remove(player.getUUID());
+    }
+
+    /**
+     * Sends pages to every player with an unfinished sync, within the byte budget of each player.
+     * Called at the end of each server tick, after {@link PlayerInterest#tick(MinecraftServer)} and before the {@link StorageSyncJournal}s are flushed
+     * @param server The {@link MinecraftServer}
+     * @since 0.16.4.0
+     */
+    public static void tick(MinecraftServer server) {
+        ticks++;
+        if (SESSIONS.isEmpty()) return;
+
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            Deque<Session<?>> sessions = SESSIONS.get(player.getUUID());
+            if (sessions == null) continue;
+
+            long budget = PMWServerConfig.syncBytesPerTick;
+            Iterator<Session<?>> iterator = sessions.iterator();
+            while (budget > 0 && iterator.hasNext()) {
+                Session<?> session = iterator.next();
+                // Syncs of the dimension the player left are superseded by the syncs of the new one
+                if (session.storage.getLevel() != player.serverLevel()) {
+                    iterator.remove();
+                    continue;
+                }
+
+                if (session.isAwaitingResume() || session.isAwaitingArea(player)) continue;
+
+                while (budget > 0 && !session.isDone()) budget -= session.sendPage(player);
+                if (session.isDone()) iterator.remove();
+            }
+        }
+
+        SESSIONS.values().removeIf(Deque::isEmpty);
+    }
+
+    private static class Session<D extends IStorageData> {
+        private final IServerStorage<D> storage;
+        private long[] chunks;
+        private int next = 0;
+        private long resumeDeadline = 0;
+        private long settleDeadline = 0;
+        private long resumeBase = -1;
+        private ChunkArea resumeCoverage = ChunkArea.EMPTY;
+
+        private Session(IServerStorage<D> storage) {
+            this.storage = storage;
+        }
+
+        private boolean isDone() {
+            return chunks != null && next >= chunks.length;
+        }
+
+        private boolean isAwaitingResume() {
+            return resumeDeadline > ticks;
+        }
+
+        private boolean isAwaitingArea(ServerPlayer player) {
+            if (chunks != null || !isResumed() || settleDeadline <= ticks || PlayerInterest.margin(storage) < 0) return false;
+            return !PlayerInterest.isSettled(player, storage.getLevel().dimension(), SETTLE_TICKS);
+        }
+
+        private boolean isResumed() {
+            return resumeBase >= 0;
+        }
+
+        private int sendPage(ServerPlayer player) {
+            ServerLevel level = storage.getLevel();
+            int margin = PlayerInterest.margin(storage);
+            ChunkArea area = margin < 0 ? null : PlayerInterest.area(player, level.dimension(), margin);
+
+            boolean first = chunks == null;
+            // The chunks are listed in the same tick as the first page, so anything added later arrives as a delta after it
+            if (first) chunks = isResumed() ? listResumedChunks(player, area) : listChunks(player, area);
+
+            LongArrayList page = new LongArrayList();
+            int count = 0;
+            // Resumed syncs also send chunks that became empty, so the page size is bounded by chunks too
+            while (next < chunks.length && count < PAGE_ENTRIES && page.size() < PAGE_ENTRIES) {
+                long chunk = chunks[next++];
+                // Chunks that left the player's area since the sync started were never sent, so they are skipped
+                if (area != null && !area.contains(chunk)) continue;
+
+                page.add(chunk);
+                count += storage.viewInChunk(new ChunkPos(chunk)).size();
+            }
+
+            boolean complete = next >= chunks.length;
+            StorageSyncJournal<D> journal = StorageSyncJournal.of(storage);
+            long seq = journal.seq();
+            long[] pageChunks = page.toLongArray();
+            StoragePayload payload;
+
+            StoragePayload.EncodedEntries entries = FullSyncCache.of(storage).encode(pageChunks);
+            if (entries != null) {
+                if (!first) payload = StoragePayload.page(storage, entries, complete);
+                else if (isResumed()) payload = StoragePayload.resume(storage, seq, entries, complete);
+                else payload = StoragePayload.overwrite(storage, seq, entries, complete);
+            } else {
+                List<D> datum = new ArrayList<>(count);
+                for (long chunk : pageChunks) storage.forInChunk(new ChunkPos(chunk), datum::add);
+
+                if (!first) payload = StoragePayload.page(storage, datum, complete);
+                else if (isResumed()) payload = StoragePayload.resume(storage, seq, datum, complete);
+                else payload = StoragePayload.overwrite(storage, seq, datum, complete);
+            }
+
+            if (first) payload.withEpoch(journal.epoch()).withCoverage(area);
+            if (isResumed()) payload.withReplacedChunks(pageChunks);
+
+            int size = payload.encodedSize();
+            PMWNetworking.serverSendStorageToPlayer(storage.packet(payload), player);
+            return size;
+        }
+
+        private long[] listChunks(ServerPlayer player, ChunkArea area) {
+            LongLinkedOpenHashSet set = new LongLinkedOpenHashSet();
+            if (area == null) storage.forAll(data -> set.add(IStorageBackend.chunkKey(data.getPos().asLong())));
+            else area.forAll(storage, data -> set.add(IStorageBackend.chunkKey(data.getPos().asLong())));
+
+            long[] list = set.toLongArray();
+            ChunkPos origin = player.chunkPosition();
+            LongArrays.quickSort(list, (a, b) -> Integer.compare(distance(origin, a), distance(origin, b)));
+            return list;
+        }
+
+        private long[] listResumedChunks(ServerPlayer player, ChunkArea area) {
+            LongLinkedOpenHashSet set = new LongLinkedOpenHashSet();
+            for (long chunk : StorageSyncJournal.of(storage).changedSince(resumeBase)) {
+                if (area == null || area.contains(chunk)) set.add(chunk);
+            }
+
+            // The cached copy only holds the area the player had when it was saved, the client drops everything outside the new one
+            if (area != null) area.subtract(resumeCoverage, part -> part.forAll(storage, data -> set.add(IStorageBackend.chunkKey(data.getPos().asLong()))));
+
+            long[] list = set.toLongArray();
+            ChunkPos origin = player.chunkPosition();
+            LongArrays.quickSort(list, (a, b) -> Integer.compare(distance(origin, a), distance(origin, b)));
+            return list;
+        }
+
+        private static int distance(ChunkPos origin, long chunk) {
+            return Math.max(Math.abs(ChunkPos.getX(chunk) - origin.x), Math.abs(ChunkPos.getZ(chunk) - origin.z));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.neoforged.neoforge.event.level.ChunkWatchEvent;
+import net.nullved.pmweatherapi.data.PMWStorages;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.network.StoragePayload;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.StorageInstance;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The area of the world each player receives storage data for.
+ * <br><br>
+ * Storages registered with {@link StorageOptions#interestManaged()} only sync the data within a player's interest area:
+ * the bounding box of the chunks tracked by the player (see {@link ChunkWatchEvent.Watch} and {@link ChunkWatchEvent.UnWatch}),
+ * grown by the storage's {@link StorageOptions#interestMargin() margin}.
+ * <br><br>
+ * At the end of each tick, players whose area changed receive one {@link StoragePayload.Operation#AREA} payload per storage,
+ * holding the data that entered the area, the removal of the data that left it and the new area, which clients keep with their cache.
+ * Deltas from the {@link StorageSyncJournal} and full syncs are filtered to the same area,
+ * so the bandwidth used per player depends on the data near them instead of the size of the world
+ *
+ * @since 0.16.4.0
+ */
+public class PlayerInterest {
+    private static final Map<UUID, PlayerInterest> INTERESTS = new HashMap<>();
+
+    private final LongOpenHashSet watched = new LongOpenHashSet();
+    private ResourceKey<Level> dimension;
+    private ChunkArea sent = ChunkArea.EMPTY;
+    private boolean changed = false;
+    private int sentTick = 0;
+
+    private PlayerInterest(ResourceKey<Level> dimension) {
+        this.dimension = dimension;
+    }
+
+    /**
+     * Records a chunk being sent to a player
+     * @param player The {@link ServerPlayer}
+     * @param level The {@link ServerLevel} of the chunk
+     * @param pos The {@link ChunkPos} of the chunk
+     * @since 0.16.4.0
+     */
+    public static void onWatch(ServerPlayer player, ServerLevel level, ChunkPos pos) {
+        PlayerInterest interest = INTERESTS.computeIfAbsent(player.getUUID(), uuid -> new PlayerInterest(level.dimension()));
+        if (!interest.dimension.equals(level.dimension())) interest.reset(level.dimension());
+
+        if (interest.watched.add(pos.toLong())) interest.changed = true;
+    }
+
+    /**
+     * Records a chunk no longer being tracked by a player
+     * @param player The {@link ServerPlayer}
+     * @param level The {@link ServerLevel} of the chunk
+     * @param pos The {@link ChunkPos} of the chunk
+     * @since 0.16.4.0
+     */
+    public static void onUnWatch(ServerPlayer player, ServerLevel level, ChunkPos pos) {
+        PlayerInterest interest = INTERESTS.get(player.getUUID());
+        // Chunks of the previous dimension are forgotten on a dimension change already
+        if (interest == null || !interest.dimension.equals(level.dimension())) return;
+
+        if (interest.watched.remove(pos.toLong())) interest.changed = true;
+    }
+
+    /**
+     * Resets the interest of a player that changed dimension, since the client now has new, empty storages
+     * @param player The {@link ServerPlayer}
+     * @param dimension The new dimension of the player
+     * @since 0.16.4.0
+     */
+    public static void onChangeDimension(ServerPlayer player, ResourceKey<Level> dimension) {
+        PlayerInterest interest = INTERESTS.get(player.getUUID());
+        if (interest != null && !interest.dimension.equals(dimension)) interest.reset(dimension);
+    }
+
+    /**
+     * Forgets a player that left the server
+     * @param player The {@link ServerPlayer}
+     * @since 0.16.4.0
+     */
+    public static void remove(ServerPlayer player) {
+        INTERESTS.remove(player.getUUID());
+    }
+
+    /**
+     * Gets the interest margin of a storage
+     * @param storage The {@link IServerStorage}
+     * @return The margin in chunks, or {@code -1} if the storage syncs its whole dimension
+     * @since 0.16.4.0
+     */
+    public static int margin(IServerStorage<?> storage) {
+        StorageInstance<?, ?> instance = PMWStorages.STORAGE_INSTANCES.get(storage.getId());
+        return instance == null ? -1 : instance.options().interestMargin();
+    }
+
+    /**
+     * Gets the area of a dimension a player has received data for
+     * @param player The {@link ServerPlayer}
+     * @param dimension The dimension of the storage
+     * @param margin The interest margin of the storage
+     * @return The {@link ChunkArea}, or {@link ChunkArea#EMPTY} if the player has no interest in the dimension
+     * @since 0.16.4.0
+     */
+    public static ChunkArea area(ServerPlayer player, ResourceKey<Level> dimension, int margin) {
+        PlayerInterest interest = INTERESTS.get(player.getUUID());
+        if (interest == null || !interest.dimension.equals(dimension)) return ChunkArea.EMPTY;
+        return interest.sent.expand(margin);
+    }
+
+    /**
+     * Checks if the interest area of a player stopped changing, such as once the chunks around a player that just joined were all sent
+     * @param player The {@link ServerPlayer}
+     * @param dimension The dimension of the storage
+     * @param ticks How many ticks the area must have stayed the same
+     * @return {@code true} if the player has a non-empty area in the dimension that did not change for the given ticks
+     * @since 0.16.4.0
+     */
+    public static boolean isSettled(ServerPlayer player, ResourceKey<Level> dimension, int ticks) {
+        PlayerInterest interest = INTERESTS.get(player.getUUID());
+        if (interest == null || !interest.dimension.equals(dimension) || interest.changed || interest.sent.isEmpty()) return false;
+        return player.server.getTickCount() - interest.sentTick >= ticks;
+    }
+
+    /**
+     * Streams data in and out for every player whose interest area changed this tick.
+     * Called at the end of each server tick, before the {@link StorageSyncJournal}s are flushed
+     * @param server The {@link MinecraftServer}
+     * @since 0.16.4.0
+     */
+    public static void tick(MinecraftServer server) {
+        for (ServerPlayer player : server.getPlayerList().getPlayers()) {
+            PlayerInterest interest = INTERESTS.get(player.getUUID());
+            if (interest == null || !interest.changed) continue;
+
+            ServerLevel level = player.serverLevel();
+            // Wait for the chunks of the player's new dimension before streaming anything
+            if (!level.dimension().equals(interest.dimension)) continue;
+
+            interest.changed = false;
+            ChunkArea bounds = interest.bounds();
+            if (bounds.equals(interest.sent)) continue;
+
+            for (StorageInstance<?, ?> instance : PMWStorages.getAll()) {
+                int margin = instance.options().interestMargin();
+                if (margin < 0) continue;
+
+                IServerStorage<?> storage = instance.get(level.dimension());
+                // A full sync about to start already covers the whole new area
+                if (storage != null && !PagedSync.isWaiting(storage, player)) stream(player, storage, interest.sent.expand(margin), bounds.expand(margin));
+            }
+
+            interest.sent = bounds;
+            interest.sentTick = server.getTickCount();
+        }
+    }
+
+    private static <D extends IStorageData> void stream(ServerPlayer player, IServerStorage<D> storage, ChunkArea from, ChunkArea to) {
+        LongArrayList left = new LongArrayList();
+        from.subtract(to, area -> area.forAll(storage, data -> left.add(data.getPos().asLong())));
+
+        List<D> entered = new ArrayList<>();
+        to.subtract(from, area -> area.forAll(storage, entered::add));
+
+        // Sent even if nothing entered or left, so the client always knows which area its data covers
+        PMWNetworking.serverSendStorageToPlayer(storage.packet(StoragePayload.area(storage, entered, left.toLongArray(), to)), player);
+    }
+
+    private void reset(ResourceKey<Level> dimension) {
+        this.dimension = dimension;
+        this.watched.clear();
+        this.sent = ChunkArea.EMPTY;
+        this.changed = true;
+    }
+
+    private ChunkArea bounds() {
+        if (watched.isEmpty()) return ChunkArea.EMPTY;
+
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        LongIterator iterator = watched.iterator();
+        while (iterator.hasNext()) {
+            long chunk = iterator.nextLong();
+            int x = ChunkPos.getX(chunk), z = ChunkPos.getZ(chunk);
+            minX = Math.min(minX, x);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        return new ChunkArea(minX, minZ, maxX, maxZ);
+    }
+}
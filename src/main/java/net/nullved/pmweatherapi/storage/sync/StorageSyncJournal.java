@@ -0,0 +1,292 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongMaps;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.entity.player.Player;
+import net.nullved.pmweatherapi.client.data.IClientStorage;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.network.S2CStoragePacket;
+import net.nullved.pmweatherapi.network.StoragePayload;
+import net.nullved.pmweatherapi.storage.IServerStorage;
+import net.nullved.pmweatherapi.storage.ISyncServerStorage;
+import net.nullved.pmweatherapi.storage.PMWStorage;
+import net.nullved.pmweatherapi.storage.StorageOptions;
+import net.nullved.pmweatherapi.storage.backend.IStorageBackend;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The outgoing change journal of an {@link IServerStorage}.
+ * <br><br>
+ * {@link ISyncServerStorage#addAndSync} and {@link ISyncServerStorage#removeAndSync} record their changes here instead of sending a packet right away.
+ * Changes to the same {@link BlockPos} within a tick are coalesced, with the last write winning.
+ * At the end of each server tick, {@link #flushAll()} sends one {@code delta} packet per storage that changed.
+ * <br><br>
+ * Every delta is stamped with a sequence number, and full syncs are stamped with the last sent sequence number.
+ * A client that sees a gap applies the delta anyway and asks for a full resync (see {@link IClientStorage#sync(StoragePayload)})
+ *
+ * @param <D> The {@link IStorageData} of the storage
+ * @since 0.16.4.0
+ */
+public class StorageSyncJournal<D extends IStorageData> {
+    private static final Map<IServerStorage<?>, StorageSyncJournal<?>> JOURNALS = new HashMap<>();
+    private static final long RESYNC_COOLDOWN_MILLIS = 1000L;
+
+    private final IServerStorage<D> storage;
+    private final Long2ObjectLinkedOpenHashMap<D> added = new Long2ObjectLinkedOpenHashMap<>();
+    private final LongLinkedOpenHashSet removed = new LongLinkedOpenHashSet();
+    private final Object2LongOpenHashMap<UUID> lastResync = new Object2LongOpenHashMap<>();
+    private final Long2LongOpenHashMap chunkSeqs = new Long2LongOpenHashMap();
+    private long epoch = newEpoch();
+    private long seq = 0;
+    private long previousEpoch = 0;
+    private long previousSeq = -1;
+
+    private StorageSyncJournal(IServerStorage<D> storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Gets the journal of a storage, creating it if needed
+     * @param storage The {@link IServerStorage}
+     * @return The {@link StorageSyncJournal} of the storage
+     * @param <D> The {@link IStorageData} of the storage
+     * @since 0.16.4.0
+     */
+    @SuppressWarnings("unchecked")
+    public static <D extends IStorageData> StorageSyncJournal<D> of(IServerStorage<D> storage) {
+        return (StorageSyncJournal<D>) JOURNALS.computeIfAbsent(storage, s -> new StorageSyncJournal<>(storage));
+    }
+
+    /**
+     * Forgets the journals of every storage of a dimension, called when its level unloads.
+     * Journals reference their storage, and so its level, so they are removed explicitly instead of relying on weak keys
+     * @param dimension The dimension that unloaded
+     * @since 0.16.4.0
+     */
+    public static void remove(ResourceKey<Level> dimension) {
+        JOURNALS.keySet().removeIf(storage -> storage.getLevel().dimension().equals(dimension));
+    }
+
+    /**
+     * Forgets every journal, called when the server stops
+     * @since 0.16.4.0
+     */
+    public static void clear() {
+        JOURNALS.clear();
+    }
+
+    /**
+     * Sends the pending changes of every storage. Called at the end of each server tick
+     * @since 0.16.4.0
+     */
+    public static void flushAll() {
+        for (StorageSyncJournal<?> journal : new ArrayList<>(JOURNALS.values())) journal.flush();
+    }
+
+    /**
+     * Records an added or replaced {@link IStorageData}
+     * @param data The {@link IStorageData}
+     * @since 0.16.4.0
+     */
+    public void add(D data) {
+        long pos = data.getPos().asLong();
+        removed.remove(pos);
+        added.put(pos, data);
+    }
+
+    /**
+     * Records a removed {@link BlockPos}
+     * @param pos The {@link BlockPos}
+     * @since 0.16.4.0
+     */
+    public void remove(BlockPos pos) {
+        long key = pos.asLong();
+        added.remove(key);
+        removed.add(key);
+    }
+
+    /**
+     * Drops every pending change, because a full sync to every player supersedes them
+     * @since 0.16.4.0
+     */
+    public void clear() {
+        added.clear();
+        removed.clear();
+    }
+
+    /**
+     * @return The sequence number of the last sent delta
+     * @since 0.16.4.0
+     */
+    public long seq() {
+        return seq;
+    }
+
+    /**
+     * Gets the epoch of this journal. Sequence numbers are only comparable within the same epoch,
+     * and a new epoch starts every time the storage is loaded
+     * @return The epoch, never {@code 0}
+     * @since 0.16.4.0
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Records that a chunk changed, so clients resuming from an earlier sequence number receive it again.
+     * Called by {@link PMWStorage} for every changed chunk
+     * @param chunk The packed {@link ChunkPos} of the chunk
+     * @since 0.16.4.0
+     */
+    public void touch(long chunk) {
+        // The change is sent with the next delta at the earliest
+        chunkSeqs.put(chunk, seq + 1);
+    }
+
+    /**
+     * Gets the sequence number to save with the storage. If changes are pending, they are already part of the saved data,
+     * so the saved number is the one they will be sent with
+     * @return The sequence number to save
+     * @since 0.16.4.0
+     */
+    public long savedSeq() {
+        return added.isEmpty() && removed.isEmpty() ? seq : seq + 1;
+    }
+
+    /**
+     * Restores the epoch and sequence number the storage was saved with, so clients that were in sync when it was saved can resume
+     * @param epoch The saved epoch
+     * @param seq The saved sequence number
+     * @since 0.16.4.0
+     */
+    public void restore(long epoch, long seq) {
+        this.previousEpoch = epoch;
+        this.previousSeq = seq;
+    }
+
+    /**
+     * Gets the sequence number a client cache can be resumed from
+     * @param epoch The epoch of the client cache
+     * @param seq The sequence number of the client cache
+     * @return The sequence number in this epoch the cache is in sync with, or {@code -1} if the cache cannot be resumed
+     * @since 0.16.4.0
+     */
+    public long resumeBase(long epoch, long seq) {
+        if (epoch == this.epoch && seq >= 0 && seq <= this.seq) return seq;
+        // A cache in sync with the saved data missed nothing but the changes since the storage was loaded
+        if (epoch != 0 && epoch == previousEpoch && seq == previousSeq) return 0;
+        return -1;
+    }
+
+    /**
+     * Gets every chunk that changed after a sequence number, including chunks that are now empty
+     * @param base The sequence number, see {@link #resumeBase(long, long)}
+     * @return The packed {@link ChunkPos} of the changed chunks
+     * @since 0.16.4.0
+     */
+    public long[] changedSince(long base) {
+        LongArrayList chunks = new LongArrayList();
+        for (Long2LongMap.Entry entry : Long2LongMaps.fastIterable(chunkSeqs)) {
+            if (entry.getLongValue() > base) chunks.add(entry.getLongKey());
+        }
+
+        return chunks.toLongArray();
+    }
+
+    /**
+     * Starts a new epoch, after the storage changed in a way that is not recorded per chunk, such as {@link PMWStorage#clean()}.
+     * No client cache from before can be resumed
+     * @since 0.16.4.0
+     */
+    public void invalidate() {
+        epoch = newEpoch();
+        previousEpoch = 0;
+        previousSeq = -1;
+        chunkSeqs.clear();
+    }
+
+    private static long newEpoch() {
+        long epoch;
+        do {
+            epoch = ThreadLocalRandom.current().nextLong();
+        } while (epoch == 0);
+        return epoch;
+    }
+
+    /**
+     * Sends a full sync to a player that detected a gap, at most once per second per player
+     * @param player The {@link Player} that asked for the resync
+     * @since 0.16.4.0
+     */
+    public void resync(Player player) {
+        long now = System.currentTimeMillis();
+        if (now - lastResync.getLong(player.getUUID()) < RESYNC_COOLDOWN_MILLIS) return;
+
+        lastResync.put(player.getUUID(), now);
+        storage.syncAllToPlayer(player);
+    }
+
+    /**
+     * Sends the pending changes as one {@code delta} packet to the players in the storage's dimension, if there are any.
+     * For storages with {@link StorageOptions#interestManaged()}, each player's delta only holds the changes in their {@link PlayerInterest} area,
+     * but every player still receives the sequence number.
+     * Players whose {@link PagedSync} has not sent its first page yet are skipped, since that page already holds the changes
+     * @since 0.16.4.0
+     */
+    public void flush() {
+        if (added.isEmpty() && removed.isEmpty()) return;
+        seq++;
+
+        int margin = PlayerInterest.margin(storage);
+        ServerLevel level = storage.getLevel();
+        if (margin < 0) {
+            StoragePayload payload = StoragePayload.delta(storage, seq, added.values(), removed.toLongArray());
+            // Encoded once for every player
+            payload.encodedSize();
+            S2CStoragePacket<?> packet = storage.packet(payload);
+            for (ServerPlayer player : level.players()) {
+                if (!PagedSync.isWaiting(storage, player)) PMWNetworking.serverSendStorageToPlayer(packet, player);
+            }
+        } else {
+            for (ServerPlayer player : level.players()) {
+                if (PagedSync.isWaiting(storage, player)) continue;
+                ChunkArea area = PlayerInterest.area(player, level.dimension(), margin);
+
+                List<D> playerAdded = new ArrayList<>();
+                for (D data : added.values()) {
+                    if (area.contains(IStorageBackend.chunkKey(data.getPos().asLong()))) playerAdded.add(data);
+                }
+
+                LongArrayList playerRemoved = new LongArrayList();
+                LongIterator iterator = removed.iterator();
+                while (iterator.hasNext()) {
+                    long pos = iterator.nextLong();
+                    if (area.contains(IStorageBackend.chunkKey(pos))) playerRemoved.add(pos);
+                }
+
+                PMWNetworking.serverSendStorageToPlayer(storage.packet(StoragePayload.delta(storage, seq, playerAdded, playerRemoved.toLongArray())), player);
+            }
+        }
+
+        clear();
+    }
+}
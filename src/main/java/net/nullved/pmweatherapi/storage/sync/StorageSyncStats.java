@@ -0,0 +1,224 @@
+package net.nullved.pmweatherapi.storage.sync;
+
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.nullved.pmweatherapi.command.StoragesCommand;
+import net.nullved.pmweatherapi.network.PMWNetworking;
+import net.nullved.pmweatherapi.network.S2CStoragePacket;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Counts the storage packets sent to players, with their entries and encoded bytes.
+ * <br><br>
+ * Every {@link S2CStoragePacket} sent through {@link PMWNetworking} is recorded once per receiving player,
+ * broken down by storage, dimension and operation, and separately by player.
+ * Each {@link Counter} keeps its totals since the last {@link #reset()} and its rates over the last {@link #WINDOW_SECONDS} seconds.
+ * <br><br>
+ * The counters are shown by {@code /storages stats}, see {@link StoragesCommand}
+ *
+ * @since 0.16.4.0
+ */
+public class StorageSyncStats {
+    /**
+     * The amount of seconds the rates are averaged over
+     * @since 0.16.4.0
+     */
+    public static final int WINDOW_SECONDS = 10;
+
+    private static final Map<Key, Counter> BY_KEY = new HashMap<>();
+    private static final Map<UUID, Counter> BY_PLAYER = new HashMap<>();
+    private static final Map<UUID, String> PLAYER_NAMES = new HashMap<>();
+    private static final Counter TOTAL = new Counter();
+
+    /**
+     * Records a packet sent to a player
+     * @param storage The {@link ResourceLocation} ID of the storage, or of the packet type if the storage is unknown
+     * @param dimension The dimension of the storage, or {@code null} if unknown
+     * @param operation The name of the operation, such as {@code overwrite}
+     * @param player The {@link ServerPlayer} the packet was sent to
+     * @param entries The amount of added and removed entries in the packet
+     * @param bytes The encoded size of the packet in bytes
+     * @since 0.16.4.0
+     */
+    public static void record(ResourceLocation storage, ResourceLocation dimension, String operation, ServerPlayer player, int entries, int bytes) {
+        long second = System.currentTimeMillis() / 1000L;
+        BY_KEY.computeIfAbsent(new Key(storage, dimension, operation), key -> new Counter()).add(second, entries, bytes);
+        BY_PLAYER.computeIfAbsent(player.getUUID(), uuid -> new Counter()).add(second, entries, bytes);
+        PLAYER_NAMES.put(player.getUUID(), player.getGameProfile().getName());
+        TOTAL.add(second, entries, bytes);
+    }
+
+    /**
+     * @return The {@link Counter} of every packet
+     * @since 0.16.4.0
+     */
+    public static Counter total() {
+        return TOTAL;
+    }
+
+    /**
+     * Gets the counters of each storage, dimension and operation, sorted by total bytes, largest first
+     * @return A new {@link List} of each {@link Key} and its {@link Counter}
+     * @since 0.16.4.0
+     */
+    public static List<Map.Entry<Key, Counter>> byStorage() {
+        List<Map.Entry<Key, Counter>> list = new ArrayList<>(BY_KEY.entrySet());
+        list.sort(Comparator.comparingLong((Map.Entry<Key, Counter> entry) -> entry.getValue().bytes()).reversed());
+        return list;
+    }
+
+    /**
+     * Gets the counters of each player, sorted by total bytes, largest first
+     * @return A new {@link List} of each player's {@link UUID} and {@link Counter}
+     * @since 0.16.4.0
+     */
+    public static List<Map.Entry<UUID, Counter>> byPlayer() {
+        List<Map.Entry<UUID, Counter>> list = new ArrayList<>(BY_PLAYER.entrySet());
+        list.sort(Comparator.comparingLong((Map.Entry<UUID, Counter> entry) -> entry.getValue().bytes()).reversed());
+        return list;
+    }
+
+    /**
+     * Gets the name a player had when a packet was last recorded for them
+     * @param uuid The {@link UUID} of the player
+     * @return The name of the player, or the {@link UUID} as a string if unknown
+     * @since 0.16.4.0
+     */
+    public static String playerName(UUID uuid) {
+        return PLAYER_NAMES.getOrDefault(uuid, uuid.toString());
+    }
+
+    /**
+     * Clears every counter
+     * @since 0.16.4.0
+     */
+    public static void reset() {
+        BY_KEY.clear();
+        BY_PLAYER.clear();
+        PLAYER_NAMES.clear();
+        TOTAL.clear();
+    }
+
+    /**
+     * What a {@link Counter} of {@link #byStorage()} counts
+     * @param storage The {@link ResourceLocation} ID of the storage, or of the packet type if the storage is unknown
+     * @param dimension The dimension of the storage, or {@code null} if unknown
+     * @param operation The name of the operation
+     * @since 0.16.4.0
+     */
+    public record Key(ResourceLocation storage, ResourceLocation dimension, String operation) {}
+
+    /**
+     * Counts packets, entries and bytes, in total and per second over the last {@link #WINDOW_SECONDS} seconds
+     * @since 0.16.4.0
+     */
+    public static class Counter {
+        private long packets, entries, bytes;
+        private final long[] packetBuckets = new long[WINDOW_SECONDS];
+        private final long[] entryBuckets = new long[WINDOW_SECONDS];
+        private final long[] byteBuckets = new long[WINDOW_SECONDS];
+        private long second = 0;
+
+        private void add(long now, int entries, int bytes) {
+            advance(now);
+            int bucket = (int) (now % WINDOW_SECONDS);
+
+            this.packets++;
+            this.entries += entries;
+            this.bytes += bytes;
+            packetBuckets[bucket]++;
+            entryBuckets[bucket] += entries;
+            byteBuckets[bucket] += bytes;
+        }
+
+        private void advance(long now) {
+            if (now - second >= WINDOW_SECONDS) {
+                clearBuckets();
+            } else {
+                // Empty the buckets of the seconds nothing was recorded in
+                for (long s = second + 1; s <= now; s++) {
+                    int bucket = (int) (s % WINDOW_SECONDS);
+                    packetBuckets[bucket] = 0;
+                    entryBuckets[bucket] = 0;
+                    byteBuckets[bucket] = 0;
+                }
+            }
+
+            second = Math.max(second, now);
+        }
+
+        private void clearBuckets() {
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                packetBuckets[i] = 0;
+                entryBuckets[i] = 0;
+                byteBuckets[i] = 0;
+            }
+        }
+
+        private void clear() {
+            packets = entries = bytes = 0;
+            clearBuckets();
+        }
+
+        private double rate(long[] buckets) {
+            advance(System.currentTimeMillis() / 1000L);
+            long sum = 0;
+            for (long value : buckets) sum += value;
+            return sum / (double) WINDOW_SECONDS;
+        }
+
+        /**
+         * @return The amount of packets sent since the last reset
+         * @since 0.16.4.0
+         */
+        public long packets() {
+            return packets;
+        }
+
+        /**
+         * @return The amount of entries sent since the last reset
+         * @since 0.16.4.0
+         */
+        public long entries() {
+            return entries;
+        }
+
+        /**
+         * @return The amount of bytes sent since the last reset
+         * @since 0.16.4.0
+         */
+        public long bytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The average packets per second over the last {@link #WINDOW_SECONDS} seconds
+         * @since 0.16.4.0
+         */
+        public double packetsPerSecond() {
+            return rate(packetBuckets);
+        }
+
+        /**
+         * @return The average entries per second over the last {@link #WINDOW_SECONDS} seconds
+         * @since 0.16.4.0
+         */
+        public double entriesPerSecond() {
+            return rate(entryBuckets);
+        }
+
+        /**
+         * @return The average bytes per second over the last {@link #WINDOW_SECONDS} seconds
+         * @since 0.16.4.0
+         */
+        public double bytesPerSecond() {
+            return rate(byteBuckets);
+        }
+    }
+}
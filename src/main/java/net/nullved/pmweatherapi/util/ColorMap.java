@@ -7,6 +7,7 @@ import net.minecraft.core.Holder;
 import net.minecraft.util.FastColor;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.phys.Vec3;
+import net.nullved.pmweatherapi.client.render.radar.RadarFrameBuffer;
 import net.nullved.pmweatherapi.config.PMWClientConfig;
 
 import java.awt.Color;
@@ -123,8 +124,13 @@ public class ColorMap {
 
     public int getWithTerrainMap(float val, RadarBlockEntity rbe, double x, double z) {
         if (val < firstThreshold) {
-            long longID = (long) (x + resolution + 1) + (long) (z + resolution + 1) * ((long) resolution * 2L + 1L);
-            return lerp(Math.clamp(val / (firstThreshold - min), 0.0F, 1.0F), rbe.terrainMap.getOrDefault(longID, Color.BLACK).getRGB(), segments.firstEntry().getValue().to);
+            RadarFrameBuffer frame = RadarFrameBuffer.get(rbe);
+            int terrain = 0xFF000000;
+            if (frame != null && Math.abs(x) <= frame.resolution() && Math.abs(z) <= frame.resolution()) {
+                terrain = frame.terrain(RadarFrameBuffer.index((int) x, (int) z, frame.resolution()));
+            }
+
+            return lerp(Math.clamp(val / (firstThreshold - min), 0.0F, 1.0F), terrain, segments.firstEntry().getValue().to);
         } else return get(val);
     }
 
@@ -59,9 +59,9 @@ public class PMWUtils {
     public static <D extends IStorageData> Set<D> storageCornerAdjacent(IStorage<D> storage, BlockPos pos) {
         HashSet<D> set = new HashSet<>();
 
-        for (D data: storage.getInAdjacentChunks(new ChunkPos(pos))) {
+        storage.forInAdjacentChunks(new ChunkPos(pos), data -> {
             if (isCornerAdjacent(data.getPos(), pos)) set.add(data);
-        }
+        });
 
         return set;
     }
@@ -74,7 +74,7 @@ public class PMWUtils {
      * @since 0.14.16.2
      */
     public static boolean isRadarAdjacent(ResourceKey<Level> dim, BlockPos pos) {
-        return !NearbyRadars.get(dim).radarsNearBlock(pos, 1).isEmpty();
+        return NearbyRadars.get(dim).anyRadarNearBlock(pos, 1);
     }
 
     /**
@@ -0,0 +1,110 @@
+package net.nullved.pmweatherapi.storage;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.nbt.ByteArrayTag;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.nullved.pmweatherapi.storage.data.BinaryStorageFormat;
+import net.nullved.pmweatherapi.storage.data.IStorageData;
+import net.nullved.pmweatherapi.storage.data.StorageTypeTable;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PMWStorageQuarantineTest {
+    private static final ResourceLocation UNREGISTERED = ResourceLocation.fromNamespaceAndPath("removed_addon", "data");
+    private static final long CHUNK = ChunkPos.asLong(1, 2);
+    private static final int VERSION = 1;
+
+    @Test
+    void decodeChunkThrowsOnUnregisteredType() {
+        StorageTypeTable types = StorageTypeTable.fromTag(typesTag());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> BinaryStorageFormat.decodeChunk(CHUNK, chunkBytes(), types, VERSION));
+        assertTrue(e.getMessage().contains(UNREGISTERED.toString()));
+    }
+
+    @Test
+    void chunkWithUnregisteredTypeIsQuarantinedAndSavedUnchanged() {
+        byte[] bytes = chunkBytes();
+        CompoundTag saved = new CompoundTag();
+        saved.putInt("version", VERSION);
+        saved.put("types", typesTag());
+        saved.put(String.valueOf(CHUNK), new ByteArrayTag(bytes.clone()));
+
+        TestStorage storage = new TestStorage();
+        storage.readChunks(saved);
+        assertEquals(0, storage.size());
+
+        CompoundTag written = storage.save(new CompoundTag());
+        assertFalse(written.contains(String.valueOf(CHUNK)));
+
+        CompoundTag entry = written.getCompound("quarantine").getCompound(String.valueOf(CHUNK));
+        assertInstanceOf(ByteArrayTag.class, entry.get("data"));
+        assertArrayEquals(bytes, ((ByteArrayTag) entry.get("data")).getAsByteArray());
+        assertEquals(VERSION, entry.getInt("version"));
+        assertEquals(typesTag(), entry.get("types"));
+
+        // The quarantined chunk survives being read and saved again
+        TestStorage reloaded = new TestStorage();
+        reloaded.readChunks(written);
+        CompoundTag rewritten = reloaded.save(new CompoundTag());
+        assertArrayEquals(bytes, ((ByteArrayTag) rewritten.getCompound("quarantine").getCompound(String.valueOf(CHUNK)).get("data")).getAsByteArray());
+    }
+
+    private static ListTag typesTag() {
+        ListTag types = new ListTag();
+        types.add(StringTag.valueOf(UNREGISTERED.toString()));
+        return types;
+    }
+
+    /**
+     * A binary chunk of two entries, the first of a type without a codec, so its fields and the second entry cannot be read
+     */
+    private static byte[] chunkBytes() {
+        FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(2);
+        buf.writeVarInt(0);
+        buf.writeByte(0x21);
+        buf.writeVarInt(128);
+        buf.writeInt(0xCAFEBABE);
+        buf.writeVarInt(0);
+        buf.writeByte(0x43);
+        buf.writeVarInt(130);
+        buf.writeInt(0xDEADBEEF);
+
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        return bytes;
+    }
+
+    private static class TestStorage extends PMWStorage<IStorageData> {
+        private TestStorage() {
+            super(Level.OVERWORLD);
+        }
+
+        @Override
+        public ResourceLocation getExpectedDataType() {
+            return UNREGISTERED;
+        }
+
+        @Override
+        public Level getLevel() {
+            return null;
+        }
+
+        @Override
+        public ResourceLocation getId() {
+            return ResourceLocation.fromNamespaceAndPath("pmweatherapi", "quarantine_test");
+        }
+
+        @Override
+        public int version() {
+            return VERSION;
+        }
+    }
+}